@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Prepara el arranque rápido a partir del jar de Spring Boot (lo llama mvn -Pfast-startup package).
+#
+# CDS solo funciona con jars normales en el classpath (no con los jars anidados de BOOT-INF/lib
+# ni con directorios de clases), así que el jar se descomprime en target/fast-startup:
+#   quiz-live.jar   clases de la aplicación (con las generadas por Spring AOT) + Class-Path a lib/
+#   lib/*.jar       dependencias
+#   quiz-live.jsa   archivo CDS, de un arranque de entrenamiento que sale al terminar el refresh
+#
+# El arranque de entrenamiento crea el contexto completo, así que necesita la BD (la del perfil prod
+# o la que se pase con SPRING_DATASOURCE_URL/USERNAME/PASSWORD) con el esquema ya creado: el perfil
+# prod valida en vez de crear tablas (src/main/resources/schema/quizlive.sql y archive.sql).
+#
+# Arranque:
+#   java -XX:SharedArchiveFile=target/fast-startup/quiz-live.jsa -Dspring.aot.enabled=true \
+#        -Dspring.profiles.active=prod -jar target/fast-startup/quiz-live.jar
+#
+# Uso: ./scripts/cds-archive.sh target/quiz-live-0.0.1-SNAPSHOT.jar
+set -euo pipefail
+
+JAR=$(cd "$(dirname "${1:?Falta el jar de Spring Boot}")" && pwd)/$(basename "$1")
+OUT=${OUT:-$(dirname "$JAR")/fast-startup}
+MAIN_CLASS=com.quizlive.QuizLiveApplication
+
+echo "== Descomprimiendo $JAR en $OUT"
+rm -rf "$OUT"
+mkdir -p "$OUT/unpacked" "$OUT/lib"
+(cd "$OUT/unpacked" && jar -xf "$JAR")
+mv "$OUT"/unpacked/BOOT-INF/lib/*.jar "$OUT/lib/"
+
+# Manifiesto con el Class-Path en líneas de continuación (máx. 72 bytes por línea)
+{
+    echo "Manifest-Version: 1.0"
+    echo "Main-Class: $MAIN_CLASS"
+    prefix="Class-Path:"
+    for lib in "$OUT"/lib/*.jar; do
+        echo "$prefix lib/$(basename "$lib")"
+        prefix=" "
+    done
+} > "$OUT/MANIFEST.MF"
+jar -cfm "$OUT/quiz-live.jar" "$OUT/MANIFEST.MF" -C "$OUT/unpacked/BOOT-INF/classes" .
+rm -rf "$OUT/unpacked" "$OUT/MANIFEST.MF"
+
+echo "== Arranque de entrenamiento (CDS)"
+# Directorio de handoff propio: el entrenamiento no debe recoger las salas de una instancia real
+TRAINING_HANDOFF=$(mktemp -d)
+trap 'rm -rf "$TRAINING_HANDOFF"' EXIT
+(cd "$OUT" && java -XX:ArchiveClassesAtExit=quiz-live.jsa \
+    -Dspring.context.exit=onRefresh \
+    -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=prod \
+    -Dserver.port=0 \
+    -Dquizlive.cluster.handoff-dir="$TRAINING_HANDOFF" \
+    -jar quiz-live.jar)
+
+ls -lh "$OUT/quiz-live.jar" "$OUT/quiz-live.jsa"
@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+# Benchmark de la exportación de resultados en streaming (1M respuestas por defecto).
+#
+# Crea en la BD una partida FINALIZADA con PLAYERS x QUESTIONS respuestas, hace login como
+# el profesor y descarga /game/export/{pin} en CSV y JSONL midiendo tiempo, tamaño y
+# (si se pasa APP_PID) la memoria máxima residente de la aplicación.
+#
+# Uso:
+#   QL_USER=profe QL_PASS=secreto APP_PID=$(pgrep -f quiz-live) ./scripts/export-benchmark.sh
+#
+# Variables: QL_URL (http://localhost:8080), PLAYERS (1000), QUESTIONS (1000), PIN (990001),
+#            MYSQL ("mysql -uroot -p12345 quiz_live_db"), KEEP=1 para no borrar los datos al final.
+set -euo pipefail
+
+QL_URL=${QL_URL:-http://localhost:8080}
+QL_USER=${QL_USER:?Falta QL_USER (profesor existente)}
+QL_PASS=${QL_PASS:?Falta QL_PASS}
+PLAYERS=${PLAYERS:-1000}
+QUESTIONS=${QUESTIONS:-1000}
+PIN=${PIN:-990001}
+MYSQL=${MYSQL:-mysql -uroot -p12345 quiz_live_db}
+COOKIES=$(mktemp)
+trap 'rm -f "$COOKIES"' EXIT
+
+echo "== Sembrando $PLAYERS jugadores x $QUESTIONS preguntas = $((PLAYERS * QUESTIONS)) respuestas"
+$MYSQL <<SQL
+SET SESSION cte_max_recursion_depth = 10000000;
+SET @host = (SELECT id FROM users WHERE username = '$QL_USER');
+INSERT INTO block (name, description, user_id) VALUES ('bench-export', 'Datos del benchmark de exportación', @host);
+SET @block = LAST_INSERT_ID();
+
+INSERT INTO question (statement, correct_option_index, topic, block_id)
+WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n + 1 < $QUESTIONS)
+SELECT CONCAT('Pregunta de prueba, número ', n), n % 4, NULL, @block FROM seq;
+
+INSERT INTO game_room (pin, status, current_question_index, block_id, host_id, time_limit, scoring_curve, max_points, streak_bonus)
+VALUES ('$PIN', 'FINISHED', $QUESTIONS - 1, @block, @host, 20, 'CLASSIC', 1000, 100);
+SET @room = LAST_INSERT_ID();
+
+INSERT INTO room_question (game_room_id, question_id, order_index)
+SELECT @room, q.id, ROW_NUMBER() OVER (ORDER BY q.id) - 1 FROM question q WHERE q.block_id = @block;
+
+INSERT INTO player (nickname, score, current_question_index, game_room_id)
+WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n + 1 < $PLAYERS)
+SELECT CONCAT('Jugador "', n, '"'), 0, 0, @room FROM seq;
+
+INSERT INTO answer (player_id, room_question_id, selected_option, correct, points, response_time_ms)
+SELECT p.id, rq.id, (p.id + rq.id) % 4, (p.id + rq.id) % 4 = 0, IF((p.id + rq.id) % 4 = 0, 750, 0), (p.id * 7919 + rq.id) % 20000
+FROM player p JOIN room_question rq ON rq.game_room_id = @room WHERE p.game_room_id = @room;
+SQL
+
+curl -s -o /dev/null -c "$COOKIES" -d "username=$QL_USER&password=$QL_PASS" "$QL_URL/auth/login"
+
+for format in csv jsonl; do
+    echo "== Exportando en $format"
+    curl -s -b "$COOKIES" -o /dev/null \
+         -w "HTTP %{http_code}  tiempo %{time_total}s  primer byte %{time_starttransfer}s  %{size_download} bytes\n" \
+         "$QL_URL/game/export/$PIN?format=$format"
+    if [ -n "${APP_PID:-}" ]; then
+        grep -E "VmHWM|VmRSS" "/proc/$APP_PID/status"
+    fi
+done
+
+if [ "${KEEP:-0}" != "1" ]; then
+    echo "== Borrando datos del benchmark"
+    $MYSQL <<SQL
+SET @room = (SELECT id FROM game_room WHERE pin = '$PIN');
+SET @block = (SELECT block_id FROM game_room WHERE id = @room);
+DELETE a FROM answer a JOIN room_question rq ON rq.id = a.room_question_id WHERE rq.game_room_id = @room;
+DELETE FROM room_question WHERE game_room_id = @room;
+DELETE FROM player WHERE game_room_id = @room;
+DELETE FROM game_room WHERE id = @room;
+DELETE FROM question WHERE block_id = @block;
+DELETE FROM block WHERE id = @block;
+SQL
+fi
@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Principal + réplica MySQL locales (Docker) para probar el enrutado de lecturas.
+#
+# Levanta quizlive-primary en PRIMARY_PORT y quizlive-replica en REPLICA_PORT con replicación por GTID
+# y deja impresas las propiedades para arrancar la aplicación contra las dos. Con "stop" las borra.
+#   ./scripts/replica-local.sh            arranca (o rearranca) las dos instancias
+#   ./scripts/replica-local.sh lag 10     para la réplica 10 s: /ops/datasource pasa a la principal y vuelve
+#   ./scripts/replica-local.sh stop
+#
+# Variables: PRIMARY_PORT (3306), REPLICA_PORT (3307), MYSQL_IMAGE (mysql:8.0), DB_PASSWORD (12345).
+set -euo pipefail
+
+PRIMARY_PORT=${PRIMARY_PORT:-3306}
+REPLICA_PORT=${REPLICA_PORT:-3307}
+MYSQL_IMAGE=${MYSQL_IMAGE:-mysql:8.0}
+DB_PASSWORD=${DB_PASSWORD:-12345}
+DB=quiz_live_db
+
+mysql_in() {
+    docker exec -i "$1" mysql -uroot -p"$DB_PASSWORD" --silent "${@:2}" 2>/dev/null
+}
+
+wait_ready() {
+    for _ in $(seq 1 60); do
+        if mysql_in "$1" -e "select 1" >/dev/null; then return; fi
+        sleep 1
+    done
+    echo "$1 no arranca" >&2
+    exit 1
+}
+
+case "${1:-start}" in
+    stop)
+        docker rm -f quizlive-primary quizlive-replica >/dev/null 2>&1 || true
+        exit 0
+        ;;
+    lag)
+        # Detiene el hilo SQL de la réplica: Seconds_Behind_Source pasa a NULL y las lecturas van a la principal
+        mysql_in quizlive-replica -e "STOP REPLICA SQL_THREAD"
+        sleep "${2:-10}"
+        mysql_in quizlive-replica -e "START REPLICA SQL_THREAD"
+        exit 0
+        ;;
+esac
+
+docker rm -f quizlive-primary quizlive-replica >/dev/null 2>&1 || true
+common="--gtid-mode=ON --enforce-gtid-consistency=ON --log-bin=mysql-bin --binlog-format=ROW"
+docker run -d --name quizlive-primary -p "$PRIMARY_PORT:3306" \
+    -e MYSQL_ROOT_PASSWORD="$DB_PASSWORD" -e MYSQL_DATABASE="$DB" \
+    "$MYSQL_IMAGE" --server-id=1 $common >/dev/null
+docker run -d --name quizlive-replica -p "$REPLICA_PORT:3306" --link quizlive-primary \
+    -e MYSQL_ROOT_PASSWORD="$DB_PASSWORD" \
+    "$MYSQL_IMAGE" --server-id=2 --read-only=ON $common >/dev/null
+wait_ready quizlive-primary
+wait_ready quizlive-replica
+
+mysql_in quizlive-primary -e "CREATE USER IF NOT EXISTS 'repl'@'%' IDENTIFIED WITH mysql_native_password BY 'repl';
+    GRANT REPLICATION SLAVE ON *.* TO 'repl'@'%';"
+mysql_in quizlive-replica -e "CHANGE REPLICATION SOURCE TO SOURCE_HOST='quizlive-primary', SOURCE_USER='repl',
+    SOURCE_PASSWORD='repl', SOURCE_AUTO_POSITION=1; START REPLICA;"
+
+echo "Principal en $PRIMARY_PORT, réplica en $REPLICA_PORT. Arrancar con:"
+echo "  -Dspring.datasource.url=jdbc:mysql://localhost:$PRIMARY_PORT/$DB?serverTimezone=UTC&rewriteBatchedStatements=true"
+echo "  -Dquizlive.datasource.replica.url=jdbc:mysql://localhost:$REPLICA_PORT/$DB?serverTimezone=UTC"
@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+# Benchmark de arranque: tiempo hasta la primera petición servida y memoria residente al arrancar.
+#
+# Arranca la aplicación RUNS veces en cada modo, mide desde el lanzamiento de la JVM hasta que
+# GET /login responde 200 y en ese momento lee VmRSS/VmHWM de /proc. Da la mediana por modo.
+#   jar    java -jar del jar de Spring Boot, configuración por defecto (ddl update, sin perfil)
+#   prod   el mismo jar con el perfil prod (validate, lazy init, plantillas en caché)
+#   fast   target/fast-startup: perfil prod + Spring AOT + archivo CDS (mvn -Pfast-startup package)
+#
+# Uso:
+#   mvn -Pfast-startup package && ./scripts/startup-benchmark.sh
+#
+# Variables: RUNS (5), PORT (18080), MODES ("jar prod fast"), JAVA_OPTS (p.ej. "-Xmx512m"),
+#            TIMEOUT segundos por arranque (120). La BD es la de application.properties; los modos prod y
+#            fast validan el esquema, así que tiene que estar creado (src/main/resources/schema).
+set -euo pipefail
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+MODES=${MODES:-jar prod fast}
+JAVA_OPTS=${JAVA_OPTS:-}
+TIMEOUT=${TIMEOUT:-120}
+JAR=$(ls target/quiz-live-*.jar | grep -v original | head -n 1)
+FAST_DIR=target/fast-startup
+HANDOFF=$(mktemp -d)
+trap 'rm -rf "$HANDOFF"' EXIT
+
+# Cada arranque con su directorio de handoff vacío: si no, el siguiente recogería las salas del anterior
+command_for() {
+    local common="$JAVA_OPTS -Dserver.port=$PORT -Dquizlive.cluster.handoff-dir=$HANDOFF"
+    case "$1" in
+        jar)  echo "java $common -jar $JAR" ;;
+        prod) echo "java $common -Dspring.profiles.active=prod -jar $JAR" ;;
+        fast) echo "java $common -XX:SharedArchiveFile=$FAST_DIR/quiz-live.jsa -Dspring.aot.enabled=true -Dspring.profiles.active=prod -jar $FAST_DIR/quiz-live.jar" ;;
+    esac
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+now_ms() {
+    date +%s%3N
+}
+
+for mode in $MODES; do
+    if [ "$mode" = fast ] && [ ! -f "$FAST_DIR/quiz-live.jsa" ]; then
+        echo "== $mode: falta $FAST_DIR/quiz-live.jsa (mvn -Pfast-startup package), se omite"
+        continue
+    fi
+    times=(); rss=(); hwm=()
+    for run in $(seq 1 "$RUNS"); do
+        rm -rf "${HANDOFF:?}"/*
+        start=$(now_ms)
+        $(command_for "$mode") > "target/startup-$mode-$run.log" 2>&1 &
+        pid=$!
+        until curl -s -o /dev/null -f "http://localhost:$PORT/login"; do
+            if ! kill -0 "$pid" 2>/dev/null || [ $(( $(now_ms) - start )) -gt $(( TIMEOUT * 1000 )) ]; then
+                echo "== $mode: el arranque $run ha fallado (ver target/startup-$mode-$run.log)"
+                kill "$pid" 2>/dev/null || true
+                exit 1
+            fi
+            sleep 0.05
+        done
+        elapsed=$(( $(now_ms) - start ))
+        times+=("$elapsed")
+        rss+=("$(awk '/VmRSS/ { print int($2 / 1024) }' "/proc/$pid/status")")
+        hwm+=("$(awk '/VmHWM/ { print int($2 / 1024) }' "/proc/$pid/status")")
+        kill "$pid"
+        wait "$pid" 2>/dev/null || true
+        echo "   $mode #$run: ${elapsed} ms, RSS ${rss[-1]} MB"
+    done
+    printf "== %-5s primera petición %6s ms   RSS %5s MB   pico RSS %5s MB   (mediana de %s)\n" "$mode" \
+        "$(printf '%s\n' "${times[@]}" | median)" \
+        "$(printf '%s\n' "${rss[@]}" | median)" \
+        "$(printf '%s\n' "${hwm[@]}" | median)" "$RUNS"
+done
@@ -0,0 +1,18 @@
+// Variantes precomprimidas (.gz y .br) junto a cada fichero: Spring las sirve según Accept-Encoding
+// sin comprimir en cada petición (ver StaticResourcesConfig).
+import { readFileSync, writeFileSync } from "node:fs";
+import { brotliCompressSync, constants, gzipSync } from "node:zlib";
+
+for (const file of process.argv.slice(2)) {
+    const data = readFileSync(file);
+    const gz = gzipSync(data, { level: 9 });
+    const br = brotliCompressSync(data, {
+        params: {
+            [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+            [constants.BROTLI_PARAM_SIZE_HINT]: data.length,
+        },
+    });
+    writeFileSync(file + ".gz", gz);
+    writeFileSync(file + ".br", br);
+    console.log(`${file}: ${data.length} B, gzip ${gz.length} B, brotli ${br.length} B`);
+}
@@ -0,0 +1,41 @@
+package com.quizlive.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class ClusterConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private PinRoutingInterceptor pinRoutingInterceptor;
+
+    // Transporte del estado de las salas: "file" (varias JVMs) o "in-process" (misma JVM).
+    // El de fichero solo si se ha pedido: con cluster (quizlive.cluster.nodes) o con un handoff-dir explícito.
+    // Un nodo suelto sin configurar nada no escribe ni vigila ningún directorio.
+    @Bean
+    public RoomStateTransport roomStateTransport(@Value("${quizlive.cluster.transport:file}") String transport,
+                                                 @Value("${quizlive.cluster.handoff-dir:}") String handoffDir,
+                                                 ClusterRouter clusterRouter) {
+        if ("in-process".equals(transport)) {
+            return new InProcessRoomStateTransport();
+        }
+        if (!handoffDir.isBlank()) {
+            return new FileRoomStateTransport(Paths.get(handoffDir));
+        }
+        if (clusterRouter.isEnabled()) {
+            return new FileRoomStateTransport(Paths.get(System.getProperty("user.dir"), "data", "handoff"));
+        }
+        return new NoRoomStateTransport();
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(pinRoutingInterceptor).addPathPatterns("/play/**", "/game/**");
+    }
+}
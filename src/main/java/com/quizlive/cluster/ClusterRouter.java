@@ -0,0 +1,81 @@
+package com.quizlive.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reparto de salas entre nodos por PIN (hashing consistente).
+ * Cada nodo se coloca en el anillo con varios nodos virtuales; el dueño de un PIN
+ * es el primer nodo del anillo a partir del hash del PIN.
+ * Sin nodos configurados el cluster está desactivado y todas las salas son locales.
+ */
+@Component
+public class ClusterRouter {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    // Anillo: hash -> NodeID (URL base del nodo, ej: http://localhost:8081)
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes = new ArrayList<>();
+    private final String selfId;
+
+    public ClusterRouter(@Value("${quizlive.cluster.nodes:}") String nodeList,
+                         @Value("${quizlive.cluster.self:local}") String selfId) {
+        this.selfId = selfId;
+        for (String node : nodeList.split(",")) {
+            String trimmed = node.trim();
+            if (trimmed.isEmpty()) continue;
+            nodes.add(trimmed);
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(trimmed + "#" + i), trimmed);
+            }
+        }
+        if (isEnabled() && !nodes.contains(selfId)) {
+            throw new IllegalStateException("quizlive.cluster.self (" + selfId + ") no está en quizlive.cluster.nodes");
+        }
+    }
+
+    public boolean isEnabled() {
+        return !ring.isEmpty();
+    }
+
+    public String getSelfId() {
+        return selfId;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    // Nodo dueño de la sala con este PIN
+    public String ownerOf(String pin) {
+        if (!isEnabled()) return selfId;
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(pin));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public boolean isLocal(String pin) {
+        return selfId.equals(ownerOf(pin));
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
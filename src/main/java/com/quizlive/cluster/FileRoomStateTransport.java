@@ -0,0 +1,80 @@
+package com.quizlive.cluster;
+
+import com.quizlive.engine.RoomSnapshot;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transporte por fichero compartido: un fichero por nodo dentro de un directorio.
+ * Sirve para pasar las salas entre dos JVMs de la misma máquina (rolling restart).
+ */
+public class FileRoomStateTransport implements RoomStateTransport {
+
+    // Solo lo que lleva una RoomSnapshot: cualquier otra clase del fichero se rechaza antes de instanciarla
+    // (java.lang.Object es el tipo del array interno de ArrayList). Los arrays crecen con los jugadores del nodo.
+    static final ObjectInputFilter SNAPSHOT_FILTER = ObjectInputFilter.Config.createFilter(
+            "com.quizlive.engine.RoomSnapshot;com.quizlive.engine.ScoringPolicy;com.quizlive.model.ScoringCurve;"
+                    + "java.lang.Object;java.lang.Enum;java.lang.Number;java.lang.Long;java.lang.Integer;java.lang.String;"
+                    + "java.util.ArrayList;java.util.HashMap;java.util.Map$Entry;"
+                    + "maxdepth=10;maxarray=1000000;!*");
+
+    private final Path directory;
+
+    public FileRoomStateTransport(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public synchronized void send(String nodeId, List<RoomSnapshot> rooms) throws IOException {
+        Files.createDirectories(directory);
+        Path target = fileFor(nodeId);
+        List<RoomSnapshot> all = new ArrayList<>(rooms);
+        // Si la sucesora aún no ha recogido un traspaso anterior, no lo pisamos
+        if (Files.exists(target)) {
+            all.addAll(read(target));
+        }
+        // Escritura atómica: la sucesora nunca ve un fichero a medias
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeObject(all);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public List<RoomSnapshot> receive(String nodeId) throws IOException {
+        Path path = fileFor(nodeId);
+        if (!Files.exists(path)) return new ArrayList<>();
+
+        // Lo movemos antes de leer para que solo una instancia se quede con las salas
+        Path claimed = directory.resolve(path.getFileName() + ".claimed");
+        try {
+            Files.move(path, claimed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return new ArrayList<>(); // Otra instancia lo ha cogido antes
+        }
+        List<RoomSnapshot> rooms = read(claimed);
+        Files.deleteIfExists(claimed);
+        return rooms;
+    }
+
+    private Path fileFor(String nodeId) {
+        // El NodeID suele ser una URL: lo dejamos en un nombre de fichero válido
+        return directory.resolve("handoff-" + nodeId.replaceAll("[^A-Za-z0-9]", "_") + ".bin");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RoomSnapshot> read(Path path) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            in.setObjectInputFilter(SNAPSHOT_FILTER);
+            return (List<RoomSnapshot>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.quizlive.cluster;
+
+import com.quizlive.engine.RoomSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transporte en memoria: los buzones son estáticos, así que varios contextos
+ * Spring arrancados en la misma JVM (un "cluster" de pruebas) se ven entre sí.
+ */
+public class InProcessRoomStateTransport implements RoomStateTransport {
+
+    // Buzón por nodo (NodeID -> salas pendientes)
+    private static final ConcurrentHashMap<String, ConcurrentLinkedQueue<RoomSnapshot>> MAILBOXES = new ConcurrentHashMap<>();
+
+    @Override
+    public void send(String nodeId, List<RoomSnapshot> rooms) {
+        MAILBOXES.computeIfAbsent(nodeId, k -> new ConcurrentLinkedQueue<>()).addAll(rooms);
+    }
+
+    @Override
+    public List<RoomSnapshot> receive(String nodeId) {
+        List<RoomSnapshot> rooms = new ArrayList<>();
+        ConcurrentLinkedQueue<RoomSnapshot> mailbox = MAILBOXES.get(nodeId);
+        if (mailbox == null) return rooms;
+        RoomSnapshot snapshot;
+        while ((snapshot = mailbox.poll()) != null) {
+            rooms.add(snapshot);
+        }
+        return rooms;
+    }
+}
@@ -0,0 +1,27 @@
+package com.quizlive.cluster;
+
+import com.quizlive.engine.RoomSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sin handoff (un solo nodo sin directorio de traspaso configurado): no se envía ni se recoge nada.
+ * Las salas que queden vivas al apagar se recuperan desde la BD cuando alguien vuelve a entrar.
+ */
+public class NoRoomStateTransport implements RoomStateTransport {
+
+    @Override
+    public void send(String nodeId, List<RoomSnapshot> rooms) {
+    }
+
+    @Override
+    public List<RoomSnapshot> receive(String nodeId) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
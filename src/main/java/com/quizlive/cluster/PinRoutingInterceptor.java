@@ -0,0 +1,56 @@
+package com.quizlive.cluster;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Enruta cada petición con PIN al nodo dueño de la sala.
+ * Si la sala no vive en este nodo, se redirige al cliente con 307 (conserva
+ * método y cuerpo, así un POST /play/join o /play/answer llega intacto al dueño).
+ * A partir de ahí el navegador sigue hablando con el nodo correcto.
+ */
+@Component
+public class PinRoutingInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!clusterRouter.isEnabled()) return true;
+
+        String pin = extractPin(request);
+        if (pin == null || clusterRouter.isLocal(pin)) return true;
+
+        String owner = clusterRouter.ownerOf(pin);
+        String location = owner + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+        response.setHeader("Location", location);
+        System.out.println("[Cluster] [" + Thread.currentThread().getName() + "] PIN " + pin + " -> " + owner);
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String extractPin(HttpServletRequest request) {
+        Map<String, String> pathVars = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (pathVars != null && pathVars.containsKey("pin")) {
+            return pathVars.get("pin");
+        }
+        String pin = request.getParameter("pin");
+        if (pin != null) return pin;
+
+        // Token de jugador (pin.slot.playerId.firma): para enrutar basta el prefijo, la firma la comprueba el dueño
+        String token = pathVars != null && pathVars.containsKey("token") ? pathVars.get("token") : request.getParameter("token");
+        if (token != null && token.indexOf('.') > 0) {
+            return token.substring(0, token.indexOf('.'));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.quizlive.cluster;
+
+import com.quizlive.engine.RoomSnapshot;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Transporte del estado de las salas entre instancias del motor.
+ * Lo usa el drain & handoff: la instancia que se apaga envía sus salas y la
+ * siguiente encarnación del mismo nodo las recoge.
+ */
+public interface RoomStateTransport {
+
+    // Entregar las salas al nodo indicado
+    void send(String nodeId, List<RoomSnapshot> rooms) throws IOException;
+
+    // Recoger (y consumir) las salas pendientes para este nodo. Lista vacía si no hay nada.
+    List<RoomSnapshot> receive(String nodeId) throws IOException;
+
+    // false si no hay traspaso configurado: el motor ni lo consulta al arrancar ni escribe al apagar
+    default boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package com.quizlive.config;
+
+import com.quizlive.engine.AdmissionRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Convierte los rechazos del control de admisión en 429 (demasiado rápido) o 503 (nodo lleno),
+ * con Retry-After para que el cliente sepa cuándo reintentar.
+ */
+@ControllerAdvice
+public class AdmissionExceptionHandler {
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> handleRejection(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.valueOf(e.getRejection().getStatus()))
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRejection().getRetryAfterSeconds()))
+                .contentType(MediaType.parseMediaType("text/plain; charset=UTF-8"))
+                .body(e.getRejection().getMessage());
+    }
+}
@@ -32,8 +32,10 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // Rutas públicas (jugadores)
                 .requestMatchers("/play/**").permitAll()
-                .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
+                .requestMatchers("/css/**", "/js/**", "/images/**", "/media/**").permitAll()
                 .requestMatchers("/login", "/register", "/auth/**").permitAll()
+                // Sonda de readiness (balanceador / orquestador)
+                .requestMatchers("/ops/ready").permitAll()
                 // El resto requiere autenticación (panel de admin/anfitrión)
                 .anyRequest().authenticated()
             )
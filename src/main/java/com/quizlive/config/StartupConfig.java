@@ -0,0 +1,42 @@
+package com.quizlive.config;
+
+import com.quizlive.engine.QuizEngine;
+import com.quizlive.search.QuestionSearchIndex;
+import com.quizlive.service.ArchiveService;
+import com.quizlive.service.BlockDeletionService;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Arranque perezoso (spring.main.lazy-initialization en el perfil prod): todo se crea en la
+ * primera petición salvo lo que tiene que estar en marcha desde el principio.
+ */
+@Configuration
+public class StartupConfig {
+
+    // El motor programa el volcado periódico y recoge las salas del handoff al arrancar:
+    // si esperase a la primera petición, las salas traspasadas quedarían sin temporizador
+    @Bean
+    public static LazyInitializationExcludeFilter eagerEngine() {
+        return LazyInitializationExcludeFilter.forBeanTypes(QuizEngine.class);
+    }
+
+    // El buscador construye su índice al crearse: que empiece al arrancar y no en la primera búsqueda
+    @Bean
+    public static LazyInitializationExcludeFilter eagerSearchIndex() {
+        return LazyInitializationExcludeFilter.forBeanTypes(QuestionSearchIndex.class);
+    }
+
+    // El archivado se programa al crearse el servicio: perezoso, solo arrancaría cuando alguien abriese /ops/archive
+    @Bean
+    public static LazyInitializationExcludeFilter eagerArchive() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ArchiveService.class);
+    }
+
+    // Los borrados de bloques que quedaron a medias en un reinicio se retoman al arrancar, no en la primera visita a /blocks
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBlockDeletion() {
+        return LazyInitializationExcludeFilter.forBeanTypes(BlockDeletionService.class);
+    }
+}
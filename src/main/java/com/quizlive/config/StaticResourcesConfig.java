@@ -0,0 +1,37 @@
+package com.quizlive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hoja de estilos precompilada (/css/app.css, ver package.json).
+ *
+ * Las plantillas la piden con @{/css/app.css} y Thymeleaf la reescribe con el hash de su contenido
+ * (app-&lt;md5&gt;.css): al cambiar el CSS cambia la URL, así que el navegador puede guardarla un año
+ * sin volver a preguntar (immutable). Si el cliente acepta br/gzip se sirve el .br/.gz generado
+ * en el build en vez de comprimir en cada petición.
+ */
+@Configuration
+public class StaticResourcesConfig implements WebMvcConfigurer {
+
+    // Días de caché en el navegador de los recursos versionados
+    @Value("${quizlive.static.cache-days:365}")
+    private int cacheDays;
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/css/**")
+                .addResourceLocations("classpath:/static/css/")
+                .setCacheControl(CacheControl.maxAge(cacheDays, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+}
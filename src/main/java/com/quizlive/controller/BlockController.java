@@ -2,7 +2,9 @@ package com.quizlive.controller;
 
 import com.quizlive.model.Block;
 import com.quizlive.model.User;
+import com.quizlive.service.BlockDeletionService;
 import com.quizlive.service.BlockService;
+import com.quizlive.service.QuestionService;
 import com.quizlive.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -19,15 +21,38 @@ public class BlockController {
     @Autowired
     private UserService userService;
 
-    // Listar Mis Bloques
+    @Autowired
+    private BlockDeletionService blockDeletionService;
+
+    @Autowired
+    private QuestionService questionService;
+
+    // Listar Mis Bloques (por páginas: ?after=<id> sigue desde la última tarjeta de la anterior)
     @GetMapping
-    public String listBlocks(Model model) {
+    public String listBlocks(@RequestParam(required = false) Long after, Model model) {
         User currentUser = userService.getCurrentUser();
-        model.addAttribute("blocks", blockService.getBlocksByUser(currentUser));
+        model.addAttribute("page", blockService.getCatalogPage(currentUser, after));
+        model.addAttribute("firstPage", after == null);
+        model.addAttribute("deletingBlocks", after == null ? blockService.getDeletingBlocks(currentUser) : java.util.List.of());
+        model.addAttribute("deletionProgress", blockDeletionService.getProgress());
         model.addAttribute("currentUser", currentUser);
         return "blocks/list";
     }
 
+    // Buscar preguntas en todos mis bloques (enunciado y opciones, sin tildes)
+    @GetMapping("/search")
+    public String searchQuestions(@RequestParam(defaultValue = "") String q, Model model) {
+        User currentUser = userService.getCurrentUser();
+        java.util.List<com.quizlive.dto.QuestionHit> hits = questionService.searchQuestions(currentUser, q);
+        java.util.Set<Long> blockIds = new java.util.HashSet<>();
+        for (com.quizlive.dto.QuestionHit hit : hits) blockIds.add(hit.getBlockId());
+        model.addAttribute("q", q);
+        model.addAttribute("hits", hits);
+        model.addAttribute("blockNames", blockService.getBlockNames(blockIds));
+        model.addAttribute("currentUser", currentUser);
+        return "blocks/search";
+    }
+
     // Formulario Crear Bloque
     @GetMapping("/new")
     public String showCreateForm(Model model) {
@@ -58,6 +83,20 @@ public class BlockController {
         return "redirect:/blocks";
     }
 
+    // Duplicar Bloque (con sus preguntas) y abrir la copia para editarla
+    @GetMapping("/clone/{id}")
+    public String cloneBlock(@PathVariable Long id) {
+        User currentUser = userService.getCurrentUser();
+        Block block = blockService.getBlockById(id);
+
+        // Validar que el bloque pertenezca al usuario actual
+        if (block == null || block.getOwner() == null || !block.getOwner().getId().equals(currentUser.getId())) {
+            return "redirect:/blocks";
+        }
+        Long cloneId = blockService.cloneBlock(id, currentUser);
+        return cloneId != null ? "redirect:/blocks/edit/" + cloneId : "redirect:/blocks";
+    }
+
     // Borrar Bloque
     @GetMapping("/delete/{id}")
     public String deleteBlock(@PathVariable Long id) {
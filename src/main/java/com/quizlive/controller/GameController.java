@@ -1,32 +1,79 @@
 package com.quizlive.controller;
 
+import com.quizlive.dto.GameConfigForm;
+import com.quizlive.dto.GameResults;
+import com.quizlive.dto.PlayerView;
+import com.quizlive.engine.AnswerOutcome;
+import com.quizlive.engine.AnswerTrace;
+import com.quizlive.engine.LobbyRoster;
+import com.quizlive.engine.RoomStateMachine;
+import com.quizlive.engine.RoomStateView;
+import com.quizlive.engine.RosterDelta;
+import com.quizlive.model.Block;
 import com.quizlive.model.GameRoom;
+import com.quizlive.model.RoomQuestion;
+import com.quizlive.model.RoomStatus;
 import com.quizlive.model.User;
+import com.quizlive.service.BlockService;
 import com.quizlive.service.GameService;
+import com.quizlive.service.PlayerTokenService;
+import com.quizlive.service.ResultsExportService;
 import com.quizlive.service.UserService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Controller
 public class GameController {
 
+    // Cookie de dispositivo para el límite de entradas por navegador (un id aleatorio, sin datos del jugador)
+    private static final String DEVICE_COOKIE = "quizlive_device";
+    private static final Pattern DEVICE_ID = Pattern.compile("[0-9a-f]{32}");
+
+    @Autowired
+    private BlockService blockService;
+
     @Autowired
-    private com.quizlive.service.BlockService blockService;
+    private GameService gameService;
 
     @Autowired
-    private com.quizlive.service.GameService gameService;
+    private UserService userService;
 
     @Autowired
-    private com.quizlive.service.UserService userService;
+    private ResultsExportService resultsExportService;
+
+    // Tiempo máximo de una descarga de resultados (streaming)
+    @Value("${quizlive.export.timeout-minutes:30}")
+    private long exportTimeoutMinutes;
 
     // PASO 1: Mostrar formulario de Configuración
     @GetMapping("/game/config/{blockId}")
     public String showConfigForm(@PathVariable Long blockId, Model model) {
-        com.quizlive.model.Block block = blockService.getBlockById(blockId);
+        Block block = blockService.getBlockById(blockId);
         if(block == null) return "redirect:/blocks";
         
         // Verificar que el bloque pertenece al usuario actual
@@ -36,7 +83,7 @@ public class GameController {
         }
         
         // Objeto DTO para el formulario
-        com.quizlive.dto.GameConfigForm form = new com.quizlive.dto.GameConfigForm();
+        GameConfigForm form = new GameConfigForm();
         form.setBlockId(blockId);
         form.setTimeLimit(20); // Valor por defecto
         
@@ -48,9 +95,10 @@ public class GameController {
 
     // PASO 2: Recibir Configuración -> Crear Sala
     @PostMapping("/game/create")
-    public String createGame(@ModelAttribute com.quizlive.dto.GameConfigForm form) {
+    public String createGame(@ModelAttribute GameConfigForm form) {
         User host = userService.getCurrentUser();
         GameRoom room = gameService.createGameWithConfig(form, host);
+        if(room == null) return "redirect:/blocks"; // Bloque inexistente, sin preguntas o servidor reiniciándose
         return "redirect:/game/lobby/" + room.getPin();
     }
     
@@ -82,18 +130,28 @@ public class GameController {
         if(roomOpt.isPresent()) {
             GameRoom room = roomOpt.get();
             
-            if("FINISHED".equals(room.getStatus())) {
+            RoomStatus status = gameService.getRoomStatus(room);
+            if(status == RoomStatus.FINISHED) {
                 return "redirect:/game/ranking/" + pin;
             }
-            if(!room.getStatus().equals("PLAYING")) {
+            if(status != RoomStatus.PLAYING) {
                  return "redirect:/game/lobby/" + pin; 
             }
+
+            // A su ritmo: no hay pregunta común, el host ve el progreso de la clase
+            if(gameService.isSelfPaced(pin)) {
+                model.addAttribute("room", room);
+                model.addAttribute("totalQuestions", gameService.getTotalQuestions(pin));
+                return "host/progress";
+            }
             
             // Obtener pregunta actual desde RoomQuestions
-            com.quizlive.model.RoomQuestion currentRQ = gameService.getCurrentRoomQuestion(room);
+            RoomQuestion currentRQ = gameService.getCurrentRoomQuestion(room);
             if(currentRQ != null) {
                  model.addAttribute("room", room);
                  model.addAttribute("currentQuestion", currentRQ.getQuestion()); // Pasamos la Question dentro del RQ
+                 model.addAttribute("questionIndex", gameService.getCurrentQuestionIndex(room)); // Del motor (la BD va con retraso)
+                 model.addAttribute("totalQuestions", gameService.getTotalQuestionsForRoom(room));
                  return "host/game";
             } else {
                 return "redirect:/game/ranking/" + pin; 
@@ -106,8 +164,9 @@ public class GameController {
     
     // Avanzar a la siguiente pregunta
     @PostMapping("/game/next")
-    public String nextQuestion(@RequestParam String pin) {
-        boolean hasMore = gameService.nextQuestion(pin);
+    public String nextQuestion(@RequestParam String pin, @RequestParam(required = false) Integer questionIndex) {
+        // questionIndex: pregunta que estaba viendo el host (evita saltos por doble click)
+        boolean hasMore = gameService.nextQuestion(pin, questionIndex != null ? questionIndex : -1);
         if(hasMore) {
             return "redirect:/game/play/host/" + pin;
         } else {
@@ -115,129 +174,323 @@ public class GameController {
         }
     }
     
+    // Progreso en vivo de una partida a su ritmo (% completado, terminados, alumnos por pregunta)
+    @GetMapping("/game/api/progress/{pin}")
+    public ResponseEntity<Map<String, Object>> getProgress(@PathVariable String pin) {
+        Map<String, Object> progress = gameService.getSelfPacedProgress(pin);
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+
+    // Terminar una partida a su ritmo
+    @PostMapping("/game/finish")
+    public String finishGame(@RequestParam String pin) {
+        gameService.finishGame(pin);
+        return "redirect:/game/ranking/" + pin;
+    }
+
     // Pantalla Ranking Final
     @GetMapping("/game/ranking/{pin}")
     public String showRanking(@PathVariable String pin, Model model) {
         Optional<GameRoom> roomOpt = gameService.getRoomByPin(pin);
         if(roomOpt.isPresent()) {
+            // Resultados materializados al terminar: no se cargan ni se ordenan los jugadores en cada vista
+            GameResults results = gameService.getResults(pin);
+            // Aún en juego: ranking provisional (no se redirige al juego, que puede volver aquí sin pregunta actual)
+            boolean inProgress = results == null;
+            if(inProgress) {
+                results = gameService.getLiveResults(pin);
+                if(results == null) return "redirect:/blocks";
+            }
+            model.addAttribute("inProgress", inProgress);
             model.addAttribute("room", roomOpt.get());
-            model.addAttribute("players", gameService.getRanking(roomOpt.get()));
+            model.addAttribute("players", results.getRanking());
+            model.addAttribute("questions", results.getQuestions());
             return "host/ranking";
         }
         return "redirect:/blocks";
     }
 
+    // Exportar resultados (una fila por respuesta) en CSV o JSONL, en streaming
+    @GetMapping("/game/export/{pin}")
+    public ResponseEntity<StreamingResponseBody> exportResults(
+            @PathVariable String pin, @RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) {
+        Optional<GameRoom> roomOpt = gameService.getRoomByPin(pin);
+        if(roomOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        GameRoom room = roomOpt.get();
+
+        // Solo el profesor que creó la partida, y solo cuando ha terminado
+        User currentUser = userService.getCurrentUser();
+        if(room.getHost() == null || currentUser == null || !room.getHost().getId().equals(currentUser.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if(gameService.getRoomStatus(room) != RoomStatus.FINISHED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        ResultsExportService.Format exportFormat = "jsonl".equalsIgnoreCase(format)
+                ? ResultsExportService.Format.JSONL
+                : ResultsExportService.Format.CSV;
+        Long gameRoomId = room.getId();
+        boolean archived = room.isArchived();
+        String fileName = "resultados-" + pin + (exportFormat == ResultsExportService.Format.CSV ? ".csv" : ".jsonl");
+
+        // Se escribe en un hilo async de MVC mientras se leen las filas del cursor
+        StreamingResponseBody body =
+                out -> resultsExportService.writeAnswers(gameRoomId, archived, exportFormat, out);
+
+        // Plazo propio de esta descarga (el global de spring.mvc.async es corto): se fija justo antes de startAsync
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(exportTimeoutMinutes);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor("exportTimeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if(webRequest instanceof AsyncWebRequest) {
+                            ((AsyncWebRequest) webRequest).setTimeout(timeoutMillis);
+                        }
+                    }
+                });
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(exportFormat == ResultsExportService.Format.CSV
+                        ? MediaType.parseMediaType("text/csv; charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson; charset=UTF-8"))
+                .body(body);
+    }
+
     // --- ZONA JUGADOR ---
 
     // 1. Pantalla Login (Meter PIN)
+    // Deja al navegador su cookie de dispositivo: los intentos de entrada se limitan por navegador,
+    // no por IP (una clase entera sale por la misma IP del NAT del centro)
     @GetMapping("/play")
-    public String showPlayerLogin() {
+    public String showPlayerLogin(HttpServletRequest request, HttpServletResponse response) {
+        joinClientKey(request, response);
         return "player/login";
     }
 
     // 2. Procesar Login
     @PostMapping("/play/join")
-    public String joinGame(@RequestParam String pin, @RequestParam String nickname,  Model model) {
-        com.quizlive.model.Player player = gameService.joinGame(pin, nickname);
-        if (player != null) {
-            // Si el login es correcto, enviamos al alumno a la sala de espera
-            return "redirect:/play/wait/" + player.getId();
+    public String joinGame(@RequestParam String pin, @RequestParam String nickname,  Model model,
+                           HttpServletRequest request, HttpServletResponse response) {
+        String token = gameService.joinGame(pin, nickname, joinClientKey(request, response));
+        if (token != null) {
+            // Si el login es correcto, enviamos al alumno a la sala de espera con su token firmado
+            return "redirect:/play/wait/" + token;
         }
         // Si falla (pin mal o sala cerrada), volvemos al login con error
         return "redirect:/play?error=true";
     }
 
+    // Clave del límite de entradas: la cookie de dispositivo si la trae; si no, la IP (detrás de un proxy
+    // de confianza es la del cliente, ver server.forward-headers-strategy) y se le deja cookie para la próxima.
+    // Un script que no guarda cookies cae en el bucket de su IP; uno que pide cookie nueva cada vez, en el de la sala.
+    private static String joinClientKey(HttpServletRequest request, HttpServletResponse response) {
+        Cookie[] cookies = request.getCookies();
+        if(cookies != null) {
+            for(Cookie cookie : cookies) {
+                if(DEVICE_COOKIE.equals(cookie.getName()) && DEVICE_ID.matcher(cookie.getValue()).matches()) {
+                    return "device:" + cookie.getValue();
+                }
+            }
+        }
+        response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie
+                .from(DEVICE_COOKIE, UUID.randomUUID().toString().replace("-", ""))
+                .path("/play").maxAge(Duration.ofDays(365)).httpOnly(true).sameSite("Lax").build().toString());
+        return "ip:" + request.getRemoteAddr();
+    }
+
     // 3. Pantalla de Espera / Juego del Alumno
-    @GetMapping("/play/wait/{playerId}")
-    public String showWaitingScreen(@PathVariable Long playerId, Model model) {
-        com.quizlive.model.Player player = gameService.getPlayerById(playerId);
+    // El token (pin.slot.playerId.firma) identifica al jugador sin leer la BD
+    @GetMapping("/play/wait/{token}")
+    public String showWaitingScreen(@PathVariable String token, Model model) {
+        PlayerTokenService.PlayerToken player = gameService.verifyPlayerToken(token);
         if(player == null) return "redirect:/play";
         
-        GameRoom room = player.getGameRoom();
+        String pin = player.getPin();
+        // Epoch leído antes que el estado: si la partida empieza justo entre medias, el long-poll responde al momento
+        long epoch = gameService.getEngineEpoch(pin);
+        RoomStatus status = gameService.getRoomStatus(pin);
         
-        if("PLAYING".equals(room.getStatus())) {
+        if(status == RoomStatus.PLAYING) {
             // Si ya están jugando, ¡a los botones!
-            return "redirect:/play/game/" + playerId;
+            return "redirect:/play/game/" + token;
         }
-        if("FINISHED".equals(room.getStatus())) {
+        if(status == RoomStatus.FINISHED) {
             // Si acabó, mostrar pantalla final
-             model.addAttribute("player", player);
-             model.addAttribute("position", gameService.getPlayerPosition(player));
-             model.addAttribute("totalPlayers", gameService.getTotalPlayersInRoom(player));
-             return "player/finished";
+            return showFinished(player, model);
         }
 
+        PlayerView view = gameService.getPlayerView(player);
+        if(view == null) return "redirect:/play";
+
         // Si sigue en LOBBY, mostrar espera
-        model.addAttribute("playerId", playerId);
-        model.addAttribute("player", player);
+        model.addAttribute("token", token);
+        model.addAttribute("playerId", player.getPlayerId());
+        model.addAttribute("player", view);
+        model.addAttribute("pin", pin);
+        model.addAttribute("epoch", epoch);
         return "player/wait";
     }
     
     // API para actualizar la lista de jugadores en el lobby sin recargar (AJAX)
+    // Incremental: solo los jugadores nuevos desde la versión "since" del cliente.
+    // ETag = versión del roster; si no ha cambiado, 304 sin cuerpo (ni BD ni serialización).
     @GetMapping("/game/api/lobby/{pin}/players")
-    @ResponseBody
-    public java.util.List<String> getLobbyPlayers(@PathVariable String pin) {
-        Optional<GameRoom> roomOpt = gameService.getRoomByPin(pin);
-        if(roomOpt.isPresent()) {
-            return roomOpt.get().getPlayers().stream()
-                    .map(com.quizlive.model.Player::getNickname)
-                    .collect(java.util.stream.Collectors.toList());
+    public ResponseEntity<RosterDelta> getLobbyPlayers(
+            @PathVariable String pin, @RequestParam(defaultValue = "0") int since,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        LobbyRoster roster = gameService.getLobbyRoster(pin);
+        if(roster == null) {
+            return ResponseEntity.notFound().build();
         }
-        return java.util.Collections.emptyList();
+
+        String etag = "\"" + pin + "-" + roster.getVersion() + "\"";
+        if(etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag).build();
+        }
+
+        RosterDelta delta = roster.since(since);
+        return ResponseEntity.ok()
+                .eTag("\"" + pin + "-" + delta.getVersion() + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(delta);
     }
     
+    // Long-poll del jugador: responde cuando la sala pasa a otro epoch (nueva pregunta o fin)
+    // o a los ~25s sin cambios. Mientras espera no ocupa hilo de servlet ni consulta la BD.
+    // Con token, como el resto de rutas del jugador: el PIN sale de él y los topes de esperas van por jugador
+    @GetMapping("/play/api/wait/{token}")
+    @ResponseBody
+    public DeferredResult<RoomStateView> waitForNextQuestion(
+            @PathVariable String token, @RequestParam long epoch) {
+        PlayerTokenService.PlayerToken player = gameService.verifyPlayerToken(token);
+        if(player == null) {
+            // Como una sala que ya no está: el cliente recarga y acaba en /play
+            DeferredResult<RoomStateView> rejected =
+                    new DeferredResult<>();
+            rejected.setResult(RoomStateView.of(RoomStateMachine.REJECTED));
+            return rejected;
+        }
+        return gameService.waitForStateChange(player, epoch);
+    }
+
     // 4. Pantalla de Juego (KAHOOT: muestra pregunta de la sala)
-    @GetMapping("/play/game/{playerId}")
-    public String showPlayerGame(@PathVariable Long playerId, Model model) {
-        com.quizlive.model.Player player = gameService.getPlayerById(playerId);
+    @GetMapping("/play/game/{token}")
+    public String showPlayerGame(@PathVariable String token, Model model) {
+        PlayerTokenService.PlayerToken player = gameService.verifyPlayerToken(token);
         if(player == null) return "redirect:/play";
         
-        GameRoom room = player.getGameRoom();
-        if(!"PLAYING".equals(room.getStatus())) {
-             return "redirect:/play/wait/" + playerId;
-        }
-        
+        String pin = player.getPin();
+        // Epoch antes de comprobar nada: así nunca se espera a una pregunta ya abierta
+        long epoch = gameService.getEngineEpoch(pin);
+        RoomStatus status = gameService.getRoomStatus(pin);
+
         // Verificar si el juego ha terminado
-        if("FINISHED".equals(room.getStatus())) {
-            model.addAttribute("player", player);
-            model.addAttribute("position", gameService.getPlayerPosition(player));
-            model.addAttribute("totalPlayers", gameService.getTotalPlayersInRoom(player));
-            return "player/finished";
+        if(status == RoomStatus.FINISHED) {
+            return showFinished(player, model);
+        }
+        if(status != RoomStatus.PLAYING) {
+             return "redirect:/play/wait/" + token;
+        }
+
+        // QUIZIZZ: cada alumno en su pregunta, con su propio plazo (todo desde memoria)
+        if(gameService.isSelfPaced(pin)) {
+            int index = gameService.openPlayerQuestion(player);
+            RoomQuestion ownRQ = index >= 0 ? gameService.getRoomQuestion(pin, index) : null;
+            if(ownRQ == null) {
+                return showFinished(player, model); // Ha respondido todas
+            }
+            model.addAttribute("player", gameService.getPlayerView(player));
+            model.addAttribute("token", token);
+            model.addAttribute("currentQuestion", ownRQ.getQuestion());
+            model.addAttribute("questionIndex", index);
+            model.addAttribute("questionNumber", index + 1);
+            model.addAttribute("totalQuestions", gameService.getTotalQuestions(pin));
+            model.addAttribute("timeLimit", gameService.getTimeLimit(pin));
+            model.addAttribute("timeLeft", gameService.getPlayerRemainingSeconds(player)); // Al recargar no vuelve a empezar
+            model.addAttribute("selfPaced", true);
+            model.addAttribute("pin", pin);
+            return "player/game";
         }
         
         // KAHOOT: Obtener la pregunta actual DE LA SALA (todos ven la misma)
-        com.quizlive.model.RoomQuestion currentRQ = gameService.getCurrentRoomQuestion(room);
+        RoomQuestion currentRQ = gameService.getCurrentRoomQuestion(pin);
         if(currentRQ == null) {
-            model.addAttribute("player", player);
-            model.addAttribute("position", gameService.getPlayerPosition(player));
-            model.addAttribute("totalPlayers", gameService.getTotalPlayersInRoom(player));
-            return "player/finished";
+            return showFinished(player, model);
         }
         
         // KAHOOT: Si el jugador ya respondió esta pregunta, mostrar pantalla de espera
-        if(gameService.hasPlayerAnsweredCurrentQuestion(player)) {
-            model.addAttribute("playerId", playerId);
-            model.addAttribute("isCorrect", gameService.wasPlayerAnswerCorrect(player));
+        if(gameService.hasAnswered(pin, player.getPlayerId())) {
+            model.addAttribute("token", token);
+            model.addAttribute("isCorrect", gameService.wasAnswerCorrect(pin, player.getPlayerId()));
+            model.addAttribute("pin", pin);
+            model.addAttribute("epoch", epoch);
             return "player/answered";
         }
         
-        int totalQuestions = gameService.getTotalQuestionsForRoom(room);
-        
-        model.addAttribute("player", player);
+        model.addAttribute("player", gameService.getPlayerView(player));
+        model.addAttribute("token", token);
         model.addAttribute("currentQuestion", currentRQ.getQuestion());
-        model.addAttribute("questionNumber", room.getCurrentQuestionIndex() + 1);
-        model.addAttribute("totalQuestions", totalQuestions);
-        model.addAttribute("timeLimit", room.getTimeLimit());
+        model.addAttribute("questionNumber", RoomStateView.of(gameService.getEngineState(pin)).getQuestionIndex() + 1);
+        model.addAttribute("totalQuestions", gameService.getTotalQuestions(pin));
+        model.addAttribute("timeLimit", gameService.getTimeLimit(pin));
+        model.addAttribute("pin", pin); // Enrutado por PIN en el cluster
         return "player/game"; 
     }
 
+    // Pantalla final del jugador (posición y puntos)
+    private String showFinished(PlayerTokenService.PlayerToken player, Model model) {
+        PlayerView view = gameService.getPlayerView(player);
+        if(view == null) return "redirect:/play";
+        model.addAttribute("player", view);
+        model.addAttribute("position", view.getPosition());
+        model.addAttribute("totalPlayers", view.getTotalPlayers());
+        return "player/finished";
+    }
+
     // 5. Recibir respuesta (KAHOOT: redirige a pantalla de espera)
+    // El jugador sale del token firmado: no se puede responder en nombre de otro cambiando un ID
     @PostMapping("/play/answer")
-    public String submitAnswer(@RequestParam Long playerId, @RequestParam int optionIndex, Model model) {
-        boolean isCorrect = gameService.submitAnswer(playerId, optionIndex);
-        // Pasar el playerId y resultado para la pantalla de espera
-        model.addAttribute("playerId", playerId);
-        model.addAttribute("isCorrect", isCorrect);
+    public String submitAnswer(@RequestParam String token, @RequestParam int optionIndex,
+                               @RequestParam(required = false) Integer questionIndex, Model model) {
+        // Traza de la respuesta: primera marca al llegar al controlador (ver /ops/latency)
+        AnswerTrace trace = AnswerTrace.start();
+        PlayerTokenService.PlayerToken player = gameService.verifyPlayerToken(token);
+        if(player == null) return "redirect:/play";
+
+        String pin = player.getPin();
+
+        // QUIZIZZ: corrige y avanza su cursor en memoria; la BD se actualiza por lotes
+        if(questionIndex != null && gameService.isSelfPaced(pin)) {
+            Boolean correct = gameService.submitSelfPacedAnswer(player, questionIndex, optionIndex);
+            if(correct == null) {
+                return "redirect:/play/game/" + token; // Doble envío o pregunta ya vencida: a su pregunta actual
+            }
+            model.addAttribute("token", token);
+            model.addAttribute("isCorrect", correct);
+            model.addAttribute("selfPaced", true);
+            return "player/answered";
+        }
+
+        // Para el long-poll: epoch leído ANTES de responder. Si el host avanza entre medias,
+        // el long-poll ve el cambio al momento en vez de esperar a la pregunta siguiente.
+        long epoch = gameService.getEngineEpoch(pin);
+        AnswerOutcome outcome = gameService.submitAnswer(pin, player.getPlayerId(), optionIndex, trace);
+        if(!outcome.isAccepted() && gameService.hasAnswered(pin, player.getPlayerId())) {
+            return "redirect:/play/game/" + token; // Doble envío: se ve la respuesta que sí contó
+        }
+        // Pasar el token y resultado para la pantalla de espera
+        // Rechazada (cerrada, repetida o fuera de plazo): no se dice que se haya registrado
+        model.addAttribute("token", token);
+        model.addAttribute("isCorrect", outcome.isCorrect());
+        model.addAttribute("rejected", !outcome.isAccepted());
+        model.addAttribute("pin", pin);
+        model.addAttribute("epoch", epoch);
         // KAHOOT: Redirigir a pantalla de "respuesta enviada, esperando al profe"
         return "player/answered";
     }
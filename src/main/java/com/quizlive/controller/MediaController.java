@@ -0,0 +1,142 @@
+package com.quizlive.controller;
+
+import com.quizlive.service.QuestionMediaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imágenes de las preguntas (/media/&lt;hash&gt;.png), públicas como /css: el nombre es el hash del contenido.
+ *
+ * Con ETag fuerte, caché inmutable de un año y rangos de bytes (un solo rango; si piden varios se
+ * devuelve entera). El contenido sale de la memoria si está en la caché del servicio; si no, con
+ * sendfile de Tomcat (del fichero al socket sin pasar por la JVM) o, si el conector no lo admite,
+ * con transferTo sobre la salida de la respuesta.
+ */
+@Controller
+public class MediaController {
+
+    // Atributos de petición con los que Tomcat (conector NIO) hace el sendfile al terminar la petición
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
+    @Autowired
+    private QuestionMediaService questionMediaService;
+
+    @GetMapping("/media/{name}")
+    public void media(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        QuestionMediaService.MediaFile file = questionMediaService.find(name);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String etag = file.getEtag();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long size = file.getSize();
+        long start = 0;
+        long end = size; // Exclusivo
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range con otro ETag (o con fecha): la copia del cliente no vale, se manda entera
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+            }
+        }
+        long length = end - start;
+        response.setContentType(file.getContentType());
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) return;
+
+        if (file.getBytes() != null) {
+            response.getOutputStream().write(file.getBytes(), (int) start, (int) length);
+            questionMediaService.countServed("memory", length);
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat envía el trozo del fichero cuando el método vuelve; aquí no se escribe nada
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            questionMediaService.countServed("sendfile", length);
+        } else {
+            try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = start;
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, out);
+                }
+            }
+            questionMediaService.countServed("stream", length);
+        }
+    }
+
+    // If-None-Match: "*" o una lista de ETags (los débiles, W/"...", cuentan igual en GET)
+    private static boolean etagMatches(String header, String etag) {
+        if (header == null) return false;
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) value = value.substring(2);
+            if (value.equals("*") || value.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rango "bytes=a-b", "bytes=a-" o "bytes=-n" como {inicio, fin exclusivo}.
+     * null si no se entiende o son varios (se manda entera); vacío si no se puede satisfacer (416).
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Los últimos n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) return new long[0];
+                return new long[] { Math.max(0, size - suffix), size };
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size : Math.min(Long.parseLong(last) + 1, size);
+            if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) return null;
+            if (start >= size) return new long[0];
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.quizlive.controller;
+
+import com.quizlive.datasource.ReplicaRoutingDataSource;
+import com.quizlive.diagnostics.QueryBudgetInterceptor;
+import com.quizlive.search.QuestionSearchIndex;
+import com.quizlive.engine.QuizEngine;
+import com.quizlive.service.ArchiveService;
+import com.quizlive.service.BlockDeletionService;
+import com.quizlive.service.QuestionMediaService;
+import com.quizlive.service.WarmUpRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Endpoints de operación del nodo (requieren sesión de profesor, salvo /ops/ready).
+ */
+@RestController
+@RequestMapping("/ops")
+public class OpsController {
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Autowired
+    private QueryBudgetInterceptor queryBudgetInterceptor;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private WarmUpRunner warmUpRunner;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private BlockDeletionService blockDeletionService;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionMediaService questionMediaService;
+
+    // Existe siempre; sin quizlive.datasource.replica.url sus estadísticas dicen DISABLED
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    // Sonda de readiness del balanceador: 503 hasta que termina el calentamiento (y durante el apagado)
+    @GetMapping("/ready")
+    public ResponseEntity<String> ready() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        return ResponseEntity.status(state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(state.name());
+    }
+
+    // Resultado del calentamiento: duración, rondas y latencias de la primera ronda frente a la última
+    @GetMapping("/warmup")
+    public Map<String, Object> warmup() {
+        return warmUpRunner.getReport();
+    }
+
+    // Salas/jugadores activos frente a sus topes, y contadores de rechazos por motivo
+    @GetMapping("/admission")
+    public Map<String, Object> admission() {
+        return quizEngine.getAdmissionStats();
+    }
+
+    // Latencias por etapa de las respuestas (http, lookup, queue, scoring, persist, total) en todo el nodo
+    @GetMapping("/latency")
+    public Map<String, Object> latency() {
+        return quizEngine.getLatencyStats();
+    }
+
+    // Las mismas latencias para una sala concreta
+    @GetMapping("/latency/{pin}")
+    public ResponseEntity<Map<String, Object>> roomLatency(@PathVariable String pin) {
+        Map<String, Object> stats = quizEngine.getLatencyStats(pin);
+        return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
+    }
+
+    // Consultas por ruta (media, máximo, entidades, tiempo JDBC) frente a su presupuesto
+    @GetMapping("/queries")
+    public Map<String, Object> queries() {
+        return queryBudgetInterceptor.stats();
+    }
+
+    // Réplica: si se usa, retraso y conexiones entregadas a cada pool
+    @GetMapping("/datasource")
+    public Map<String, Object> datasource() {
+        return replicaRoutingDataSource.stats();
+    }
+
+    // Última pasada del archivado: salas y filas movidas, y si quedaron salas para la siguiente
+    @GetMapping("/archive")
+    public Map<String, Object> archive() {
+        return archiveService.getLastRun();
+    }
+
+    // Pasada de archivado ahora, en este hilo (p.ej. para vaciar la cola tras cambiar after-days)
+    @PostMapping("/archive")
+    public Map<String, Object> runArchive() {
+        return archiveService.archiveFinishedRooms();
+    }
+
+    // Borrados de bloques en marcha en este nodo: fase, salas y filas borradas
+    @GetMapping("/deletions")
+    public Map<String, Object> deletions() {
+        return blockDeletionService.stats();
+    }
+
+    // Buscador de preguntas: estado del índice, tamaño y tiempo medio por búsqueda
+    @GetMapping("/search")
+    public Map<String, Object> search() {
+        return questionSearchIndex.stats();
+    }
+
+    // Reconstruye el índice desde la BD (p.ej. tras cambios hechos a mano en las tablas)
+    @PostMapping("/search/rebuild")
+    public Map<String, Object> rebuildSearch() {
+        questionSearchIndex.rebuild();
+        return questionSearchIndex.stats();
+    }
+
+    // Imágenes de preguntas: caché en memoria (aciertos, fallos, precargas) y bytes servidos por cada vía
+    @GetMapping("/media")
+    public Map<String, Object> media() {
+        return questionMediaService.stats();
+    }
+}
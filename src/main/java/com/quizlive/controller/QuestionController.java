@@ -1,13 +1,22 @@
 package com.quizlive.controller;
 
+import com.quizlive.model.Block;
 import com.quizlive.model.Question;
+import com.quizlive.model.User;
+import com.quizlive.service.BlockService;
+import com.quizlive.service.QuestionImportService;
+import com.quizlive.service.QuestionMediaService;
 import com.quizlive.service.QuestionService;
+import com.quizlive.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/questions")
@@ -16,6 +25,18 @@ public class QuestionController {
     @Autowired
     private QuestionService questionService;
 
+    @Autowired
+    private QuestionImportService questionImportService;
+
+    @Autowired
+    private QuestionMediaService questionMediaService;
+
+    @Autowired
+    private BlockService blockService;
+
+    @Autowired
+    private UserService userService;
+
     // Formulario Crear Pregunta para un Bloque específico
     @GetMapping("/new/{blockId}")
     public String showCreateForm(@PathVariable Long blockId, Model model) {
@@ -31,9 +52,28 @@ public class QuestionController {
 
     // Guardar Pregunta
     @PostMapping("/save")
-    public String saveQuestion(@ModelAttribute Question question, @RequestParam Long blockId) {
+    public String saveQuestion(@ModelAttribute Question question, @RequestParam Long blockId,
+                               @RequestParam(value = "mediaFile", required = false) MultipartFile mediaFile,
+                               @RequestParam(defaultValue = "false") boolean removeMedia, Model model) {
         System.out.println("Guardando Pregunta: " + question.getStatement());
         System.out.println("Opciones recibidas: " + (question.getOptions() != null ? question.getOptions().size() : "null"));
+
+        // Imagen: una nueva sustituye a la anterior; si no se sube ninguna se queda la que había
+        if (removeMedia) {
+            question.setMedia(null);
+        }
+        if (mediaFile != null && !mediaFile.isEmpty()) {
+            try {
+                question.setMedia(questionMediaService.store(mediaFile));
+            } catch (IllegalArgumentException | IOException e) {
+                if (e instanceof IOException) System.err.println("No se pudo guardar la imagen: " + e.getMessage());
+                // De vuelta al formulario con lo escrito
+                model.addAttribute("question", question);
+                model.addAttribute("blockId", blockId);
+                model.addAttribute("mediaError", e instanceof IOException ? "no se pudo guardar la imagen" : e.getMessage());
+                return "questions/form";
+            }
+        }
         
         questionService.saveQuestion(question, blockId);
         // Redirigimos a la edición del bloque para ver las preguntas
@@ -52,6 +92,40 @@ public class QuestionController {
         return "redirect:/blocks";
     }
 
+    // Importación masiva (CSV o JSON) a un bloque. Se procesa en segundo plano.
+    @PostMapping("/import/{blockId}")
+    public String importQuestions(@PathVariable Long blockId, @RequestParam("file") MultipartFile file) {
+        User currentUser = userService.getCurrentUser();
+        Block block = blockService.getBlockById(blockId);
+
+        // Validar que el bloque pertenezca al usuario actual
+        if (block == null || block.getOwner() == null || !block.getOwner().getId().equals(currentUser.getId())) {
+            return "redirect:/blocks";
+        }
+        if (file == null || file.isEmpty()) {
+            return "redirect:/blocks/edit/" + blockId;
+        }
+
+        try {
+            String importId = questionImportService.startImport(blockId, file);
+            return "redirect:/blocks/edit/" + blockId + "?importId=" + importId;
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el fichero de importación: " + e.getMessage());
+            return "redirect:/blocks/edit/" + blockId + "?importError=true";
+        }
+    }
+
+    // Progreso de una importación (JSON, lo consulta la página del bloque)
+    @GetMapping("/import/status/{importId}")
+    @ResponseBody
+    public Map<String, Object> importStatus(@PathVariable String importId) {
+        QuestionImportService.ImportProgress progress = questionImportService.getProgress(importId);
+        if (progress == null) {
+            return Map.of("state", "UNKNOWN");
+        }
+        return progress.toMap();
+    }
+
     // Borrar Pregunta
     @GetMapping("/delete/{id}")
     public String deleteQuestion(@PathVariable Long id, @RequestParam Long blockId) {
@@ -0,0 +1,77 @@
+package com.quizlive.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool principal (spring.datasource.*), pool de la réplica y el DataSource que los reparte.
+ *
+ * Los beans existen siempre y la réplica se decide al arrancar con quizlive.datasource.replica.url:
+ * el build AOT (perfil fast-startup) fija en el build qué configuraciones hay, y una condición sobre
+ * la url dejaría la réplica fuera (o dentro) para siempre. Sin url, el DataSource es el pool principal
+ * tal cual, el de la réplica no llega a abrir conexiones y el monitor no arranca.
+ */
+@Configuration
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Pool aparte (y más pequeño): las pantallas de informes no compiten con la escritura de respuestas.
+    // Hikari no abre conexiones hasta la primera getConnection: sin url no se usa nunca
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${quizlive.datasource.replica.url:}") String url,
+                                              @Value("${quizlive.datasource.replica.username:${spring.datasource.username}}") String username,
+                                              @Value("${quizlive.datasource.replica.password:${spring.datasource.password}}") String password,
+                                              @Value("${quizlive.datasource.replica.pool-size:5}") int poolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        // Que una réplica caída no bloquee la petición: se falla rápido y se lee de la principal
+        dataSource.setConnectionTimeout(1000);
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    // Sin réplica el monitor no tiene a quién preguntar: la da siempre por no usable
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource replicaDataSource,
+                                               @Value("${quizlive.datasource.replica.url:}") String url,
+                                               @Value("${quizlive.datasource.replica.max-lag-seconds:5}") long maxLagSeconds,
+                                               @Value("${quizlive.datasource.replica.check-interval-ms:2000}") long checkIntervalMillis) {
+        return new ReplicaLagMonitor(url.isEmpty() ? null : replicaDataSource, maxLagSeconds, checkIntervalMillis);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                                             ReplicaLagMonitor replicaLagMonitor) {
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+
+    // El que usan JPA, JdbcTemplate y las transacciones
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource,
+                                 @Value("${quizlive.datasource.replica.url:}") String url) {
+        return url.isEmpty() ? primaryDataSource : new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
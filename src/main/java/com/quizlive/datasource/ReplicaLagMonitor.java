@@ -0,0 +1,125 @@
+package com.quizlive.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comprueba cada poco el retraso de la réplica (SHOW REPLICA STATUS) y decide si las lecturas
+ * pueden ir a ella. Con más retraso del permitido, la replicación parada o la réplica sin
+ * responder, las lecturas vuelven a la principal hasta la siguiente comprobación buena.
+ *
+ * Una instancia que no es réplica (sin filas en SHOW REPLICA STATUS) se da por al día: así se
+ * puede probar el enrutado con dos MySQL locales independientes (ver scripts/replica-local.sh).
+ * Sin réplica configurada (replica null) no comprueba nada y todo va a la principal.
+ */
+public class ReplicaLagMonitor {
+
+    private final DataSource replica;
+    private final long maxLagSeconds;
+    private final long checkIntervalMillis;
+
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replica-lag");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Hasta la primera comprobación no se manda nada a la réplica
+    private volatile boolean usable = false;
+    private volatile long lagSeconds = -1;
+    private volatile String lastError;
+    private volatile long lastCheckMillis;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagSeconds, long checkIntervalMillis) {
+        this.replica = replica;
+        this.maxLagSeconds = maxLagSeconds;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    public boolean isEnabled() {
+        return replica != null;
+    }
+
+    public void start() {
+        if (!isEnabled()) return;
+        checker.scheduleWithFixedDelay(this::check, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        checker.shutdownNow();
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    // La réplica no ha dado conexión: fuera hasta la siguiente comprobación
+    public void markFailed(SQLException e) {
+        setUsable(false, "conexión: " + e.getMessage());
+    }
+
+    void check() {
+        lastCheckMillis = System.currentTimeMillis();
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            Long lag = readLag(statement);
+            lagSeconds = lag != null ? lag : -1;
+            if (lag == null) {
+                setUsable(false, "replicación parada (Seconds_Behind_Source = NULL)");
+            } else if (lag > maxLagSeconds) {
+                setUsable(false, "retraso " + lag + "s > " + maxLagSeconds + "s");
+            } else {
+                setUsable(true, null);
+            }
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            setUsable(false, e.getMessage());
+        }
+    }
+
+    // Segundos de retraso; 0 si no es una réplica; null si la replicación está parada
+    private Long readLag(Statement statement) throws SQLException {
+        ResultSet rs;
+        String column;
+        try {
+            rs = statement.executeQuery("SHOW REPLICA STATUS");
+            column = "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            // MySQL anterior a 8.0.22
+            rs = statement.executeQuery("SHOW SLAVE STATUS");
+            column = "Seconds_Behind_Master";
+        }
+        try (ResultSet status = rs) {
+            if (!status.next()) return 0L;
+            long lag = status.getLong(column);
+            return status.wasNull() ? null : lag;
+        }
+    }
+
+    private void setUsable(boolean nowUsable, String reason) {
+        boolean before = usable;
+        usable = nowUsable;
+        lastError = reason;
+        if (before != nowUsable) {
+            System.out.println("[DataSource] [" + Thread.currentThread().getName() + "] Lecturas -> "
+                    + (nowUsable ? "RÉPLICA" : "PRINCIPAL (" + reason + ")"));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaUsable", usable);
+        stats.put("lagSeconds", lagSeconds);
+        stats.put("maxLagSeconds", maxLagSeconds);
+        stats.put("lastCheckMillis", lastCheckMillis);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+}
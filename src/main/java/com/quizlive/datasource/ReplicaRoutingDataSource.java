@@ -0,0 +1,78 @@
+package com.quizlive.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reparte las conexiones entre la BD principal y la réplica.
+ *
+ * Las transacciones de solo lectura (@Transactional(readOnly = true) o un TransactionTemplate
+ * readOnly) van a la réplica mientras el monitor de retraso la dé por buena; todo lo demás
+ * (escrituras, lecturas sin transacción) va a la principal. Si la réplica no da conexión se usa
+ * la principal para esa petición y se avisa al monitor.
+ *
+ * Va envuelta en un LazyConnectionDataSourceProxy: la conexión real se pide en la primera
+ * sentencia, cuando el readOnly de la transacción ya está publicado.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    // Conexiones entregadas por destino (las de la réplica caída cuentan como fallback)
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbackConnections = new LongAdder();
+
+    public ReplicaRoutingDataSource(javax.sql.DataSource primary, javax.sql.DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isReplicaUsable()
+                ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Route.PRIMARY) {
+            primaryConnections.increment();
+            return getResolvedDefaultDataSource().getConnection();
+        }
+        try {
+            Connection connection = getResolvedDataSources().get(Route.REPLICA).getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            // Réplica caída o pool agotado: esta lectura va a la principal y el monitor la aparta
+            lagMonitor.markFailed(e);
+            fallbackConnections.increment();
+            return getResolvedDefaultDataSource().getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Solo se usan los pools ya configurados
+        return getConnection();
+    }
+
+    public Map<String, Object> stats() {
+        if (!lagMonitor.isEnabled()) return Map.of("replica", "DISABLED");
+        Map<String, Object> stats = new java.util.LinkedHashMap<>(lagMonitor.stats());
+        stats.put("primaryConnections", primaryConnections.sum());
+        stats.put("replicaConnections", replicaConnections.sum());
+        stats.put("fallbackConnections", fallbackConnections.sum());
+        return stats;
+    }
+}
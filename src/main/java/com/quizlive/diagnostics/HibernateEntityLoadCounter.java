@@ -0,0 +1,23 @@
+package com.quizlive.diagnostics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Se engancha a la SessionFactory (una sola instancia compartida, sin estado propio):
+ * cada entidad que hidrata Hibernate se apunta en el contador de la petición del hilo actual.
+ * Las consultas no se cuentan aquí sino en QueryCountingDataSource, que ve también las de JdbcTemplate.
+ */
+public class HibernateEntityLoadCounter implements Interceptor, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        QueryBudget.RequestQueries queries = QueryBudget.current();
+        if (queries != null) queries.onEntityLoad();
+        return false;
+    }
+}
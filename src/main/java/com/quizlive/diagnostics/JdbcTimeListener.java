@@ -0,0 +1,42 @@
+package com.quizlive.diagnostics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Tiempo dentro del driver JDBC (ejecución de sentencias y lotes).
+ * Hibernate crea una instancia por sesión (hibernate.session.events.auto),
+ * y una sesión no se usa desde dos hilos a la vez.
+ * Solo ve las sentencias de Hibernate: el tiempo de las de JdbcTemplate no entra en la cifra.
+ */
+public class JdbcTimeListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        add(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        add(System.nanoTime() - batchStart);
+    }
+
+    private static void add(long nanos) {
+        QueryBudget.RequestQueries queries = QueryBudget.current();
+        if (queries != null) queries.addJdbcNanos(nanos);
+    }
+}
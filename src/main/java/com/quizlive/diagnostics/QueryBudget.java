@@ -0,0 +1,79 @@
+package com.quizlive.diagnostics;
+
+/**
+ * Contador de consultas de la petición HTTP en curso (uno por hilo).
+ *
+ * Lo abre QueryBudgetInterceptor al entrar la petición. Las consultas las cuenta
+ * QueryCountingDataSource (Hibernate y JdbcTemplate por igual); las entidades cargadas y el
+ * tiempo dentro del driver JDBC salen de los listeners de Hibernate.
+ * Con open-in-view la sesión sigue abierta mientras se pinta la vista, así que también
+ * cuentan las colecciones lazy que toque Thymeleaf (room.players, player.gameRoom...).
+ * Fuera de una petición (hilos del motor, importaciones) no hay contador y no se mide nada.
+ */
+public final class QueryBudget {
+
+    private static final ThreadLocal<RequestQueries> CURRENT = new ThreadLocal<>();
+
+    private QueryBudget() {}
+
+    static void begin(String route, int budget, boolean failFast) {
+        CURRENT.set(new RequestQueries(route, budget, failFast));
+    }
+
+    // Cierra el contador del hilo y lo devuelve (null si no había)
+    static RequestQueries end() {
+        RequestQueries queries = CURRENT.get();
+        CURRENT.remove();
+        return queries;
+    }
+
+    static RequestQueries current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Lo medido en una petición.
+     */
+    static class RequestQueries {
+        private final String route;
+        private final int budget;
+        private final boolean failFast;
+        private final long startNanos = System.nanoTime();
+        private int queries;
+        private int entityLoads;
+        private long jdbcNanos;
+
+        RequestQueries(String route, int budget, boolean failFast) {
+            this.route = route;
+            this.budget = budget;
+            this.failFast = failFast;
+        }
+
+        void onQuery(String sql) {
+            queries++;
+            // Modo estricto: la consulta que se pasa del presupuesto hace fallar la petición (500)
+            if (failFast && queries > budget) {
+                throw new QueryBudgetExceededException(route, budget, queries, sql);
+            }
+        }
+
+        void onEntityLoad() {
+            entityLoads++;
+        }
+
+        void addJdbcNanos(long nanos) {
+            jdbcNanos += nanos;
+        }
+
+        String getRoute() { return route; }
+        int getBudget() { return budget; }
+        int getQueries() { return queries; }
+        int getEntityLoads() { return entityLoads; }
+        long getJdbcNanos() { return jdbcNanos; }
+        long getElapsedNanos() { return System.nanoTime() - startNanos; }
+
+        boolean isOverBudget() {
+            return queries > budget;
+        }
+    }
+}
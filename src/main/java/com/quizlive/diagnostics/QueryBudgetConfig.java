@@ -0,0 +1,48 @@
+package com.quizlive.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QueryBudgetConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private QueryBudgetInterceptor queryBudgetInterceptor;
+
+    // Consultas: se envuelve el DataSource que usan JPA y JdbcTemplate ("dataSource" de ReplicaDataSourceConfig:
+    // la principal o el enrutado). Los pools de debajo no, para no contar dos veces
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Contadores de Hibernate: entidades cargadas (instancia compartida) y tiempo JDBC (una por sesión)
+    @Bean
+    public HibernatePropertiesCustomizer queryBudgetHibernateCustomizer() {
+        HibernateEntityLoadCounter counter = new HibernateEntityLoadCounter();
+        return properties -> {
+            properties.put("hibernate.session_factory.interceptor", counter);
+            properties.put("hibernate.session.events.auto", JdbcTimeListener.class.getName());
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryBudgetInterceptor);
+    }
+}
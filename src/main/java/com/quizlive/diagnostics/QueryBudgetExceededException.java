@@ -0,0 +1,15 @@
+package com.quizlive.diagnostics;
+
+/**
+ * Una ruta ha lanzado más consultas de las que tiene presupuestadas
+ * (solo con quizlive.query-budget.fail-fast=true).
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QueryBudgetExceededException(String route, int budget, int queries, String sql) {
+        super("Presupuesto de consultas superado en " + route + ": " + queries + " > " + budget
+                + " (última: " + (sql != null && sql.length() > 200 ? sql.substring(0, 200) + "..." : sql) + ")");
+    }
+}
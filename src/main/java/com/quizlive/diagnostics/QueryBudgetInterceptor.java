@@ -0,0 +1,137 @@
+package com.quizlive.diagnostics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Presupuesto de consultas por ruta.
+ *
+ * Abre un contador al entrar cada petición a un controlador y lo cierra al terminar
+ * (vista incluida). Si la ruta ha hecho más consultas de las presupuestadas se escribe
+ * en el log con su desglose; con fail-fast la consulta que se pasa lanza excepción,
+ * para que un N+1 nuevo rompa la prueba de humo en vez de llegar a producción.
+ * Los máximos por ruta se ven en /ops/queries.
+ */
+@Component
+public class QueryBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    @Value("${quizlive.query-budget.default:25}")
+    private int defaultBudget;
+
+    // Presupuestos por patrón de ruta: "/play/answer:1,/play/game/{token}:3"
+    @Value("${quizlive.query-budget.routes:}")
+    private String routeBudgets;
+
+    @Value("${quizlive.query-budget.fail-fast:false}")
+    private boolean failFast;
+
+    // Una línea de log por petición, dentro o fuera de presupuesto (para desarrollo)
+    @Value("${quizlive.query-budget.log-all:false}")
+    private boolean logAll;
+
+    private final Map<String, Integer> budgets = new HashMap<>();
+    private final ConcurrentHashMap<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (String entry : routeBudgets.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) continue;
+            budgets.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Solo controladores (los recursos estáticos no tocan la BD)
+        if (!(handler instanceof HandlerMethod)) return true;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String path = pattern != null ? pattern.toString() : request.getRequestURI();
+        QueryBudget.begin(request.getMethod() + " " + path, budgets.getOrDefault(path, defaultBudget), failFast);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        finish();
+    }
+
+    // Long-poll y descargas en streaming: el hilo de la petición se libera aquí (y el contador con él)
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        finish();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("defaultBudget", defaultBudget);
+        stats.put("failFast", failFast);
+        Map<String, Object> byRoute = new TreeMap<>();
+        routes.forEach((route, routeStats) -> byRoute.put(route, routeStats.summary()));
+        stats.put("routes", byRoute);
+        return stats;
+    }
+
+    private void finish() {
+        QueryBudget.RequestQueries queries = QueryBudget.end();
+        if (queries == null) return;
+
+        routes.computeIfAbsent(queries.getRoute(), r -> new RouteStats()).record(queries);
+        if (queries.isOverBudget() || logAll) {
+            System.out.println("[QueryBudget] [" + Thread.currentThread().getName() + "] " + queries.getRoute() + ": "
+                    + queries.getQueries() + " consultas (presupuesto " + queries.getBudget() + "), "
+                    + queries.getEntityLoads() + " entidades cargadas, JDBC "
+                    + TimeUnit.NANOSECONDS.toMillis(queries.getJdbcNanos()) + " ms de "
+                    + TimeUnit.NANOSECONDS.toMillis(queries.getElapsedNanos()) + " ms"
+                    + (queries.isOverBudget() ? " <-- FUERA DE PRESUPUESTO" : ""));
+        }
+    }
+
+    private static class RouteStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        final LongAdder totalQueries = new LongAdder();
+        final LongAdder jdbcNanos = new LongAdder();
+        final AtomicLong maxQueries = new AtomicLong();
+        final AtomicLong maxEntityLoads = new AtomicLong();
+        volatile int budget;
+
+        void record(QueryBudget.RequestQueries queries) {
+            budget = queries.getBudget();
+            requests.increment();
+            totalQueries.add(queries.getQueries());
+            jdbcNanos.add(queries.getJdbcNanos());
+            maxQueries.accumulateAndGet(queries.getQueries(), Math::max);
+            maxEntityLoads.accumulateAndGet(queries.getEntityLoads(), Math::max);
+            if (queries.isOverBudget()) overBudget.increment();
+        }
+
+        Map<String, Object> summary() {
+            long count = requests.sum();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("budget", budget);
+            summary.put("requests", count);
+            summary.put("overBudget", overBudget.sum());
+            summary.put("meanQueries", count == 0 ? 0 : Math.round(totalQueries.sum() * 10.0 / count) / 10.0);
+            summary.put("maxQueries", maxQueries.get());
+            summary.put("maxEntityLoads", maxEntityLoads.get());
+            summary.put("meanJdbcMs", count == 0 ? 0 : Math.round(jdbcNanos.sum() / 10_000.0 / count) / 100.0);
+            return summary;
+        }
+    }
+}
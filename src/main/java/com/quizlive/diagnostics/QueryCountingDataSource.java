@@ -0,0 +1,107 @@
+package com.quizlive.diagnostics;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Cuenta las consultas al nivel del DataSource: todo lo que pasa por el pool, sea de Hibernate
+ * o de JdbcTemplate (roster, progreso, resultados, exportación...).
+ *
+ * Cada prepareStatement/prepareCall es una consulta, y cada execute* de un Statement sin preparar.
+ * Un lote (addBatch + executeBatch) cuenta una vez. Solo se envuelve la conexión si el hilo tiene
+ * un contador abierto al pedirla: fuera de una petición (motor, importaciones) sale tal cual.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        if (QueryBudget.current() == null) return connection;
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] { ConnectionProxy.class }, new CountingConnection(connection));
+    }
+
+    private static void count(String sql) {
+        QueryBudget.RequestQueries queries = QueryBudget.current();
+        if (queries != null) queries.onQuery(sql);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static class CountingConnection implements InvocationHandler {
+        private final Connection target;
+
+        CountingConnection(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                case "prepareStatement":
+                case "prepareCall":
+                    // Se cuenta antes de ir al driver: con fail-fast la que se pasa ni llega a la BD
+                    count((String) args[0]);
+                    return QueryCountingDataSource.invoke(target, method, args);
+                case "createStatement":
+                    Statement statement = (Statement) QueryCountingDataSource.invoke(target, method, args);
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                            new Class<?>[] { Statement.class }, new CountingStatement(statement));
+                default:
+                    return QueryCountingDataSource.invoke(target, method, args);
+            }
+        }
+    }
+
+    private static class CountingStatement implements InvocationHandler {
+        private final Statement target;
+
+        CountingStatement(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) return proxy == args[0];
+            if (name.equals("hashCode")) return System.identityHashCode(proxy);
+            if (name.startsWith("execute")) {
+                count(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : name);
+            }
+            return QueryCountingDataSource.invoke(target, method, args);
+        }
+    }
+}
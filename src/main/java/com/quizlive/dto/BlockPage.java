@@ -0,0 +1,20 @@
+package com.quizlive.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+// Una página del listado de bloques (del más nuevo al más antiguo). nextCursor es el id a partir del
+// cual sigue la siguiente página (keyset: "id < nextCursor"); null si no hay más
+public class BlockPage {
+    private final List<BlockSummary> blocks;
+    private final Long nextCursor;
+
+    public BlockPage(List<BlockSummary> blocks, Long nextCursor) {
+        this.blocks = Collections.unmodifiableList(blocks);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BlockSummary> getBlocks() { return blocks; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean isEmpty() { return blocks.isEmpty(); }
+}
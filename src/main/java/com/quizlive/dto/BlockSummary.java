@@ -0,0 +1,27 @@
+package com.quizlive.dto;
+
+import java.time.LocalDateTime;
+
+// Una tarjeta del listado de bloques: solo lo que se pinta, sacado con una consulta de proyección
+// (sin cargar el bloque ni sus preguntas)
+public class BlockSummary {
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final long questionCount;
+    private final LocalDateTime lastPlayedAt; // null si nunca se ha jugado
+
+    public BlockSummary(Long id, String name, String description, Long questionCount, LocalDateTime lastPlayedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.questionCount = questionCount != null ? questionCount : 0;
+        this.lastPlayedAt = lastPlayedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public long getQuestionCount() { return questionCount; }
+    public LocalDateTime getLastPlayedAt() { return lastPlayedAt; }
+}
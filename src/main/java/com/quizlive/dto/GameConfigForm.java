@@ -7,7 +7,14 @@ public class GameConfigForm {
     private int timeLimit; // Segundos
     private boolean randomMode;
     private int numQuestionsRandom;
+    private boolean stratifiedByTopic; // Aleatorio respetando la proporción de cada tema
     private List<Long> selectedQuestionIds; // Para el modo manual
+    private boolean selfPaced; // Cada alumno a su ritmo (sin esperar al profesor)
+
+    // Puntuación por rapidez
+    private String scoringCurve = "CLASSIC"; // FLAT, CLASSIC, LINEAR, QUADRATIC
+    private int maxPoints = 1000;
+    private int streakBonus = 100; // Puntos extra por cada acierto seguido
 
     // Getters y Setters
     public Long getBlockId() { return blockId; }
@@ -18,6 +25,16 @@ public class GameConfigForm {
     public void setRandomMode(boolean randomMode) { this.randomMode = randomMode; }
     public int getNumQuestionsRandom() { return numQuestionsRandom; }
     public void setNumQuestionsRandom(int numQuestionsRandom) { this.numQuestionsRandom = numQuestionsRandom; }
+    public boolean isStratifiedByTopic() { return stratifiedByTopic; }
+    public void setStratifiedByTopic(boolean stratifiedByTopic) { this.stratifiedByTopic = stratifiedByTopic; }
     public List<Long> getSelectedQuestionIds() { return selectedQuestionIds; }
     public void setSelectedQuestionIds(List<Long> selectedQuestionIds) { this.selectedQuestionIds = selectedQuestionIds; }
+    public boolean isSelfPaced() { return selfPaced; }
+    public void setSelfPaced(boolean selfPaced) { this.selfPaced = selfPaced; }
+    public String getScoringCurve() { return scoringCurve; }
+    public void setScoringCurve(String scoringCurve) { this.scoringCurve = scoringCurve; }
+    public int getMaxPoints() { return maxPoints; }
+    public void setMaxPoints(int maxPoints) { this.maxPoints = maxPoints; }
+    public int getStreakBonus() { return streakBonus; }
+    public void setStreakBonus(int streakBonus) { this.streakBonus = streakBonus; }
 }
@@ -0,0 +1,78 @@
+package com.quizlive.dto;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resultados finales de una partida, ya ordenados y con puesto. Inmutables: se calculan una vez
+// al terminar y se sirven tal cual (ranking del host, pantalla final del jugador).
+public class GameResults {
+    private final Long gameRoomId;
+    private final List<Entry> ranking;
+    private final List<QuestionStat> questions;
+    private final Map<Long, Entry> byPlayer;
+
+    public GameResults(Long gameRoomId, List<Entry> ranking, List<QuestionStat> questions) {
+        this.gameRoomId = gameRoomId;
+        this.ranking = Collections.unmodifiableList(ranking);
+        this.questions = Collections.unmodifiableList(questions);
+        Map<Long, Entry> index = new HashMap<>();
+        for (Entry e : ranking) index.put(e.getPlayerId(), e);
+        this.byPlayer = Collections.unmodifiableMap(index);
+    }
+
+    public Long getGameRoomId() { return gameRoomId; }
+    public List<Entry> getRanking() { return ranking; }
+    public List<QuestionStat> getQuestions() { return questions; }
+    public int getTotalPlayers() { return ranking.size(); }
+
+    // Línea del jugador (null si no jugó en esta sala)
+    public Entry entryOf(Long playerId) { return byPlayer.get(playerId); }
+
+    public static class Entry {
+        private final Long playerId;
+        private final String nickname;
+        private final int position;
+        private final int score;
+        private final int correctAnswers;
+        private final int answeredQuestions;
+
+        public Entry(Long playerId, String nickname, int position, int score, int correctAnswers, int answeredQuestions) {
+            this.playerId = playerId;
+            this.nickname = nickname;
+            this.position = position;
+            this.score = score;
+            this.correctAnswers = correctAnswers;
+            this.answeredQuestions = answeredQuestions;
+        }
+
+        public Long getPlayerId() { return playerId; }
+        public String getNickname() { return nickname; }
+        public int getPosition() { return position; }
+        public int getScore() { return score; }
+        public int getCorrectAnswers() { return correctAnswers; }
+        public int getAnsweredQuestions() { return answeredQuestions; }
+    }
+
+    public static class QuestionStat {
+        private final int number;
+        private final int answers;
+        private final int correctAnswers;
+
+        public QuestionStat(int number, int answers, int correctAnswers) {
+            this.number = number;
+            this.answers = answers;
+            this.correctAnswers = correctAnswers;
+        }
+
+        public int getNumber() { return number; }
+        public int getAnswers() { return answers; }
+        public int getCorrectAnswers() { return correctAnswers; }
+
+        // % de aciertos sobre los que respondieron (0 si nadie respondió)
+        public int getCorrectRate() {
+            return answers == 0 ? 0 : Math.round(correctAnswers * 100f / answers);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.quizlive.dto;
+
+// Lo que necesitan las pantallas del jugador, sacado de memoria (o de la BD si la sala ya no está en el motor)
+public class PlayerView {
+    private Long id;
+    private String nickname;
+    private int score;
+    private int position;
+    private int totalPlayers;
+
+    public PlayerView(Long id, String nickname, int score, int position, int totalPlayers) {
+        this.id = id;
+        this.nickname = nickname;
+        this.score = score;
+        this.position = position;
+        this.totalPlayers = totalPlayers;
+    }
+
+    public Long getId() { return id; }
+    public String getNickname() { return nickname; }
+    public int getScore() { return score; }
+    public int getPosition() { return position; }
+    public int getTotalPlayers() { return totalPlayers; }
+}
@@ -0,0 +1,22 @@
+package com.quizlive.dto;
+
+// Un resultado del buscador de preguntas (QuestionSearchIndex). score: términos de la consulta
+// que aparecen en el enunciado (los demás coinciden en las opciones)
+public class QuestionHit {
+    private final Long questionId;
+    private final Long blockId;
+    private final String statement;
+    private final int score;
+
+    public QuestionHit(Long questionId, Long blockId, String statement, int score) {
+        this.questionId = questionId;
+        this.blockId = blockId;
+        this.statement = statement;
+        this.score = score;
+    }
+
+    public Long getQuestionId() { return questionId; }
+    public Long getBlockId() { return blockId; }
+    public String getStatement() { return statement; }
+    public int getScore() { return score; }
+}
@@ -1,9 +1,13 @@
 package com.quizlive.engine;
 
+import org.springframework.web.context.request.async.DeferredResult;
+
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Clase que representa una sala activa en MEMORIA (RAM).
@@ -12,39 +16,332 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ActiveRoom {
     private String pin;
     private Long gameRoomId;
-    
+
+    // Configuración fija de la partida
+    private int timeLimitSeconds;
+    private ScoringPolicy scoringPolicy;
+
+    // Preguntas de la partida en orden: ID de RoomQuestion y opción correcta.
+    // Así responder no necesita leer la BD.
+    private long[] roomQuestionIds;
+    private int[] correctOptions;
+
+    // Estado de la sala (LOBBY/PLAYING/FINISHED + pregunta + abierta + epoch) cambiado por CAS
+    private final RoomStateMachine state = new RoomStateMachine();
+
+    // Inicio de la pregunta actual con reloj monotónico (System.nanoTime)
+    private volatile QuestionClock clock = new QuestionClock(-1, 0);
+
     // Puntuaciones en memoria (PlayerID -> Puntos)
     // Requisito D: Uso de ConcurrentHashMap para puntuaciones
     private ConcurrentHashMap<Long, Integer> scores = new ConcurrentHashMap<>();
-    
-    // Jugadores que ya han respondido a la pregunta actual (para evitar duplicados)
-    private Set<Long> playersWhoAnsweredCurrentQuestion = ConcurrentHashMap.newKeySet();
-    
-    // Estado concurrente de la pregunta (Abierta/Cerrada)
-    private AtomicBoolean questionOpen = new AtomicBoolean(false);
-    
+
+    // Último epoch respondido por cada jugador (PlayerID -> epoch), para evitar duplicados.
+    // Al ir por epoch no hace falta vaciarlo entre preguntas (y no hay carrera con el cambio).
+    private ConcurrentHashMap<Long, Long> answeredEpochs = new ConcurrentHashMap<>();
+
+    // Rachas (PlayerID -> epoch del último acierto << 16 | longitud de la racha)
+    private ConcurrentHashMap<Long, Long> streaks = new ConcurrentHashMap<>();
+
+    // Jugadores del lobby en orden de llegada, con versión (para el roster incremental del host)
+    private final LobbyRoster roster = new LobbyRoster();
+
+    // Modo a su ritmo (estilo Quizizz): cada jugador con su cursor y su plazo; la sala no tiene temporizador
+    private volatile boolean selfPaced;
+    private final ConcurrentHashMap<Long, PlayerCursor> cursors = new ConcurrentHashMap<>();
+
+    // Agregados para el "% completado" del host, mantenidos al mover cursores (sin recorrer jugadores)
+    private final AtomicLong questionsDone = new AtomicLong();
+    private final AtomicInteger finishedPlayers = new AtomicInteger();
+
+    // Recuentos para los resultados finales, mantenidos al puntuar: respuestas y aciertos por
+    // pregunta y por jugador. Al terminar se materializan sin volver a agregar la tabla answer.
+    private final AtomicIntegerArray questionAnswers;
+    private final AtomicIntegerArray questionCorrect;
+    private final ConcurrentHashMap<Long, Integer> playerAnswers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> playerCorrect = new ConcurrentHashMap<>();
+
     // Referencia al temporizador (para poder cancelarlo si hiciera falta)
     private ScheduledFuture<?> timerTask;
 
-    public ActiveRoom(String pin, Long gameRoomId) {
+    // Respuestas en curso: de la lectura del estado hasta puntuadas y guardadas (encoladas o en el pool)
+    private final AtomicInteger answersInFlight = new AtomicInteger();
+    private final Object answersDrained = new Object();
+
+    // Long-poll: peticiones de jugadores aparcadas hasta el próximo cambio de epoch.
+    // Set concurrente para que quitar una al expirar sea O(1) aunque haya miles.
+    private final Set<DeferredResult<RoomStateView>> waiters = ConcurrentHashMap.newKeySet();
+    // Aparcadas por jugador (incluye las ya avisadas que aún no han terminado): para el tope por jugador
+    private final ConcurrentHashMap<Long, Integer> playerWaiters = new ConcurrentHashMap<>();
+
+    public ActiveRoom(String pin, Long gameRoomId, int timeLimitSeconds, ScoringPolicy scoringPolicy,
+                      long[] roomQuestionIds, int[] correctOptions) {
         this.pin = pin;
         this.gameRoomId = gameRoomId;
+        this.timeLimitSeconds = timeLimitSeconds;
+        this.scoringPolicy = scoringPolicy;
+        this.roomQuestionIds = roomQuestionIds;
+        this.correctOptions = correctOptions;
+        this.questionAnswers = new AtomicIntegerArray(roomQuestionIds.length);
+        this.questionCorrect = new AtomicIntegerArray(roomQuestionIds.length);
     }
 
     public String getPin() { return pin; }
     public Long getGameRoomId() { return gameRoomId; }
+    public int getTimeLimitSeconds() { return timeLimitSeconds; }
+    public ScoringPolicy getScoringPolicy() { return scoringPolicy; }
+    public int getTotalQuestions() { return roomQuestionIds.length; }
+
+    public long getRoomQuestionId(int index) { return roomQuestionIds[index]; }
+    public int getCorrectOption(int index) { return correctOptions[index]; }
+
+    public RoomStateMachine getState() { return state; }
+
+    public QuestionClock getClock() { return clock; }
+    public void setClock(QuestionClock clock) { this.clock = clock; }
 
     public ConcurrentHashMap<Long, Integer> getScores() { return scores; }
-    
-    public Set<Long> getPlayersWhoAnsweredCurrentQuestion() { return playersWhoAnsweredCurrentQuestion; }
-    
-    public AtomicBoolean getQuestionOpen() { return questionOpen; }
-    
+
+    // Registra la respuesta del jugador para el epoch dado; false si ya había respondido
+    public boolean markAnswered(Long playerId, long epoch) {
+        Long previous = answeredEpochs.put(playerId, epoch);
+        return previous == null || previous != epoch;
+    }
+
+    public boolean hasAnswered(Long playerId, long epoch) {
+        Long answered = answeredEpochs.get(playerId);
+        return answered != null && answered == epoch;
+    }
+
+    // Acertó la pregunta del epoch dado: su racha se actualizó en ese mismo epoch
+    public boolean answeredCorrectly(Long playerId, long epoch) {
+        Long packed = streaks.get(playerId);
+        return packed != null && (packed >>> 16) == epoch;
+    }
+
+    // Actualiza la racha del jugador y devuelve su longitud (0 si ha fallado).
+    // La racha sigue solo si el acierto anterior fue en la pregunta inmediatamente anterior.
+    public int updateStreak(Long playerId, long epoch, boolean correct) {
+        if (!correct) {
+            streaks.remove(playerId);
+            return 0;
+        }
+        long packed = streaks.compute(playerId, (id, prev) -> {
+            int length = (prev != null && (prev >>> 16) == epoch - 1) ? (int) (prev & 0xFFFF) + 1 : 1;
+            return (epoch << 16) | Math.min(length, 0xFFFF);
+        });
+        return (int) (packed & 0xFFFF);
+    }
+
+    // Cuenta una respuesta con opción elegida (los tiempos agotados no cuentan como respondida)
+    public void recordAnswer(Long playerId, int index, boolean correct) {
+        questionAnswers.incrementAndGet(index);
+        playerAnswers.merge(playerId, 1, Integer::sum);
+        if (correct) {
+            questionCorrect.incrementAndGet(index);
+            playerCorrect.merge(playerId, 1, Integer::sum);
+        }
+    }
+
+    public int getQuestionAnswers(int index) { return questionAnswers.get(index); }
+    public int getQuestionCorrect(int index) { return questionCorrect.get(index); }
+    public int getPlayerAnswers(Long playerId) { return playerAnswers.getOrDefault(playerId, 0); }
+    public int getPlayerCorrect(Long playerId) { return playerCorrect.getOrDefault(playerId, 0); }
+
+    // Recuentos restaurados (handoff o BD)
+    public void restoreAnswerStats(int[] answersByQuestion, int[] correctByQuestion,
+                                   java.util.Map<Long, Integer> answersByPlayer, java.util.Map<Long, Integer> correctByPlayer) {
+        for (int i = 0; i < answersByQuestion.length && i < getTotalQuestions(); i++) {
+            questionAnswers.set(i, answersByQuestion[i]);
+            questionCorrect.set(i, correctByQuestion[i]);
+        }
+        playerAnswers.putAll(answersByPlayer);
+        playerCorrect.putAll(correctByPlayer);
+    }
+
+    public LobbyRoster getRoster() { return roster; }
+
+    public boolean isSelfPaced() { return selfPaced; }
+    public void setSelfPaced(boolean selfPaced) { this.selfPaced = selfPaced; }
+
+    public ConcurrentHashMap<Long, PlayerCursor> getCursors() { return cursors; }
+
+    // Cursor del jugador; los que aún no han empezado están en la pregunta 0 sin reloj
+    public PlayerCursor cursorOf(Long playerId) {
+        return cursors.computeIfAbsent(playerId, id -> PlayerCursor.NOT_STARTED);
+    }
+
+    // CAS del cursor: solo se aplica si nadie lo ha movido desde que se leyó "expected"
+    public boolean moveCursor(Long playerId, PlayerCursor expected, PlayerCursor next) {
+        if (!cursors.replace(playerId, expected, next)) return false;
+        if (next.getIndex() > expected.getIndex()) {
+            questionsDone.addAndGet(next.getIndex() - expected.getIndex());
+            if (next.getIndex() >= getTotalQuestions()) finishedPlayers.incrementAndGet();
+        }
+        return true;
+    }
+
+    public long getQuestionsDone() { return questionsDone.get(); }
+    public int getFinishedPlayers() { return finishedPlayers.get(); }
+
+    public Set<DeferredResult<RoomStateView>> getWaiters() { return waiters; }
+
+    // Aparca un long-poll del jugador; false (sin aparcarlo) si ya tiene maxPerPlayer abiertos.
+    // Cada uno aparcado se libera con removeWaiter al terminar la petición
+    public boolean addWaiter(long playerId, DeferredResult<RoomStateView> waiter, int maxPerPlayer) {
+        boolean[] added = { false };
+        playerWaiters.compute(playerId, (id, open) -> {
+            int count = open == null ? 0 : open;
+            if (count >= maxPerPlayer) return open;
+            added[0] = true;
+            return count + 1;
+        });
+        if (added[0]) waiters.add(waiter);
+        return added[0];
+    }
+
+    public void removeWaiter(long playerId, DeferredResult<RoomStateView> waiter) {
+        waiters.remove(waiter);
+        playerWaiters.computeIfPresent(playerId, (id, open) -> open > 1 ? open - 1 : null);
+    }
+
+    public void answerStarted() {
+        answersInFlight.incrementAndGet();
+    }
+
+    public void answerFinished() {
+        if (answersInFlight.decrementAndGet() == 0) {
+            synchronized (answersDrained) {
+                answersDrained.notifyAll();
+            }
+        }
+    }
+
+    public int getAnswersInFlight() { return answersInFlight.get(); }
+
+    // Espera a que no quede ninguna respuesta en curso; false si se agota el plazo
+    public boolean awaitAnswers(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (answersDrained) {
+            while (answersInFlight.get() > 0) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return false;
+                answersDrained.wait(left);
+            }
+        }
+        return true;
+    }
+
     public ScheduledFuture<?> getTimerTask() { return timerTask; }
     public void setTimerTask(ScheduledFuture<?> timerTask) { this.timerTask = timerTask; }
-    
-    public void resetForNewQuestion() {
-        this.playersWhoAnsweredCurrentQuestion.clear();
-        this.questionOpen.set(true);
+
+    // Foto de la sala para el traspaso a otra instancia (drain & handoff)
+    public RoomSnapshot toSnapshot(long remainingMillis) {
+        RoomSnapshot snapshot = new RoomSnapshot();
+        snapshot.setPin(pin);
+        snapshot.setGameRoomId(gameRoomId);
+        snapshot.setTimeLimitSeconds(timeLimitSeconds);
+        snapshot.setScoringPolicy(scoringPolicy);
+        snapshot.setRoomQuestionIds(roomQuestionIds);
+        snapshot.setCorrectOptions(correctOptions);
+        snapshot.setStateWord(state.current());
+        // nanoTime no vale entre JVMs: se guarda lo que llevaba transcurrido la pregunta
+        QuestionClock c = clock;
+        snapshot.setClockEpoch(c.getEpoch());
+        snapshot.setElapsedMillis(java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - c.getStartNanos()));
+        snapshot.setScores(new java.util.HashMap<>(scores));
+        snapshot.setAnsweredEpochs(new java.util.HashMap<>(answeredEpochs));
+        snapshot.setStreaks(new java.util.HashMap<>(streaks));
+        snapshot.setRoster(roster.all());
+        snapshot.setRosterPlayerIds(roster.allPlayerIds());
+        snapshot.setSelfPaced(selfPaced);
+        long now = System.nanoTime();
+        cursors.forEach((playerId, cursor) -> {
+            snapshot.getCursorIndexes().put(playerId, cursor.getIndex());
+            if (cursor.isStarted()) {
+                snapshot.getCursorElapsedMillis().put(playerId,
+                        java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(now - cursor.getStartNanos()));
+            }
+        });
+        int[] answersByQuestion = new int[getTotalQuestions()];
+        int[] correctByQuestion = new int[getTotalQuestions()];
+        for (int i = 0; i < answersByQuestion.length; i++) {
+            answersByQuestion[i] = questionAnswers.get(i);
+            correctByQuestion[i] = questionCorrect.get(i);
+        }
+        snapshot.setQuestionAnswers(answersByQuestion);
+        snapshot.setQuestionCorrect(correctByQuestion);
+        snapshot.setPlayerAnswers(new java.util.HashMap<>(playerAnswers));
+        snapshot.setPlayerCorrect(new java.util.HashMap<>(playerCorrect));
+        snapshot.setRemainingMillis(remainingMillis);
+        return snapshot;
+    }
+
+    // Reconstruye la sala en memoria a partir de la foto (sin temporizador)
+    public static ActiveRoom fromSnapshot(RoomSnapshot snapshot) {
+        ActiveRoom room = new ActiveRoom(snapshot.getPin(), snapshot.getGameRoomId(), snapshot.getTimeLimitSeconds(),
+                snapshot.getScoringPolicy(), snapshot.getRoomQuestionIds(), snapshot.getCorrectOptions());
+        room.state.restore(snapshot.getStateWord());
+        room.clock = new QuestionClock(snapshot.getClockEpoch(),
+                System.nanoTime() - java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(snapshot.getElapsedMillis()));
+        room.scores.putAll(snapshot.getScores());
+        room.answeredEpochs.putAll(snapshot.getAnsweredEpochs());
+        room.streaks.putAll(snapshot.getStreaks());
+        for (int i = 0; i < snapshot.getRoster().size(); i++) {
+            room.roster.add(snapshot.getRosterPlayerIds().get(i), snapshot.getRoster().get(i));
+        }
+        room.selfPaced = snapshot.isSelfPaced();
+        room.restoreAnswerStats(snapshot.getQuestionAnswers(), snapshot.getQuestionCorrect(),
+                snapshot.getPlayerAnswers(), snapshot.getPlayerCorrect());
+        long now = System.nanoTime();
+        snapshot.getCursorIndexes().forEach((playerId, index) -> {
+            Long elapsed = snapshot.getCursorElapsedMillis().get(playerId);
+            room.restoreCursor(playerId, index,
+                    elapsed != null ? now - java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(elapsed) : 0);
+        });
+        return room;
+    }
+
+    // Cursor restaurado (handoff o BD), recalculando los agregados
+    public void restoreCursor(Long playerId, int index, long startNanos) {
+        cursors.put(playerId, index == 0 && startNanos == 0 ? PlayerCursor.NOT_STARTED : new PlayerCursor(index, startNanos));
+        questionsDone.addAndGet(index);
+        if (index >= getTotalQuestions()) finishedPlayers.incrementAndGet();
+    }
+
+    /**
+     * Posición de un jugador en el modo a su ritmo: pregunta actual e instante en que la vio
+     * (0 = aún no la ha visto, su plazo no ha empezado). Inmutable: se cambia entero por CAS.
+     */
+    public static class PlayerCursor {
+        public static final PlayerCursor NOT_STARTED = new PlayerCursor(0, 0);
+
+        private final int index;
+        private final long startNanos;
+
+        public PlayerCursor(int index, long startNanos) {
+            this.index = index;
+            this.startNanos = startNanos;
+        }
+
+        public int getIndex() { return index; }
+        public long getStartNanos() { return startNanos; }
+        public boolean isStarted() { return startNanos != 0; }
+    }
+
+    /**
+     * Instante de apertura de una pregunta. Inmutable: epoch y tiempo se publican juntos.
+     */
+    public static class QuestionClock {
+        private final long epoch;
+        private final long startNanos;
+
+        public QuestionClock(long epoch, long startNanos) {
+            this.epoch = epoch;
+            this.startNanos = startNanos;
+        }
+
+        public long getEpoch() { return epoch; }
+        public long getStartNanos() { return startNanos; }
     }
 }
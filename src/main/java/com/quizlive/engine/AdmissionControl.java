@@ -0,0 +1,192 @@
+package com.quizlive.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión del nodo.
+ *
+ * - Token buckets por jugador y por sala en /play/answer, y por sala y por cliente (navegador o IP) en /play/join:
+ *   un script que manda miles de respuestas solo se frena a sí mismo (o como mucho a su sala).
+ * - Topes de long-poll aparcados (/play/api/wait) por sala y por jugador: cada uno retiene memoria
+ *   hasta ~25s, así que no puede crecer sin límite.
+ * - Topes globales de salas activas y jugadores por nodo: por encima se rechaza trabajo nuevo
+ *   en vez de aceptar hasta quedarse sin memoria.
+ *
+ * Los rechazos se cuentan por motivo y se exponen en /ops/admission.
+ */
+@Component
+public class AdmissionControl {
+
+    // Motivos de rechazo: los de ritmo son 429 (el cliente debe frenar), los de capacidad 503 (el nodo está lleno)
+    public enum Rejection {
+        PLAYER_RATE(429, 1, "Demasiadas respuestas seguidas"),
+        ROOM_RATE(429, 1, "La sala está recibiendo demasiadas peticiones"),
+        CLIENT_RATE(429, 2, "Demasiados intentos de entrar desde este dispositivo"),
+        PLAYER_WAITS(429, 3, "Demasiadas esperas abiertas para este jugador"),
+        ROOM_WAITS(503, 3, "La sala tiene demasiadas esperas abiertas"),
+        ROOMS_FULL(503, 30, "El servidor no admite más salas ahora mismo"),
+        PLAYERS_FULL(503, 10, "El servidor no admite más jugadores ahora mismo"),
+        OVERLOADED(503, 2, "El servidor está saturado, inténtalo en unos segundos");
+
+        private final int status;
+        private final int retryAfterSeconds;
+        private final String message;
+
+        Rejection(int status, int retryAfterSeconds, String message) {
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.message = message;
+        }
+
+        public int getStatus() { return status; }
+        public int getRetryAfterSeconds() { return retryAfterSeconds; }
+        public String getMessage() { return message; }
+    }
+
+    // Límites globales del nodo
+    @Value("${quizlive.admission.max-rooms:500}")
+    private int maxRooms;
+
+    @Value("${quizlive.admission.max-players:50000}")
+    private int maxPlayers;
+
+    // Respuestas: por jugador (ráfaga, por segundo) y por sala
+    @Value("${quizlive.admission.answer.player-burst:5}")
+    private int answerPlayerBurst;
+
+    @Value("${quizlive.admission.answer.player-per-second:2}")
+    private double answerPlayerRate;
+
+    @Value("${quizlive.admission.answer.room-burst:5000}")
+    private int answerRoomBurst;
+
+    @Value("${quizlive.admission.answer.room-per-second:2000}")
+    private double answerRoomRate;
+
+    // Entradas al lobby: por sala y por cliente
+    @Value("${quizlive.admission.join.room-burst:200}")
+    private int joinRoomBurst;
+
+    @Value("${quizlive.admission.join.room-per-second:50}")
+    private double joinRoomRate;
+
+    @Value("${quizlive.admission.join.client-burst:10}")
+    private int joinClientBurst;
+
+    @Value("${quizlive.admission.join.client-per-second:0.5}")
+    private double joinClientRate;
+
+    // Long-poll (/play/api/wait): peticiones aparcadas a la vez por sala y por jugador
+    @Value("${quizlive.admission.wait.room-max:10000}")
+    private int maxRoomWaits;
+
+    @Value("${quizlive.admission.wait.player-max:3}")
+    private int maxPlayerWaits;
+
+    // Buckets por sala (se liberan cuando la sala sale de memoria) y por cliente (se purgan si están inactivos)
+    private final ConcurrentHashMap<String, RoomBuckets> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> clients = new ConcurrentHashMap<>();
+    private static final int MAX_CLIENT_BUCKETS = 100_000;
+
+    private final Map<Rejection, LongAdder> rejections = new EnumMap<>(Rejection.class);
+    private final LongAdder admittedAnswers = new LongAdder();
+    private final LongAdder admittedJoins = new LongAdder();
+
+    public AdmissionControl() {
+        for (Rejection r : Rejection.values()) rejections.put(r, new LongAdder());
+    }
+
+    public void admitRoom(int activeRooms) {
+        if (activeRooms >= maxRooms) reject(Rejection.ROOMS_FULL);
+    }
+
+    // Cada intento de entrada, antes de mirar el PIN en la BD: probar PINs al azar gasta los tokens del cliente, no consultas
+    public void admitJoinAttempt(String clientKey) {
+        if (clientKey != null && !clientBucket(clientKey).tryAcquire()) reject(Rejection.CLIENT_RATE);
+    }
+
+    // Con la sala ya encontrada y en LOBBY
+    public void admitJoin(String pin, int activePlayers) {
+        if (activePlayers >= maxPlayers) reject(Rejection.PLAYERS_FULL);
+        if (!roomBuckets(pin).joins.tryAcquire()) reject(Rejection.ROOM_RATE);
+        admittedJoins.increment();
+    }
+
+    // Primero el jugador: un script abusivo se queda sin tokens propios antes de gastar los de su sala
+    public void admitAnswer(String pin, Long playerId) {
+        RoomBuckets buckets = roomBuckets(pin);
+        TokenBucket player = buckets.players.computeIfAbsent(playerId, id -> new TokenBucket(answerPlayerBurst, answerPlayerRate));
+        if (!player.tryAcquire()) reject(Rejection.PLAYER_RATE);
+        if (!buckets.answers.tryAcquire()) reject(Rejection.ROOM_RATE);
+        admittedAnswers.increment();
+    }
+
+    // Tope de la sala; el del jugador lo aplica ActiveRoom.addWaiter al aparcar (getMaxPlayerWaits)
+    public void admitWait(int roomWaits) {
+        if (roomWaits >= maxRoomWaits) reject(Rejection.ROOM_WAITS);
+    }
+
+    public int getMaxPlayerWaits() { return maxPlayerWaits; }
+
+    public void reject(Rejection rejection) {
+        rejections.get(rejection).increment();
+        throw new AdmissionRejectedException(rejection);
+    }
+
+    // La sala ya no está en este nodo: fuera sus buckets
+    public void forgetRoom(String pin) {
+        rooms.remove(pin);
+    }
+
+    public void forgetAllRooms() {
+        rooms.clear();
+    }
+
+    public Map<String, Object> stats(int activeRooms, int activePlayers) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeRooms", activeRooms);
+        stats.put("maxRooms", maxRooms);
+        stats.put("activePlayers", activePlayers);
+        stats.put("maxPlayers", maxPlayers);
+        stats.put("admittedAnswers", admittedAnswers.sum());
+        stats.put("admittedJoins", admittedJoins.sum());
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejections.forEach((reason, count) -> rejected.put(reason.name(), count.sum()));
+        stats.put("rejected", rejected);
+        stats.put("trackedClients", clients.size());
+        return stats;
+    }
+
+    private RoomBuckets roomBuckets(String pin) {
+        return rooms.computeIfAbsent(pin, p -> new RoomBuckets(
+                new TokenBucket(answerRoomBurst, answerRoomRate),
+                new TokenBucket(joinRoomBurst, joinRoomRate)));
+    }
+
+    private TokenBucket clientBucket(String clientKey) {
+        if (clients.size() > MAX_CLIENT_BUCKETS) {
+            // Purga de clientes inactivos (su bucket ya estaría lleno de nuevo)
+            long fullAfterMillis = (long) (joinClientBurst / joinClientRate * 1000);
+            clients.values().removeIf(bucket -> bucket.idleMillis() > fullAfterMillis);
+        }
+        return clients.computeIfAbsent(clientKey, k -> new TokenBucket(joinClientBurst, joinClientRate));
+    }
+
+    private static class RoomBuckets {
+        final TokenBucket answers;
+        final TokenBucket joins;
+        final ConcurrentHashMap<Long, TokenBucket> players = new ConcurrentHashMap<>();
+
+        RoomBuckets(TokenBucket answers, TokenBucket joins) {
+            this.answers = answers;
+            this.joins = joins;
+        }
+    }
+}
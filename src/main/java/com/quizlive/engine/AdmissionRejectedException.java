@@ -0,0 +1,21 @@
+package com.quizlive.engine;
+
+/**
+ * Petición rechazada por el control de admisión (límite de ritmo o de capacidad del nodo).
+ * El manejador web la convierte en 429 / 503 con Retry-After.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AdmissionControl.Rejection rejection;
+
+    public AdmissionRejectedException(AdmissionControl.Rejection rejection) {
+        super(rejection.getMessage());
+        this.rejection = rejection;
+    }
+
+    public AdmissionControl.Rejection getRejection() {
+        return rejection;
+    }
+}
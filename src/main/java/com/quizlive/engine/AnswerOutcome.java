@@ -0,0 +1,20 @@
+package com.quizlive.engine;
+
+/**
+ * Lo que el motor hace con una respuesta al recibirla (lo que ve el jugador).
+ * ACCEPTED_*: dentro de plazo y encolada para puntuar; REJECTED: no cuenta ni se guarda
+ * (pregunta cerrada, ya respondida, fuera de plazo o motor apagándose).
+ */
+public enum AnswerOutcome {
+    ACCEPTED_CORRECT,
+    ACCEPTED_WRONG,
+    REJECTED;
+
+    public boolean isAccepted() {
+        return this != REJECTED;
+    }
+
+    public boolean isCorrect() {
+        return this == ACCEPTED_CORRECT;
+    }
+}
@@ -0,0 +1,10 @@
+package com.quizlive.engine;
+
+/**
+ * Callback de persistencia de una respuesta ya puntuada por el motor.
+ * Se ejecuta en el hilo del pool de respuestas.
+ */
+@FunctionalInterface
+public interface AnswerPersister {
+    void persist(long roomQuestionId, int selectedOption, boolean correct, int points, long responseTimeMillis);
+}
@@ -0,0 +1,75 @@
+package com.quizlive.engine;
+
+/**
+ * Marcas de tiempo (System.nanoTime) de una respuesta a lo largo de su vida:
+ * llegada HTTP, entrada al servicio, encolado, salida de la cola, puntuación y fin de la persistencia.
+ *
+ * Viaja con la respuesta desde el controlador hasta el hilo del pool. Lo escribe un hilo
+ * cada vez (el submit al pool ya publica las marcas anteriores), así que no necesita sincronización.
+ */
+public class AnswerTrace {
+
+    // Etapas medidas entre marcas consecutivas; TOTAL va de la llegada HTTP al final
+    public enum Stage { HTTP, LOOKUP, QUEUE, SCORING, PERSIST, TOTAL }
+
+    private final long receivedNanos;
+    private long serviceNanos;
+    private long enqueuedNanos;
+    private long dequeuedNanos;
+    private long scoredNanos;
+    private long persistedNanos;
+
+    private AnswerTrace(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    // Al entrar la petición en el controlador
+    public static AnswerTrace start() {
+        return new AnswerTrace(System.nanoTime());
+    }
+
+    public void markService() { serviceNanos = System.nanoTime(); }
+    public void markEnqueued() { enqueuedNanos = System.nanoTime(); }
+    public void markDequeued() { dequeuedNanos = System.nanoTime(); }
+    public void markScored() { scoredNanos = System.nanoTime(); }
+    public void markPersisted() { persistedNanos = System.nanoTime(); }
+
+    public long getReceivedNanos() { return receivedNanos; }
+
+    // Duración de la etapa en ns, o -1 si la respuesta no llegó a completarla
+    public long nanos(Stage stage) {
+        switch (stage) {
+            case HTTP: return between(receivedNanos, serviceNanos);
+            case LOOKUP: return between(serviceNanos, enqueuedNanos);
+            case QUEUE: return between(enqueuedNanos, dequeuedNanos);
+            case SCORING: return between(dequeuedNanos, scoredNanos);
+            case PERSIST: return between(scoredNanos, persistedNanos);
+            default: return between(receivedNanos, lastMark());
+        }
+    }
+
+    // "http=0.4ms lookup=0.1ms queue=812.0ms ..." para los logs
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            long nanos = nanos(stage);
+            if (nanos < 0) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(stage.name().toLowerCase()).append('=')
+              .append(Math.round(nanos / 100_000.0) / 10.0).append("ms");
+        }
+        return sb.toString();
+    }
+
+    private long lastMark() {
+        if (persistedNanos != 0) return persistedNanos;
+        if (scoredNanos != 0) return scoredNanos;
+        if (dequeuedNanos != 0) return dequeuedNanos;
+        if (enqueuedNanos != 0) return enqueuedNanos;
+        return serviceNanos;
+    }
+
+    private static long between(long from, long to) {
+        return from == 0 || to == 0 ? -1 : to - from;
+    }
+}
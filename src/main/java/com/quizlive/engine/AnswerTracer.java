@@ -0,0 +1,75 @@
+package com.quizlive.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencias por etapa de las respuestas, globales y por sala.
+ *
+ * Cada AnswerTrace terminado se vuelca en un LatencyHistogram por etapa. Con eso se ve
+ * si el tiempo se va en la capa HTTP, en la cola del pool o en la BD. Las respuestas
+ * más lentas que quizlive.tracing.slow-answer-ms se escriben en el log con su desglose.
+ */
+@Component
+public class AnswerTracer {
+
+    @Value("${quizlive.tracing.slow-answer-ms:1000}")
+    private long slowAnswerMillis;
+
+    private final StageHistograms global = new StageHistograms();
+    private final ConcurrentHashMap<String, StageHistograms> rooms = new ConcurrentHashMap<>();
+
+    public void record(String pin, AnswerTrace trace) {
+        StageHistograms room = rooms.computeIfAbsent(pin, p -> new StageHistograms());
+        for (AnswerTrace.Stage stage : AnswerTrace.Stage.values()) {
+            long nanos = trace.nanos(stage);
+            if (nanos < 0) continue;
+            global.get(stage).recordNanos(nanos);
+            room.get(stage).recordNanos(nanos);
+        }
+        if (trace.nanos(AnswerTrace.Stage.TOTAL) > slowAnswerMillis * 1_000_000L) {
+            System.out.println("[Room " + pin + "] [" + Thread.currentThread().getName() + "] Respuesta LENTA: " + trace.describe());
+        }
+    }
+
+    public Map<String, Object> globalStats() {
+        return global.summary();
+    }
+
+    // null si la sala no ha registrado respuestas en este nodo
+    public Map<String, Object> roomStats(String pin) {
+        StageHistograms room = rooms.get(pin);
+        return room == null ? null : room.summary();
+    }
+
+    public void forgetRoom(String pin) {
+        rooms.remove(pin);
+    }
+
+    public void forgetAllRooms() {
+        rooms.clear();
+    }
+
+    private static class StageHistograms {
+        private final Map<AnswerTrace.Stage, LatencyHistogram> histograms = new EnumMap<>(AnswerTrace.Stage.class);
+
+        StageHistograms() {
+            for (AnswerTrace.Stage stage : AnswerTrace.Stage.values()) histograms.put(stage, new LatencyHistogram());
+        }
+
+        LatencyHistogram get(AnswerTrace.Stage stage) {
+            return histograms.get(stage);
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            histograms.forEach((stage, histogram) -> summary.put(stage.name().toLowerCase(), histogram.summary()));
+            return summary;
+        }
+    }
+}
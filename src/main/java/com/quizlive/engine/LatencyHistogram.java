@@ -0,0 +1,93 @@
+package com.quizlive.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias al estilo HdrHistogram, en microsegundos.
+ *
+ * Cubetas log-lineales: 0..63 µs exactos y, a partir de ahí, 32 cubetas por cada potencia de 2
+ * (error relativo por debajo del 3%) hasta ~134 s; lo que pase de ahí cae en la última cubeta.
+ * Registrar es un incremento atómico, sin locks ni reservas de memoria: se puede llamar
+ * desde todos los hilos del pool de respuestas a la vez.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 64;           // 0..63 µs, una cubeta por valor
+    private static final int SUB_BUCKETS = 32;      // cubetas por potencia de 2 a partir de 64
+    private static final int FIRST_EXPONENT = 6;    // 2^6 = 64
+    private static final int LAST_EXPONENT = 26;    // 2^27 µs ~ 134 s
+    private static final int BUCKETS = LINEAR + (LAST_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        record(Math.max(0, nanos) / 1_000L);
+    }
+
+    public void record(long micros) {
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(indexOf(micros));
+        total.increment();
+        sum.add(micros);
+        if (micros > max.get()) max.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    // Valor (µs) por debajo del cual queda el porcentaje indicado de las muestras
+    public long percentile(double percent) {
+        long count = total.sum();
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestValueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    // Resumen en milisegundos (con decimales) para el endpoint de operación
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        long count = total.sum();
+        summary.put("count", count);
+        summary.put("meanMs", count == 0 ? 0 : millis(sum.sum() / count));
+        summary.put("p50Ms", millis(percentile(50)));
+        summary.put("p90Ms", millis(percentile(90)));
+        summary.put("p99Ms", millis(percentile(99)));
+        summary.put("p999Ms", millis(percentile(99.9)));
+        summary.put("maxMs", millis(max.get()));
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > LAST_EXPONENT) return BUCKETS - 1;
+        // Los 5 bits siguientes al más alto eligen la subcubeta
+        int sub = (int) (micros >>> (exponent - 5)) - SUB_BUCKETS;
+        return LINEAR + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR) return index;
+        int exponent = (index - LINEAR) / SUB_BUCKETS + FIRST_EXPONENT;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - 5;
+        return ((sub + 1) << shift) - 1;
+    }
+}
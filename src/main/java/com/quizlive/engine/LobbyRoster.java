@@ -0,0 +1,75 @@
+package com.quizlive.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lista de jugadores de la sala en memoria, con versión.
+ * Solo se añade (nadie sale del lobby), así que la versión es el número de jugadores
+ * y "lo nuevo desde la versión v" es simplemente la cola de la lista a partir de v.
+ * Los nicks (sin distinguir mayúsculas) se reservan aparte, de forma atómica.
+ */
+public class LobbyRoster {
+
+    private final Set<String> nicknames = ConcurrentHashMap.newKeySet();
+    private final List<String> entries = new ArrayList<>();
+    private final List<Long> playerIds = new ArrayList<>();
+    private volatile int version = 0;
+
+    // Reserva el nick; false si ya lo tiene otro jugador de la sala
+    public boolean reserve(String nickname) {
+        return nicknames.add(key(nickname));
+    }
+
+    // Libera una reserva que no llegó a convertirse en jugador (error al guardar)
+    public void release(String nickname) {
+        nicknames.remove(key(nickname));
+    }
+
+    // Añade el jugador a la lista y devuelve su slot (posición en el roster)
+    public synchronized int add(Long playerId, String nickname) {
+        nicknames.add(key(nickname));
+        entries.add(nickname);
+        playerIds.add(playerId);
+        version = entries.size();
+        return version - 1;
+    }
+
+    // Nick del jugador a partir del slot de su token. Si el slot no cuadra (sala recuperada
+    // desde la BD con otro orden) se busca por ID.
+    public synchronized String nicknameOf(int slot, long playerId) {
+        if (slot >= 0 && slot < playerIds.size() && playerIds.get(slot) == playerId) {
+            return entries.get(slot);
+        }
+        int index = playerIds.indexOf(playerId);
+        return index >= 0 ? entries.get(index) : null;
+    }
+
+    // Lectura barata (volatile) para el 304
+    public int getVersion() {
+        return version;
+    }
+
+    // Jugadores añadidos después de la versión dada. Si el cliente viene de otra "vida" de la sala
+    // (versión mayor que la actual), recibe la lista completa.
+    public synchronized RosterDelta since(int clientVersion) {
+        boolean reset = clientVersion < 0 || clientVersion > entries.size();
+        int from = reset ? 0 : clientVersion;
+        return new RosterDelta(entries.size(), reset, new ArrayList<>(entries.subList(from, entries.size())));
+    }
+
+    public synchronized List<String> all() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized List<Long> allPlayerIds() {
+        return new ArrayList<>(playerIds);
+    }
+
+    private static String key(String nickname) {
+        return nickname.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.quizlive.engine;
+
+/**
+ * Precarga de la imagen de las preguntas que el motor va a abrir (por ID de RoomQuestion).
+ * La implementa un servicio Spring; no debe bloquear: el motor la llama desde sus hilos.
+ */
+public interface MediaPreloader {
+    void preload(long... roomQuestionIds);
+}
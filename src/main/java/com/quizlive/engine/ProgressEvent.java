@@ -0,0 +1,34 @@
+package com.quizlive.engine;
+
+/**
+ * Paso de un jugador en el modo a su ritmo: respondió (o se le acabó el tiempo en)
+ * la pregunta questionIndex. Se acumulan en memoria y se escriben por lotes.
+ */
+public class ProgressEvent {
+    private final long playerId;
+    private final int questionIndex;
+    private final long roomQuestionId;
+    private final int selectedOption; // -1 = sin respuesta (tiempo agotado)
+    private final boolean correct;
+    private final int points;
+    private final long responseTimeMs;
+
+    public ProgressEvent(long playerId, int questionIndex, long roomQuestionId, int selectedOption,
+                         boolean correct, int points, long responseTimeMs) {
+        this.playerId = playerId;
+        this.questionIndex = questionIndex;
+        this.roomQuestionId = roomQuestionId;
+        this.selectedOption = selectedOption;
+        this.correct = correct;
+        this.points = points;
+        this.responseTimeMs = responseTimeMs;
+    }
+
+    public long getPlayerId() { return playerId; }
+    public int getQuestionIndex() { return questionIndex; }
+    public long getRoomQuestionId() { return roomQuestionId; }
+    public int getSelectedOption() { return selectedOption; }
+    public boolean isCorrect() { return correct; }
+    public int getPoints() { return points; }
+    public long getResponseTimeMs() { return responseTimeMs; }
+}
@@ -0,0 +1,11 @@
+package com.quizlive.engine;
+
+import java.util.List;
+
+/**
+ * Escritura por lotes del progreso del modo a su ritmo (respuestas + cursor y puntos del jugador).
+ * La implementa un servicio Spring; el motor solo le pasa los eventos pendientes.
+ */
+public interface ProgressWriter {
+    void write(List<ProgressEvent> events);
+}
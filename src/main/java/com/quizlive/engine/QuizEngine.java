@@ -1,7 +1,20 @@
 package com.quizlive.engine;
 
+import com.quizlive.cluster.ClusterRouter;
+import com.quizlive.cluster.RoomStateTransport;
+import com.quizlive.model.RoomStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -10,93 +23,839 @@ import java.util.logging.Logger;
  */
 @Service
 public class QuizEngine {
-    
+
     // Requisito A: Gestión de salas concurrentes
     // Mapa Concurrente de Salas Activas (PIN -> Sala)
     private ConcurrentHashMap<String, ActiveRoom> activeRooms = new ConcurrentHashMap<>();
-    
+
     // Requisito C: Pool de hilos para procesar respuestas de forma concurrente
-    // Usamos CachedThreadPool para que crezca según demanda si hay muchos alumnos
-    private ExecutorService answerThreadPool = Executors.newCachedThreadPool();
-    
+    // Acotado (hilos y cola): si se llena se rechaza con 503 en vez de acumular trabajo hasta quedarse sin memoria
+    private static final int ANSWER_THREADS = 64;
+    private static final int ANSWER_QUEUE = 10_000;
+    private ExecutorService answerThreadPool = newAnswerPool();
+
     // Requisito B: Pool de hilos para temporizadores (Scheduled)
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
 
-    // Inicializar sala en memoria
-    public void initRoom(String pin, Long gameRoomId) {
-        activeRooms.putIfAbsent(pin, new ActiveRoom(pin, gameRoomId));
-        log("Sala inicializada en memoria (Engine)", pin);
+    // Hilo único para reflejar en la BD los cambios de estado de las salas
+    private ExecutorService persistenceExecutor = Executors.newSingleThreadExecutor();
+
+    // Drain & handoff: false en cuanto empieza el apagado (no se aceptan salas nuevas)
+    private final AtomicBoolean accepting = new AtomicBoolean(true);
+
+    // Transporte del estado hacia la instancia sucesora (fichero compartido o en memoria)
+    @Autowired
+    private RoomStateTransport roomStateTransport;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    // Límites de ritmo y de capacidad (salas, jugadores, respuestas)
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private AnswerTracer answerTracer;
+
+    // Escritura por lotes del modo a su ritmo (ver flushProgress)
+    @Autowired
+    private ProgressWriter progressWriter;
+
+    // Imágenes de las preguntas: se precargan al abrirlas, antes de que las pidan todos los jugadores a la vez
+    @Autowired
+    private MediaPreloader mediaPreloader;
+
+    // Modo a su ritmo: pasos de los jugadores pendientes de llegar a la BD
+    private final ConcurrentLinkedQueue<ProgressEvent> pendingProgress = new ConcurrentLinkedQueue<>();
+
+    // Cada cuánto se vuelcan los pasos pendientes (y se cierran los plazos vencidos)
+    @Value("${quizlive.self-paced.flush-interval-ms:500}")
+    private long progressFlushMillis;
+
+    // Margen sobre el plazo de cada pregunta antes de darla por perdida si el jugador no responde
+    // (pestaña cerrada); si responde tarde, se le cuenta como tiempo agotado igualmente
+    private static final long SELF_PACED_GRACE_MILLIS = 2000;
+
+    // Jugadores en las salas de este nodo (para el tope global)
+    private final java.util.concurrent.atomic.AtomicInteger activePlayers = new java.util.concurrent.atomic.AtomicInteger();
+
+    // Tiempo máximo que se aparca una petición de long-poll antes de devolver el estado sin cambios
+    @Value("${quizlive.play.long-poll-timeout-seconds:25}")
+    private int longPollTimeoutSeconds;
+
+    // Tiempo máximo para terminar las respuestas en curso al apagar
+    @Value("${quizlive.engine.drain-timeout-seconds:20}")
+    private int drainTimeoutSeconds;
+
+    // Al arrancar: recoger las salas que haya dejado la instancia anterior (solo con handoff configurado).
+    // Se sigue mirando cada segundo por si la anterior se apaga después (rolling restart).
+    // Y el volcado periódico del modo a su ritmo, en el hilo de persistencia (no en el de temporizadores).
+    @PostConstruct
+    public void startBackgroundTasks() {
+        if (roomStateTransport.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    if (accepting.get()) importHandoff();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, 0, 1, TimeUnit.SECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            expireSelfPacedCursors();
+            if (!pendingProgress.isEmpty()) persistAsync(this::flushProgress);
+        }, progressFlushMillis, progressFlushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isAcceptingRooms() {
+        return accepting.get();
+    }
+
+    private static ExecutorService newAnswerPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(ANSWER_THREADS, ANSWER_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(ANSWER_QUEUE));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // --- CONTROL DE ADMISIÓN (lanzan AdmissionRejectedException) ---
+
+    // Antes de crear una sala nueva (y de escribir nada en la BD)
+    public void admitRoom() {
+        admissionControl.admitRoom(activeRooms.size());
+    }
+
+    // Antes de buscar la sala; clientKey identifica al navegador (cookie) o, sin ella, a la IP
+    public void admitJoinAttempt(String clientKey) {
+        admissionControl.admitJoinAttempt(clientKey);
+    }
+
+    // Antes de dar de alta a un jugador en una sala que existe
+    public void admitJoin(String pin) {
+        admissionControl.admitJoin(pin, activePlayers.get());
+    }
+
+    public java.util.Map<String, Object> getAdmissionStats() {
+        return admissionControl.stats(activeRooms.size(), activePlayers.get());
+    }
+
+    // Latencias por etapa de las respuestas (ver AnswerTracer)
+    public java.util.Map<String, Object> getLatencyStats() {
+        return answerTracer.globalStats();
+    }
+
+    public java.util.Map<String, Object> getLatencyStats(String pin) {
+        return answerTracer.roomStats(pin);
+    }
+
+    // Inicializar sala en memoria con la clave de respuestas de sus preguntas (en orden)
+    // selfPaced: cada jugador avanza a su ritmo con su propio plazo por pregunta
+    // La admisión (admitRoom) va antes, en quien crea la sala, para no rechazar con las filas ya escritas
+    public boolean initRoom(String pin, Long gameRoomId, int timeLimitSeconds, ScoringPolicy scoringPolicy,
+                            long[] roomQuestionIds, int[] correctOptions, boolean selfPaced) {
+        if (!accepting.get()) {
+            log("Sala RECHAZADA: el motor se está apagando", pin);
+            return false;
+        }
+        ActiveRoom room = new ActiveRoom(pin, gameRoomId, timeLimitSeconds, scoringPolicy, roomQuestionIds, correctOptions);
+        room.setSelfPaced(selfPaced);
+        activeRooms.putIfAbsent(pin, room);
+        log("Sala inicializada en memoria (Engine)" + (selfPaced ? " - modo a su ritmo" : ""), pin);
+        return true;
+    }
+
+    // Recuperar en memoria una sala que solo está en la BD (p.ej. reinicio sin handoff).
+    // La pregunta queda cerrada: el host continúa con "Siguiente".
+    public void recoverRoom(String pin, Long gameRoomId, int timeLimitSeconds, ScoringPolicy scoringPolicy,
+                            long[] roomQuestionIds, int[] correctOptions,
+                            RoomStatus status, int questionIndex, java.util.Map<Long, Integer> scores,
+                            java.util.LinkedHashMap<Long, String> nicknames,
+                            boolean selfPaced, java.util.Map<Long, Integer> cursors) {
+        ActiveRoom room = new ActiveRoom(pin, gameRoomId, timeLimitSeconds, scoringPolicy, roomQuestionIds, correctOptions);
+        room.getState().restore(RoomStateMachine.pack(status, false, questionIndex, 0));
+        room.getScores().putAll(scores);
+        nicknames.forEach((playerId, nickname) -> room.getRoster().add(playerId, nickname));
+        room.setSelfPaced(selfPaced);
+        // El reloj de la pregunta en curso se perdió: vuelve a empezar cuando el jugador la vea
+        cursors.forEach((playerId, index) -> room.restoreCursor(playerId, index, 0));
+        if (activeRooms.putIfAbsent(pin, room) == null) {
+            activePlayers.addAndGet(scores.size());
+            log("Sala recuperada desde BD: " + status + " pregunta " + questionIndex, pin);
+        }
+    }
+
+    // Recuentos de respuestas y aciertos de una sala recuperada desde la BD (para los resultados finales)
+    public void restoreAnswerStats(String pin, int[] answersByQuestion, int[] correctByQuestion,
+                                   java.util.Map<Long, Integer> answersByPlayer, java.util.Map<Long, Integer> correctByPlayer) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room != null) room.restoreAnswerStats(answersByQuestion, correctByQuestion, answersByPlayer, correctByPlayer);
+    }
+
+    // Reserva atómica del nick en la sala (sin recorrer los jugadores de la BD)
+    public boolean reserveNickname(String pin, String nickname) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null && room.getRoster().reserve(nickname);
+    }
+
+    public void releaseNickname(String pin, String nickname) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room != null) room.getRoster().release(nickname);
+    }
+
+    // Alta del jugador en la sala en memoria (puntuación 0) y en el roster del lobby.
+    // Devuelve su slot en el roster (va en el token del jugador), o -1 si la sala no está.
+    public int registerPlayer(String pin, Long playerId, String nickname) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return -1;
+        if (room.getScores().putIfAbsent(playerId, 0) == null) activePlayers.incrementAndGet();
+        return room.getRoster().add(playerId, nickname);
+    }
+
+    // --- Vista del jugador desde memoria (sin cargar Player ni GameRoom) ---
+
+    public String getNickname(String pin, int slot, long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getRoster().nicknameOf(slot, playerId) : null;
+    }
+
+    public int getScore(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getScores().getOrDefault(playerId, 0) : 0;
+    }
+
+    // Posición en el ranking (1 = primero; empates comparten puesto)
+    public int getPosition(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return 0;
+        int score = room.getScores().getOrDefault(playerId, 0);
+        int ahead = 0;
+        for (int other : room.getScores().values()) {
+            if (other > score) ahead++;
+        }
+        return ahead + 1;
+    }
+
+    public int getPlayerCount(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getScores().size() : 0;
+    }
+
+    public int getTimeLimitSeconds(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getTimeLimitSeconds() : 0;
+    }
+
+    public int getTotalQuestions(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getTotalQuestions() : 0;
+    }
+
+    // ID de la RoomQuestion en la posición dada (-1 si no existe)
+    public long getRoomQuestionId(String pin, int index) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || index < 0 || index >= room.getTotalQuestions()) return -1;
+        return room.getRoomQuestionId(index);
+    }
+
+    // ¿Acertó la pregunta actual? (se sabe en memoria por su racha)
+    public boolean wasAnswerCorrect(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return false;
+        return room.answeredCorrectly(playerId, RoomStateMachine.epochOf(room.getState().current()));
+    }
+
+    // Roster del lobby (null si la sala no está en memoria)
+    public LobbyRoster getRoster(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getRoster() : null;
+    }
+
+    public boolean isActive(String pin) {
+        return activeRooms.containsKey(pin);
+    }
+
+    // Palabra de estado actual (RoomStateMachine.REJECTED si la sala no está en memoria)
+    public long getState(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? room.getState().current() : RoomStateMachine.REJECTED;
+    }
+
+    // Transición LOBBY -> PLAYING. Devuelve el estado nuevo o REJECTED si ya había empezado.
+    public long startGame(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return RoomStateMachine.REJECTED;
+        long state = room.getState().start();
+        if (state != RoomStateMachine.REJECTED) {
+            if (room.isSelfPaced()) {
+                // Sin pregunta común ni temporizador de sala: cada jugador abre la suya
+                room.getState().close(RoomStateMachine.epochOf(state));
+                // Cada jugador va por una pregunta distinta: se precargan todas
+                long[] roomQuestionIds = new long[room.getTotalQuestions()];
+                for (int i = 0; i < roomQuestionIds.length; i++) roomQuestionIds[i] = room.getRoomQuestionId(i);
+                mediaPreloader.preload(roomQuestionIds);
+                log("Partida a su ritmo INICIADA", pin);
+            } else {
+                openQuestion(room, state);
+            }
+            wakeWaiters(room, state);
+        }
+        return state;
+    }
+
+    // Transición a la siguiente pregunta (o FINISHED). Solo avanza si la sala sigue en
+    // expectedIndex: un doble click en "Siguiente" no se salta preguntas.
+    public long nextQuestion(String pin, int expectedIndex) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return RoomStateMachine.REJECTED;
+        long state = room.getState().advance(expectedIndex, room.getTotalQuestions());
+        if (state == RoomStateMachine.REJECTED) {
+            log("Transición ignorada (ya se había avanzado)", pin);
+            return state;
+        }
+        if (RoomStateMachine.statusOf(state) == RoomStatus.PLAYING) {
+            openQuestion(room, state);
+        } else {
+            cancelTimer(room);
+            log("Partida FINALIZADA", pin);
+        }
+        wakeWaiters(room, state);
+        return state;
+    }
+
+    // --- MODO A SU RITMO (cursores por jugador en memoria, volcado a la BD por lotes) ---
+
+    public boolean isSelfPaced(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null && room.isSelfPaced();
+    }
+
+    // Pregunta actual del jugador; la primera vez que la ve arranca su plazo.
+    // Devuelve el total de preguntas si ya ha terminado y -1 si la sala no está en juego.
+    public int openSelfPacedQuestion(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || !room.isSelfPaced() || !room.getScores().containsKey(playerId)) return -1;
+        if (RoomStateMachine.statusOf(room.getState().current()) != RoomStatus.PLAYING) return -1;
+        while (true) {
+            ActiveRoom.PlayerCursor cursor = room.cursorOf(playerId);
+            if (cursor.getIndex() >= room.getTotalQuestions() || cursor.isStarted()) return cursor.getIndex();
+            if (room.moveCursor(playerId, cursor, new ActiveRoom.PlayerCursor(cursor.getIndex(), System.nanoTime()))) {
+                return cursor.getIndex();
+            }
+        }
+    }
+
+    // Milisegundos que le quedan al jugador para su pregunta actual
+    public long getSelfPacedRemainingMillis(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return 0;
+        ActiveRoom.PlayerCursor cursor = room.cursorOf(playerId);
+        if (!cursor.isStarted()) return TimeUnit.SECONDS.toMillis(room.getTimeLimitSeconds());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cursor.getStartNanos());
+        return Math.max(0, TimeUnit.SECONDS.toMillis(room.getTimeLimitSeconds()) - elapsed);
+    }
+
+    // Respuesta en modo a su ritmo: se corrige, puntúa y avanza el cursor en el hilo de la petición
+    // (solo memoria) y el paso queda pendiente para el próximo lote. questionIndex es la pregunta que
+    // veía el jugador: un doble envío o una respuesta a una pregunta ya cerrada se ignora (null).
+    public Boolean submitSelfPacedAnswer(String pin, Long playerId, int questionIndex, int optionIndex) {
+        long receivedNanos = System.nanoTime();
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || !room.isSelfPaced() || !room.getScores().containsKey(playerId)) return null;
+        if (RoomStateMachine.statusOf(room.getState().current()) != RoomStatus.PLAYING) return null;
+
+        admissionControl.admitAnswer(pin, playerId);
+
+        ActiveRoom.PlayerCursor cursor = room.cursorOf(playerId);
+        if (cursor.getIndex() != questionIndex || !cursor.isStarted() || questionIndex >= room.getTotalQuestions()) return null;
+
+        long limitNanos = TimeUnit.SECONDS.toNanos(room.getTimeLimitSeconds());
+        long elapsedNanos = Math.max(0, receivedNanos - cursor.getStartNanos());
+        boolean inTime = elapsedNanos <= limitNanos;
+        boolean isCorrect = inTime && room.getCorrectOption(questionIndex) == optionIndex;
+
+        // CAS del cursor: si otra petición (o el barrido de plazos) ya lo movió, esta no cuenta
+        if (!room.moveCursor(playerId, cursor, new ActiveRoom.PlayerCursor(questionIndex + 1, 0))) return null;
+
+        // La "epoch" de la racha es la pregunta del jugador (+1 para que la 0 no choque con "sin racha")
+        int streak = room.updateStreak(playerId, questionIndex + 1, isCorrect);
+        int points = room.getScoringPolicy().points(isCorrect, elapsedNanos, limitNanos, streak);
+        if (isCorrect) room.getScores().merge(playerId, points, Integer::sum);
+        if (inTime) room.recordAnswer(playerId, questionIndex, isCorrect);
+
+        pendingProgress.add(new ProgressEvent(playerId, questionIndex, room.getRoomQuestionId(questionIndex),
+                inTime ? optionIndex : -1, isCorrect, points, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+        finishIfEveryoneDone(room);
+        return isCorrect;
+    }
+
+    // Progreso agregado para el host: sin recorrer la BD, y los contadores ya van sumados
+    public java.util.Map<String, Object> getSelfPacedProgress(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || !room.isSelfPaced()) return null;
+        int players = room.getScores().size();
+        int total = room.getTotalQuestions();
+        long done = room.getQuestionsDone();
+
+        // Cuántos jugadores hay en cada pregunta (los que no han empezado cuentan en la primera)
+        int[] atQuestion = new int[total];
+        int tracked = 0;
+        for (ActiveRoom.PlayerCursor cursor : room.getCursors().values()) {
+            if (cursor.getIndex() < total) atQuestion[cursor.getIndex()]++;
+        }
+        for (int count : atQuestion) tracked += count;
+        atQuestion[0] += Math.max(0, players - tracked - room.getFinishedPlayers());
+
+        java.util.Map<String, Object> progress = new java.util.LinkedHashMap<>();
+        progress.put("status", RoomStateMachine.statusOf(room.getState().current()));
+        progress.put("players", players);
+        progress.put("finishedPlayers", room.getFinishedPlayers());
+        progress.put("totalQuestions", total);
+        progress.put("answered", done);
+        progress.put("percentComplete", players == 0 || total == 0 ? 0 : Math.min(100, Math.round(done * 1000.0 / ((long) players * total)) / 10.0));
+        progress.put("atQuestion", atQuestion);
+        return progress;
+    }
+
+    // El host termina la partida: FINISHED (si no lo estaba ya) y volcado inmediato del progreso
+    public long finishSelfPaced(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || !room.isSelfPaced()) return RoomStateMachine.REJECTED;
+        long state = room.getState().finish();
+        if (state != RoomStateMachine.REJECTED) {
+            log("Partida a su ritmo FINALIZADA (" + room.getFinishedPlayers() + "/" + room.getScores().size() + " han terminado)", pin);
+            wakeWaiters(room, state);
+        }
+        flushProgressNow();
+        return state;
+    }
+
+    private void finishIfEveryoneDone(ActiveRoom room) {
+        if (room.getFinishedPlayers() >= room.getScores().size()) {
+            long state = room.getState().finish();
+            if (state != RoomStateMachine.REJECTED) {
+                log("Todos los jugadores han terminado: partida FINALIZADA", room.getPin());
+                wakeWaiters(room, state);
+                persistAsync(this::flushProgress);
+            }
+        }
+    }
+
+    // Barrido periódico: las preguntas cuyo plazo (más un margen) ha vencido sin respuesta se dan por perdidas
+    private void expireSelfPacedCursors() {
+        long now = System.nanoTime();
+        for (ActiveRoom room : activeRooms.values()) {
+            if (!room.isSelfPaced() || RoomStateMachine.statusOf(room.getState().current()) != RoomStatus.PLAYING) continue;
+            long deadlineNanos = TimeUnit.SECONDS.toNanos(room.getTimeLimitSeconds()) + TimeUnit.MILLISECONDS.toNanos(SELF_PACED_GRACE_MILLIS);
+            boolean expired = false;
+            for (java.util.Map.Entry<Long, ActiveRoom.PlayerCursor> entry : room.getCursors().entrySet()) {
+                ActiveRoom.PlayerCursor cursor = entry.getValue();
+                if (!cursor.isStarted() || now - cursor.getStartNanos() <= deadlineNanos) continue;
+                int index = cursor.getIndex();
+                if (room.moveCursor(entry.getKey(), cursor, new ActiveRoom.PlayerCursor(index + 1, 0))) {
+                    room.updateStreak(entry.getKey(), index + 1, false);
+                    pendingProgress.add(new ProgressEvent(entry.getKey(), index, room.getRoomQuestionId(index), -1, false, 0,
+                            TimeUnit.NANOSECONDS.toMillis(now - cursor.getStartNanos())));
+                    expired = true;
+                }
+            }
+            if (expired) finishIfEveryoneDone(room);
+        }
+    }
+
+    // Vuelca los pasos pendientes en un lote (siempre desde el hilo de persistencia)
+    public void flushPendingProgress() {
+        flushProgress();
+    }
+
+    private void flushProgress() {
+        List<ProgressEvent> batch = new ArrayList<>();
+        ProgressEvent event;
+        while ((event = pendingProgress.poll()) != null) batch.add(event);
+        if (batch.isEmpty()) return;
+        try {
+            progressWriter.write(batch);
+        } catch (RuntimeException e) {
+            // La BD ha fallado: se devuelven a la cola para el siguiente intento
+            pendingProgress.addAll(batch);
+            throw e;
+        }
+    }
+
+    // Volcado síncrono (fin de partida: puntos y respuestas en la BD antes de materializar los resultados)
+    private void flushProgressNow() {
+        try {
+            persistenceExecutor.submit(this::flushProgress).get(drainTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            flushProgress(); // Apagándose: en el hilo actual
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("[Engine] ERROR volcando progreso: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- RESULTADOS FINALES ---
+
+    // Foto de los resultados de una partida terminada, sacada de la memoria del motor
+    // (puntuaciones, nicks del roster y recuentos mantenidos al puntuar). null si no ha terminado.
+    // Antes espera a las respuestas aceptadas que siguen en el pool: cuentan aunque la sala ya esté cerrada
+    public RoomResults getFinalResults(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || RoomStateMachine.statusOf(room.getState().current()) != RoomStatus.FINISHED) return null;
+        try {
+            if (!room.awaitAnswers(TimeUnit.SECONDS.toMillis(drainTimeoutSeconds))) {
+                log("AVISO: resultados con " + room.getAnswersInFlight() + " respuestas aún sin puntuar", pin);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return resultsOf(room);
+    }
+
+    // La misma foto con la partida aún en juego (ranking provisional). null si la sala no está en memoria
+    public RoomResults getLiveResults(String pin) {
+        ActiveRoom room = activeRooms.get(pin);
+        return room != null ? resultsOf(room) : null;
+    }
+
+    private RoomResults resultsOf(ActiveRoom room) {
+        int total = room.getTotalQuestions();
+        long[] roomQuestionIds = new long[total];
+        int[] answers = new int[total];
+        int[] correct = new int[total];
+        for (int i = 0; i < total; i++) {
+            roomQuestionIds[i] = room.getRoomQuestionId(i);
+            answers[i] = room.getQuestionAnswers(i);
+            correct[i] = room.getQuestionCorrect(i);
+        }
+        java.util.Map<Long, String> nicknames = new java.util.HashMap<>();
+        List<Long> rosterIds = room.getRoster().allPlayerIds();
+        List<String> rosterNicks = room.getRoster().all();
+        for (int i = 0; i < rosterIds.size() && i < rosterNicks.size(); i++) {
+            nicknames.put(rosterIds.get(i), rosterNicks.get(i));
+        }
+        List<RoomResults.PlayerLine> players = new ArrayList<>();
+        room.getScores().forEach((playerId, score) -> players.add(new RoomResults.PlayerLine(playerId,
+                nicknames.get(playerId), score, room.getPlayerAnswers(playerId), room.getPlayerCorrect(playerId))));
+        return new RoomResults(room.getGameRoomId(), roomQuestionIds, answers, correct, players);
+    }
+
+    // Saca de memoria una sala terminada cuyos resultados ya están en la BD
+    public void evictRoom(String pin) {
+        ActiveRoom room = activeRooms.remove(pin);
+        if (room == null) return;
+        cancelTimer(room);
+        wakeWaiters(room, room.getState().current());
+        activePlayers.addAndGet(-room.getScores().size());
+        admissionControl.forgetRoom(pin);
+        answerTracer.forgetRoom(pin);
+        log("Sala liberada de memoria (resultados materializados)", pin);
+    }
+
+    // --- LONG-POLL ---
+
+    // Espera a que la sala pase a un epoch distinto de lastEpoch (nueva pregunta, inicio o fin).
+    // La petición queda aparcada sin hilo de servlet; si ya ha cambiado se responde al momento.
+    // Aparcar con la sala o el jugador en su tope de esperas abiertas se rechaza (AdmissionRejectedException)
+    public DeferredResult<RoomStateView> awaitStateChange(String pin, long playerId, long lastEpoch) {
+        DeferredResult<RoomStateView> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(longPollTimeoutSeconds));
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null || !accepting.get()) {
+            result.setResult(RoomStateView.of(RoomStateMachine.REJECTED));
+            return result;
+        }
+
+        // Si ya ha cambiado se responde sin aparcar (ni contar para los topes)
+        long current = room.getState().current();
+        if (RoomStateMachine.epochOf(current) != lastEpoch) {
+            result.setResult(RoomStateView.of(current));
+            return result;
+        }
+
+        admissionControl.admitWait(room.getWaiters().size());
+        if (!room.addWaiter(playerId, result, admissionControl.getMaxPlayerWaits())) {
+            admissionControl.reject(AdmissionControl.Rejection.PLAYER_WAITS);
+        }
+        // Sin cambios al expirar: se devuelve el mismo estado y el cliente vuelve a preguntar
+        result.onTimeout(() -> result.setResult(RoomStateView.of(room.getState().current())));
+        result.onCompletion(() -> room.removeWaiter(playerId, result));
+
+        // Comprobar después de registrarse: si la transición ocurrió entre medias no se pierde el aviso
+        long state = room.getState().current();
+        if (RoomStateMachine.epochOf(state) != lastEpoch) {
+            room.getWaiters().remove(result);
+            result.setResult(RoomStateView.of(state));
+        }
+        return result;
+    }
+
+    // Al empezar el cierre (antes del apagado ordenado del servidor) se sueltan los long-poll:
+    // si no, el servidor esperaría a que expiraran antes de poder parar
+    @org.springframework.context.event.EventListener(org.springframework.context.event.ContextClosedEvent.class)
+    public void releaseWaiters() {
+        for (ActiveRoom room : activeRooms.values()) {
+            wakeWaiters(room, room.getState().current());
+        }
+    }
+
+    // Completa de golpe todas las peticiones aparcadas de la sala
+    private void wakeWaiters(ActiveRoom room, long state) {
+        if (room.getWaiters().isEmpty()) return;
+        RoomStateView view = RoomStateView.of(state);
+        int woken = 0;
+        for (DeferredResult<RoomStateView> waiter : room.getWaiters()) {
+            if (room.getWaiters().remove(waiter) && waiter.setResult(view)) woken++;
+        }
+        log("Long-poll: " + woken + " jugadores avisados", room.getPin());
     }
 
     // Requisito B: Temporizador concurrente
-    public void startQuestionTimer(String pin, int seconds) {
-        ActiveRoom room = activeRooms.get(pin);
-        if (room != null) {
-            room.resetForNewQuestion();
-            log("Pregunta abierta. Timer iniciado: " + seconds + "s", pin);
-            
-            // Cancelar timer anterior si existe
-            if(room.getTimerTask() != null && !room.getTimerTask().isDone()) {
-                room.getTimerTask().cancel(false);
+    private void openQuestion(ActiveRoom room, long state) {
+        // Reloj monotónico: la puntuación por rapidez no depende de la hora del sistema
+        room.setClock(new ActiveRoom.QuestionClock(RoomStateMachine.epochOf(state), System.nanoTime()));
+        // La pregunta que se abre y la siguiente (así al avanzar ya está en memoria)
+        int index = RoomStateMachine.indexOf(state);
+        if (index + 1 < room.getTotalQuestions()) {
+            mediaPreloader.preload(room.getRoomQuestionId(index), room.getRoomQuestionId(index + 1));
+        } else if (index < room.getTotalQuestions()) {
+            mediaPreloader.preload(room.getRoomQuestionId(index));
+        }
+        log("Pregunta " + RoomStateMachine.indexOf(state) + " abierta. Timer iniciado: " + room.getTimeLimitSeconds() + "s", room.getPin());
+        scheduleClose(room, RoomStateMachine.epochOf(state), TimeUnit.SECONDS.toMillis(room.getTimeLimitSeconds()));
+    }
+
+    private void scheduleClose(ActiveRoom room, long epoch, long delayMillis) {
+        // Cancelar timer anterior si existe
+        cancelTimer(room);
+
+        // Tarea del Timer: solo cierra la pregunta para la que se programó (mismo epoch)
+        ScheduledFuture<?> task = scheduler.schedule(() -> {
+            // Cierre automático
+            if (room.getState().close(epoch)) {
+                log("Temporizador Finalizado. Pregunta CERRADA automaticamente.", room.getPin());
             }
+        }, delayMillis, TimeUnit.MILLISECONDS);
 
-            // Tarea del Timer
-            ScheduledFuture<?> task = scheduler.schedule(() -> {
-                // Cierre automático
-                room.getQuestionOpen().set(false);
-                log("Temporizador Finalizado. Pregunta CERRADA automaticamente.", pin);
-            }, seconds, TimeUnit.SECONDS);
-            
-            room.setTimerTask(task);
+        room.setTimerTask(task);
+    }
+
+    private void cancelTimer(ActiveRoom room) {
+        if(room.getTimerTask() != null && !room.getTimerTask().isDone()) {
+            room.getTimerTask().cancel(false);
         }
     }
 
+    public boolean hasAnswered(String pin, Long playerId) {
+        ActiveRoom room = activeRooms.get(pin);
+        if (room == null) return false;
+        return room.hasAnswered(playerId, RoomStateMachine.epochOf(room.getState().current()));
+    }
+
     // Requisito C: Procesamiento concurrente de respuestas
-    // Recibe los datos y lo manda a un hilo aparte
-    public void processAnswerAsync(String pin, Long playerId, boolean isCorrect, Runnable persistCallback) {
+    // Corrige con la clave en memoria (sin BD) y manda la puntuación a un hilo aparte.
+    // El plazo se decide aquí, con la hora de llegada: la espera en la cola del pool no penaliza al jugador.
+    // Devuelve si la respuesta se ha aceptado (y si es correcta) o se ha rechazado y no cuenta.
+    // trace recoge las marcas de tiempo de cada etapa (puede ser null).
+    public AnswerOutcome processAnswerAsync(String pin, Long playerId, int optionIndex, AnswerPersister persister, AnswerTrace trace) {
+        // Marca de llegada antes de encolar
+        long receivedNanos = System.nanoTime();
+
         ActiveRoom room = activeRooms.get(pin);
-        if (room == null) return;
+        if (room == null || !room.getScores().containsKey(playerId)) return AnswerOutcome.REJECTED;
+
+        // En curso desde antes de leer el estado: los resultados finales esperan a toda respuesta que viera
+        // la pregunta abierta (la suelta la tarea del pool al terminar, o el finally si no llega a encolarse)
+        room.answerStarted();
+        boolean queued = false;
+        try {
+            // Límite de ritmo por jugador y por sala (429 si se pasa)
+            admissionControl.admitAnswer(pin, playerId);
+
+            // 1. La pregunta tiene que estar abierta al llegar (lectura atómica del estado)
+            long state = room.getState().current();
+            if (!RoomStateMachine.isOpen(state)) {
+                log("Respuesta RECHAZADA (Pregunta cerrada) - Jugador " + playerId, pin);
+                return AnswerOutcome.REJECTED;
+            }
+            int index = RoomStateMachine.indexOf(state);
+            if (index >= room.getTotalQuestions()) return AnswerOutcome.REJECTED; // Sala sin preguntas
+            long epoch = RoomStateMachine.epochOf(state);
+            if (room.hasAnswered(playerId, epoch)) {
+                log("Respuesta RECHAZADA (Duplicada) - Jugador " + playerId, pin);
+                return AnswerOutcome.REJECTED;
+            }
+
+            // 2. Dentro de plazo según la hora de llegada. Si el reloj aún no se ha publicado para este epoch,
+            // la pregunta acaba de abrirse
+            ActiveRoom.QuestionClock clock = room.getClock();
+            long elapsedNanos = clock.getEpoch() == epoch ? Math.max(0, receivedNanos - clock.getStartNanos()) : 0;
+            long limitNanos = TimeUnit.SECONDS.toNanos(room.getTimeLimitSeconds());
+            if (elapsedNanos > limitNanos) {
+                log("Respuesta RECHAZADA (Tiempo agotado, " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms) - Jugador " + playerId, pin);
+                return AnswerOutcome.REJECTED;
+            }
+            boolean isCorrect = room.getCorrectOption(index) == optionIndex;
+            long roomQuestionId = room.getRoomQuestionId(index);
 
-        // Enviamos tarea (Runnable) al Pool de Hilos
-        answerThreadPool.submit(() -> {
+            // Enviamos tarea (Runnable) al Pool de Hilos
+            if (trace != null) trace.markEnqueued();
             try {
-                // Requisito E: Logs mostrando nombre del hilo y acción
-                
-                // 1. Chequear si la pregunta sigue abierta (AtomicBoolean - Thread Safe)
-                if (!room.getQuestionOpen().get()) {
-                    log("Respuesta RECHAZADA (Tiempo agotado) - Jugador " + playerId, pin);
-                    return;
-                }
-                
-                // 2. Chequear duplicados (Set Concurrente)
-                // add devuelve false si ya existía
-                if (!room.getPlayersWhoAnsweredCurrentQuestion().add(playerId)) {
-                    log("Respuesta RECHAZADA (Duplicada) - Jugador " + playerId, pin);
-                    return;
-                }
-                
-                // 3. Actualizar Puntuación en Memoria (Requisito D: Consistencia)
-                if (isCorrect) {
-                     // merge es atómico en ConcurrentHashMap
-                     room.getScores().merge(playerId, 1, Integer::sum);
-                     log("Respuesta CORRECTA (+1). Total: " + room.getScores().get(playerId) + " - Jugador " + playerId, pin);
-                } else {
-                     log("Respuesta INCORRECTA - Jugador " + playerId, pin);
+                answerThreadPool.submit(() -> {
+                    if (trace != null) trace.markDequeued();
+                    try {
+                        // Requisito E: Logs mostrando nombre del hilo y acción
+                        // Aceptada al llegar: aunque la pregunta se haya cerrado mientras esperaba en la cola, cuenta
+
+                        // 3. Chequear duplicados (Mapa Concurrente por epoch): dos envíos a la vez pasan el filtro de arriba
+                        if (!room.markAnswered(playerId, epoch)) {
+                            log("Respuesta RECHAZADA (Duplicada) - Jugador " + playerId, pin);
+                            return;
+                        }
+                        room.recordAnswer(playerId, index, isCorrect);
+
+                        // 4. Puntuar por rapidez y racha (Requisito D: Consistencia)
+                        int streak = room.updateStreak(playerId, epoch, isCorrect);
+                        int points = room.getScoringPolicy().points(isCorrect, elapsedNanos, limitNanos, streak);
+                        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+                        if (isCorrect) {
+                             // merge es atómico en ConcurrentHashMap
+                             room.getScores().merge(playerId, points, Integer::sum);
+                             log("Respuesta CORRECTA (+" + points + ", " + elapsedMillis + "ms, racha " + streak + "). Total: "
+                                     + room.getScores().get(playerId) + " - Jugador " + playerId, pin);
+                        } else {
+                             log("Respuesta INCORRECTA - Jugador " + playerId, pin);
+                        }
+
+                        if (trace != null) trace.markScored();
+
+                        // 5. Persistir en DB (Callback al servicio Spring)
+                        // Hacemos esto dentro del hilo para no bloquear el hilo principal
+                        if (persister != null) {
+                            persister.persist(roomQuestionId, optionIndex, isCorrect, points, elapsedMillis);
+                        }
+                        if (trace != null) trace.markPersisted();
+
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        // También las rechazadas: su espera en cola es justo lo que interesa ver
+                        if (trace != null) answerTracer.record(pin, trace);
+                        room.answerFinished();
+                    }
+                });
+                queued = true;
+            } catch (RejectedExecutionException e) {
+                if (accepting.get()) {
+                    // Cola llena: el nodo está saturado, se descarta con 503 en vez de encolar sin límite
+                    log("Respuesta RECHAZADA (Sobrecarga) - Jugador " + playerId, pin);
+                    admissionControl.reject(AdmissionControl.Rejection.OVERLOADED);
                 }
-                
-                // 4. Persistir en DB (Callback al servicio Spring)
-                // Hacemos esto dentro del hilo para no bloquear el hilo principal, 
-                // pero cuidado con la transacción JPA, normalmente se hace aquí si se pasa el contexto
-                if (persistCallback != null) {
-                    persistCallback.run(); 
+                // El pool ya está cerrado: la instancia se está apagando
+                log("Respuesta RECHAZADA (Motor apagándose) - Jugador " + playerId, pin);
+                return AnswerOutcome.REJECTED;
+            }
+            return isCorrect ? AnswerOutcome.ACCEPTED_CORRECT : AnswerOutcome.ACCEPTED_WRONG;
+        } finally {
+            if (!queued) room.answerFinished();
+        }
+    }
+
+    // Escritura asíncrona del estado de la sala en la BD.
+    // Un único hilo: las escrituras salen en el mismo orden que las transiciones.
+    public void persistAsync(Runnable task) {
+        try {
+            persistenceExecutor.submit(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
-                
-            } catch (Exception e) {
-                e.printStackTrace();
+            });
+        } catch (RejectedExecutionException e) {
+            // Apagándose: se ejecuta en el hilo actual para no perder la escritura
+            task.run();
+        }
+    }
+
+    // --- DRAIN & HANDOFF ---
+
+    // Apagado ordenado: no más salas, terminar respuestas en vuelo (y su persistencia)
+    // y traspasar las salas vivas, con el tiempo que les quedaba, a la instancia sucesora.
+    @PreDestroy
+    public void drainAndHandoff() {
+        if (!accepting.compareAndSet(true, false)) return;
+        System.out.println("[Engine] [" + Thread.currentThread().getName() + "] Drenando motor (" + activeRooms.size() + " salas)");
+
+        // 1. Terminar las respuestas en curso: cada tarea incluye su callback de persistencia
+        answerThreadPool.shutdown();
+        try {
+            if (!answerThreadPool.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS)) {
+                System.out.println("[Engine] Timeout drenando respuestas, se fuerza el cierre");
+                answerThreadPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            answerThreadPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        // Último lote del modo a su ritmo antes de cerrar el hilo de persistencia
+        persistAsync(this::flushProgress);
+        persistenceExecutor.shutdown();
+        try {
+            persistenceExecutor.awaitTermination(drainTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 2. Congelar temporizadores y sacar la foto de cada sala
+        List<RoomSnapshot> snapshots = new ArrayList<>();
+        for (ActiveRoom room : activeRooms.values()) {
+            // Soltar los long-poll: los clientes vuelven a preguntar y les atiende la sucesora
+            wakeWaiters(room, room.getState().current());
+            long remaining = 0;
+            ScheduledFuture<?> timer = room.getTimerTask();
+            if (timer != null && !timer.isDone()) {
+                remaining = Math.max(0, timer.getDelay(TimeUnit.MILLISECONDS));
+                timer.cancel(false);
+            }
+            snapshots.add(room.toSnapshot(remaining));
+        }
+        scheduler.shutdownNow();
+
+        // 3. Entregar las salas a la sucesora
+        if (!snapshots.isEmpty() && !roomStateTransport.isEnabled()) {
+            System.out.println("[Engine] Sin handoff configurado: " + snapshots.size() + " salas se recuperarán desde la BD");
+        } else if (!snapshots.isEmpty()) {
+            try {
+                // La siguiente encarnación de este mismo nodo recoge sus salas
+                roomStateTransport.send(clusterRouter.getSelfId(), snapshots);
+                System.out.println("[Engine] Handoff enviado: " + snapshots.size() + " salas -> " + clusterRouter.getSelfId());
+            } catch (IOException e) {
+                System.out.println("[Engine] ERROR escribiendo handoff: " + e.getMessage());
             }
-        });
+        }
+        activeRooms.clear();
+        activePlayers.set(0);
+        admissionControl.forgetAllRooms();
+        answerTracer.forgetAllRooms();
     }
-    
+
+    private void importHandoff() throws IOException {
+        List<RoomSnapshot> snapshots = roomStateTransport.receive(clusterRouter.getSelfId());
+        for (RoomSnapshot snapshot : snapshots) {
+            ActiveRoom room = ActiveRoom.fromSnapshot(snapshot);
+            if (activeRooms.putIfAbsent(room.getPin(), room) != null) continue;
+            activePlayers.addAndGet(room.getScores().size());
+            long state = room.getState().current();
+            if (RoomStateMachine.isOpen(state)) {
+                // Reanudar el temporizador con el tiempo que le quedaba
+                scheduleClose(room, RoomStateMachine.epochOf(state), snapshot.getRemainingMillis());
+            }
+            log("Sala recibida por handoff. Tiempo restante: " + snapshot.getRemainingMillis() + "ms", room.getPin());
+        }
+    }
+
     // Helper LOGS Requisito E
     private void log(String msg, String pin) {
         // [Room PIN] [Thread-Name] Mensaje
@@ -0,0 +1,59 @@
+package com.quizlive.engine;
+
+import java.util.List;
+
+/**
+ * Resultados en bruto de una sala terminada, tal como estaban en memoria.
+ * El servicio los ordena, les pone puesto y los guarda de una vez en la BD.
+ */
+public class RoomResults {
+    private final Long gameRoomId;
+
+    // Por pregunta, en el orden de la partida
+    private final long[] roomQuestionIds;
+    private final int[] questionAnswers;
+    private final int[] questionCorrect;
+
+    private final List<PlayerLine> players;
+
+    public RoomResults(Long gameRoomId, long[] roomQuestionIds, int[] questionAnswers, int[] questionCorrect,
+                       List<PlayerLine> players) {
+        this.gameRoomId = gameRoomId;
+        this.roomQuestionIds = roomQuestionIds;
+        this.questionAnswers = questionAnswers;
+        this.questionCorrect = questionCorrect;
+        this.players = players;
+    }
+
+    public Long getGameRoomId() { return gameRoomId; }
+    public int getTotalQuestions() { return roomQuestionIds.length; }
+    public long getRoomQuestionId(int index) { return roomQuestionIds[index]; }
+    public int getQuestionAnswers(int index) { return questionAnswers[index]; }
+    public int getQuestionCorrect(int index) { return questionCorrect[index]; }
+    public List<PlayerLine> getPlayers() { return players; }
+
+    /**
+     * Línea de un jugador: puntos, preguntas respondidas (con opción elegida) y aciertos.
+     */
+    public static class PlayerLine {
+        private final Long playerId;
+        private final String nickname;
+        private final int score;
+        private final int answered;
+        private final int correct;
+
+        public PlayerLine(Long playerId, String nickname, int score, int answered, int correct) {
+            this.playerId = playerId;
+            this.nickname = nickname;
+            this.score = score;
+            this.answered = answered;
+            this.correct = correct;
+        }
+
+        public Long getPlayerId() { return playerId; }
+        public String getNickname() { return nickname; }
+        public int getScore() { return score; }
+        public int getAnswered() { return answered; }
+        public int getCorrect() { return correct; }
+    }
+}
@@ -0,0 +1,120 @@
+package com.quizlive.engine;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Foto serializable de una ActiveRoom.
+ * Se usa para traspasar las salas vivas a la instancia sucesora en un reinicio
+ * (drain & handoff) sin que se pierdan puntuaciones ni el tiempo restante.
+ */
+public class RoomSnapshot implements Serializable {
+    private static final long serialVersionUID = 7L;
+
+    private String pin;
+    private Long gameRoomId;
+    private int timeLimitSeconds;
+    private ScoringPolicy scoringPolicy;
+    private long[] roomQuestionIds;
+    private int[] correctOptions;
+
+    // Palabra de estado de la RoomStateMachine (estado + pregunta + abierta + epoch)
+    private long stateWord;
+
+    // Reloj de la pregunta actual: epoch y milisegundos transcurridos (nanoTime no viaja entre JVMs)
+    private long clockEpoch;
+    private long elapsedMillis;
+
+    private Map<Long, Integer> scores = new HashMap<>();
+    private Map<Long, Long> answeredEpochs = new HashMap<>();
+    private Map<Long, Long> streaks = new HashMap<>();
+
+    // Nicks del lobby en orden de llegada (la versión del roster es su tamaño)
+    private List<String> roster = new ArrayList<>();
+    private List<Long> rosterPlayerIds = new ArrayList<>();
+
+    // Modo a su ritmo: pregunta de cada jugador y ms que llevaba en ella (si ya la había visto)
+    private boolean selfPaced;
+    private Map<Long, Integer> cursorIndexes = new HashMap<>();
+    private Map<Long, Long> cursorElapsedMillis = new HashMap<>();
+
+    // Recuentos para los resultados finales: respuestas y aciertos por pregunta y por jugador
+    private int[] questionAnswers = new int[0];
+    private int[] questionCorrect = new int[0];
+    private Map<Long, Integer> playerAnswers = new HashMap<>();
+    private Map<Long, Integer> playerCorrect = new HashMap<>();
+
+    // Milisegundos que le quedaban al temporizador en el momento de la foto
+    private long remainingMillis;
+
+    public RoomSnapshot() {}
+
+    public String getPin() { return pin; }
+    public void setPin(String pin) { this.pin = pin; }
+
+    public Long getGameRoomId() { return gameRoomId; }
+    public void setGameRoomId(Long gameRoomId) { this.gameRoomId = gameRoomId; }
+
+    public int getTimeLimitSeconds() { return timeLimitSeconds; }
+    public void setTimeLimitSeconds(int timeLimitSeconds) { this.timeLimitSeconds = timeLimitSeconds; }
+
+    public ScoringPolicy getScoringPolicy() { return scoringPolicy; }
+    public void setScoringPolicy(ScoringPolicy scoringPolicy) { this.scoringPolicy = scoringPolicy; }
+
+    public long[] getRoomQuestionIds() { return roomQuestionIds; }
+    public void setRoomQuestionIds(long[] roomQuestionIds) { this.roomQuestionIds = roomQuestionIds; }
+
+    public int[] getCorrectOptions() { return correctOptions; }
+    public void setCorrectOptions(int[] correctOptions) { this.correctOptions = correctOptions; }
+
+    public long getStateWord() { return stateWord; }
+    public void setStateWord(long stateWord) { this.stateWord = stateWord; }
+
+    public long getClockEpoch() { return clockEpoch; }
+    public void setClockEpoch(long clockEpoch) { this.clockEpoch = clockEpoch; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    public Map<Long, Integer> getScores() { return scores; }
+    public void setScores(Map<Long, Integer> scores) { this.scores = scores; }
+
+    public Map<Long, Long> getAnsweredEpochs() { return answeredEpochs; }
+    public void setAnsweredEpochs(Map<Long, Long> answeredEpochs) { this.answeredEpochs = answeredEpochs; }
+
+    public Map<Long, Long> getStreaks() { return streaks; }
+    public void setStreaks(Map<Long, Long> streaks) { this.streaks = streaks; }
+
+    public List<String> getRoster() { return roster; }
+    public void setRoster(List<String> roster) { this.roster = roster; }
+
+    public List<Long> getRosterPlayerIds() { return rosterPlayerIds; }
+    public void setRosterPlayerIds(List<Long> rosterPlayerIds) { this.rosterPlayerIds = rosterPlayerIds; }
+
+    public boolean isSelfPaced() { return selfPaced; }
+    public void setSelfPaced(boolean selfPaced) { this.selfPaced = selfPaced; }
+
+    public Map<Long, Integer> getCursorIndexes() { return cursorIndexes; }
+    public void setCursorIndexes(Map<Long, Integer> cursorIndexes) { this.cursorIndexes = cursorIndexes; }
+
+    public Map<Long, Long> getCursorElapsedMillis() { return cursorElapsedMillis; }
+    public void setCursorElapsedMillis(Map<Long, Long> cursorElapsedMillis) { this.cursorElapsedMillis = cursorElapsedMillis; }
+
+    public int[] getQuestionAnswers() { return questionAnswers; }
+    public void setQuestionAnswers(int[] questionAnswers) { this.questionAnswers = questionAnswers; }
+
+    public int[] getQuestionCorrect() { return questionCorrect; }
+    public void setQuestionCorrect(int[] questionCorrect) { this.questionCorrect = questionCorrect; }
+
+    public Map<Long, Integer> getPlayerAnswers() { return playerAnswers; }
+    public void setPlayerAnswers(Map<Long, Integer> playerAnswers) { this.playerAnswers = playerAnswers; }
+
+    public Map<Long, Integer> getPlayerCorrect() { return playerCorrect; }
+    public void setPlayerCorrect(Map<Long, Integer> playerCorrect) { this.playerCorrect = playerCorrect; }
+
+    public long getRemainingMillis() { return remainingMillis; }
+    public void setRemainingMillis(long remainingMillis) { this.remainingMillis = remainingMillis; }
+}
@@ -0,0 +1,113 @@
+package com.quizlive.engine;
+
+import com.quizlive.model.RoomStatus;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Máquina de estados de una sala, sin locks.
+ * Todo el estado cabe en un long que se cambia con CAS, así dos clicks
+ * simultáneos en "Siguiente" o el temporizador nunca pisan una transición:
+ * solo gana uno y el resto ve el estado nuevo.
+ *
+ * Formato de la palabra de estado:
+ *   bits 0-1   estado (ordinal de RoomStatus)
+ *   bit  2     pregunta abierta
+ *   bits 3-31  índice de la pregunta actual
+ *   bits 32-63 epoch (se incrementa en cada transición de pregunta)
+ */
+public class RoomStateMachine {
+
+    // Valor devuelto cuando una transición no se aplica
+    public static final long REJECTED = -1L;
+
+    private static final long STATUS_MASK = 0x3L;
+    private static final long OPEN_BIT = 0x4L;
+    private static final int INDEX_SHIFT = 3;
+    private static final long INDEX_MASK = (1L << 29) - 1;
+    private static final int EPOCH_SHIFT = 32;
+
+    private final AtomicLong word = new AtomicLong(pack(RoomStatus.LOBBY, false, 0, 0));
+
+    // Lectura barata (un volatile read) para cada petición de jugador
+    public long current() {
+        return word.get();
+    }
+
+    // LOBBY -> PLAYING con la pregunta 0 abierta
+    public long start() {
+        while (true) {
+            long s = word.get();
+            if (statusOf(s) != RoomStatus.LOBBY) return REJECTED;
+            long next = pack(RoomStatus.PLAYING, true, 0, epochOf(s) + 1);
+            if (word.compareAndSet(s, next)) return next;
+        }
+    }
+
+    // PLAYING(i) -> PLAYING(i+1) o FINISHED si era la última.
+    // expectedIndex < 0 significa "la pregunta que vea ahora"; si otro ya avanzó, se rechaza.
+    public long advance(int expectedIndex, int totalQuestions) {
+        long first = word.get();
+        int expected = expectedIndex >= 0 ? expectedIndex : indexOf(first);
+        while (true) {
+            long s = word.get();
+            if (statusOf(s) != RoomStatus.PLAYING || indexOf(s) != expected) return REJECTED;
+            int nextIndex = expected + 1;
+            long next = nextIndex < totalQuestions
+                    ? pack(RoomStatus.PLAYING, true, nextIndex, epochOf(s) + 1)
+                    : pack(RoomStatus.FINISHED, false, expected, epochOf(s) + 1);
+            if (word.compareAndSet(s, next)) return next;
+        }
+    }
+
+    // PLAYING -> FINISHED desde cualquier pregunta (modo a su ritmo: el host termina o acaban todos)
+    public long finish() {
+        while (true) {
+            long s = word.get();
+            if (statusOf(s) != RoomStatus.PLAYING) return REJECTED;
+            long next = pack(RoomStatus.FINISHED, false, indexOf(s), epochOf(s) + 1);
+            if (word.compareAndSet(s, next)) return next;
+        }
+    }
+
+    // Cierre de la pregunta por el temporizador: solo si sigue siendo la misma (mismo epoch)
+    public boolean close(long epoch) {
+        while (true) {
+            long s = word.get();
+            if (epochOf(s) != epoch || !isOpen(s)) return false;
+            if (word.compareAndSet(s, s & ~OPEN_BIT)) return true;
+        }
+    }
+
+    // Restaurar una palabra completa (handoff o recuperación desde la BD)
+    public void restore(long state) {
+        word.set(state);
+    }
+
+    // --- Decodificación ---
+
+    public static long pack(RoomStatus status, boolean open, int index, long epoch) {
+        return (epoch << EPOCH_SHIFT)
+                | (((long) index & INDEX_MASK) << INDEX_SHIFT)
+                | (open ? OPEN_BIT : 0L)
+                | status.ordinal();
+    }
+
+    // REJECTED no es una palabra de estado: quien pueda recibirlo (getState de una sala que ya no está) lo mira antes
+    public static RoomStatus statusOf(long state) {
+        if (state == REJECTED) throw new IllegalArgumentException("REJECTED no es un estado de sala");
+        return RoomStatus.values()[(int) (state & STATUS_MASK)];
+    }
+
+    public static boolean isOpen(long state) {
+        return (state & OPEN_BIT) != 0;
+    }
+
+    public static int indexOf(long state) {
+        return (int) ((state >>> INDEX_SHIFT) & INDEX_MASK);
+    }
+
+    public static long epochOf(long state) {
+        return state >>> EPOCH_SHIFT;
+    }
+}
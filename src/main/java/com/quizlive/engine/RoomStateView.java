@@ -0,0 +1,35 @@
+package com.quizlive.engine;
+
+import com.quizlive.model.RoomStatus;
+
+/**
+ * Vista de solo lectura de la palabra de estado de una sala (lo que recibe el navegador).
+ */
+public class RoomStateView {
+
+    private final RoomStatus status;
+    private final int questionIndex;
+    private final boolean open;
+    private final long epoch;
+
+    private RoomStateView(RoomStatus status, int questionIndex, boolean open, long epoch) {
+        this.status = status;
+        this.questionIndex = questionIndex;
+        this.open = open;
+        this.epoch = epoch;
+    }
+
+    // REJECTED (sala no está en memoria) -> status null y epoch -1
+    public static RoomStateView of(long state) {
+        if (state == RoomStateMachine.REJECTED) {
+            return new RoomStateView(null, 0, false, -1);
+        }
+        return new RoomStateView(RoomStateMachine.statusOf(state), RoomStateMachine.indexOf(state),
+                RoomStateMachine.isOpen(state), RoomStateMachine.epochOf(state));
+    }
+
+    public RoomStatus getStatus() { return status; }
+    public int getQuestionIndex() { return questionIndex; }
+    public boolean isOpen() { return open; }
+    public long getEpoch() { return epoch; }
+}
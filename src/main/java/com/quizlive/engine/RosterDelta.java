@@ -0,0 +1,24 @@
+package com.quizlive.engine;
+
+import java.util.List;
+
+/**
+ * Respuesta del roster del lobby: versión actual y los jugadores nuevos desde la versión del cliente.
+ * reset = true indica que "players" es la lista completa (el cliente debe reemplazar, no añadir).
+ */
+public class RosterDelta {
+
+    private final int version;
+    private final boolean reset;
+    private final List<String> players;
+
+    public RosterDelta(int version, boolean reset, List<String> players) {
+        this.version = version;
+        this.reset = reset;
+        this.players = players;
+    }
+
+    public int getVersion() { return version; }
+    public boolean isReset() { return reset; }
+    public List<String> getPlayers() { return players; }
+}
@@ -0,0 +1,50 @@
+package com.quizlive.engine;
+
+import com.quizlive.model.ScoringCurve;
+
+import java.io.Serializable;
+
+/**
+ * Cálculo de puntos de una respuesta (rapidez + racha).
+ * Inmutable y sin estado compartido: se puede llamar desde cualquier hilo del pool sin contención.
+ */
+public class ScoringPolicy implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // A partir de esta racha el bonus ya no crece
+    private static final int MAX_STREAK_STEPS = 5;
+
+    private final ScoringCurve curve;
+    private final int maxPoints;
+    private final int streakBonus;
+
+    public ScoringPolicy(ScoringCurve curve, int maxPoints, int streakBonus) {
+        this.curve = curve != null ? curve : ScoringCurve.CLASSIC;
+        this.maxPoints = Math.max(1, maxPoints);
+        this.streakBonus = Math.max(0, streakBonus);
+    }
+
+    // streak = respuestas correctas seguidas contando esta (1 = primera)
+    public int points(boolean correct, long elapsedNanos, long limitNanos, int streak) {
+        if (!correct) return 0;
+
+        double f = limitNanos > 0 ? (double) elapsedNanos / limitNanos : 0;
+        f = Math.min(1.0, Math.max(0.0, f));
+
+        double factor;
+        switch (curve) {
+            case FLAT:      factor = 1.0; break;
+            case LINEAR:    factor = 1.0 - f; break;
+            case QUADRATIC: factor = (1.0 - f) * (1.0 - f); break;
+            case CLASSIC:
+            default:        factor = 1.0 - f / 2.0; break;
+        }
+
+        int bonus = Math.min(Math.max(streak - 1, 0), MAX_STREAK_STEPS) * streakBonus;
+        return (int) Math.round(maxPoints * factor) + bonus;
+    }
+
+    public ScoringCurve getCurve() { return curve; }
+    public int getMaxPoints() { return maxPoints; }
+    public int getStreakBonus() { return streakBonus; }
+}
@@ -0,0 +1,51 @@
+package com.quizlive.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin locks: capacidad máxima y recarga continua (tokens por segundo).
+ * El estado (tokens en milésimas + instante de la última recarga) va en un único AtomicLong
+ * y se actualiza por CAS, igual que la RoomStateMachine.
+ *
+ *   bits 0-23   milésimas de token (hasta 16.777 tokens de capacidad)
+ *   bits 24-63  instante de la última recarga en ms, relativo a la creación del bucket
+ */
+public class TokenBucket {
+
+    private static final long TOKENS_MASK = (1L << 24) - 1;
+    private static final int TIME_SHIFT = 24;
+
+    private final long capacityMilli;
+    private final double refillMilliPerMs; // milésimas de token por milisegundo = tokens por segundo
+    private final long originNanos = System.nanoTime();
+    private final AtomicLong state;
+
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        this.capacityMilli = Math.min((long) capacity * 1000, TOKENS_MASK);
+        this.refillMilliPerMs = tokensPerSecond;
+        this.state = new AtomicLong(capacityMilli); // Empieza lleno
+    }
+
+    // Consume un token si hay; false si el cliente va demasiado rápido
+    public boolean tryAcquire() {
+        long now = nowMillis();
+        while (true) {
+            long s = state.get();
+            long last = s >>> TIME_SHIFT;
+            long tokens = s & TOKENS_MASK;
+            long refilled = Math.min(capacityMilli, tokens + (long) ((now - last) * refillMilliPerMs));
+            if (refilled < 1000) return false;
+            long next = (Math.max(now, last) << TIME_SHIFT) | (refilled - 1000);
+            if (state.compareAndSet(s, next)) return true;
+        }
+    }
+
+    // Milisegundos desde la última vez que se usó (para limpiar buckets inactivos)
+    public long idleMillis() {
+        return nowMillis() - (state.get() >>> TIME_SHIFT);
+    }
+
+    private long nowMillis() {
+        return (System.nanoTime() - originNanos) / 1_000_000L;
+    }
+}
@@ -20,6 +20,8 @@ public class Answer {
 
     private int selectedOption; // 0, 1, 2, 3
     private boolean correct;
+    private int points; // Puntos obtenidos (rapidez + racha)
+    private long responseTimeMs; // Tiempo desde que se abrió la pregunta
 
     public Answer() {}
 
@@ -37,4 +39,10 @@ public class Answer {
 
     public boolean isCorrect() { return correct; }
     public void setCorrect(boolean correct) { this.correct = correct; }
+
+    public int getPoints() { return points; }
+    public void setPoints(int points) { this.points = points; }
+
+    public long getResponseTimeMs() { return responseTimeMs; }
+    public void setResponseTimeMs(long responseTimeMs) { this.responseTimeMs = responseTimeMs; }
 }
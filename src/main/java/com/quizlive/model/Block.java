@@ -32,6 +32,9 @@ public class Block {
     @OneToMany(mappedBy = "block", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<GameRoom> gameRooms = new ArrayList<>();
 
+    // Borrado pedido: el bloque deja de verse y BlockDeletionService borra en segundo plano todo lo que cuelga de él
+    private java.time.LocalDateTime deletedAt;
+
     public Block() {
     }
 
@@ -82,4 +85,12 @@ public class Block {
     public void setQuestions(List<Question> questions) {
         this.questions = questions;
     }
+
+    public java.time.LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(java.time.LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
 }
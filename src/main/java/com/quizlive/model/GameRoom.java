@@ -13,8 +13,10 @@ public class GameRoom {
 
     private String pin; // Código de acceso (ej: "48291")
     
-    // Estados: "LOBBY" (Esperando), "PLAYING" (Jugando), "FINISHED" (Acabado)
-    private String status; 
+    // Estados: LOBBY (Esperando), PLAYING (Jugando), FINISHED (Acabado)
+    // Mientras la sala está viva, el estado bueno es el del motor (RoomStateMachine); aquí se refleja de forma asíncrona
+    @Enumerated(EnumType.STRING)
+    private RoomStatus status;
     
     private int currentQuestionIndex; // 0, 1, 2... para saber en qué pregunta vamos
 
@@ -30,9 +32,22 @@ public class GameRoom {
     // Configuración de la sala
     private int timeLimit; // Segundos por pregunta
     
-    private java.time.LocalDateTime currentQuestionStartTime; // Cuando empezó la pregunta actual
+    // Puntuación por rapidez (el motor mide el tiempo con System.nanoTime, no con la BD)
+    @Enumerated(EnumType.STRING)
+    private ScoringCurve scoringCurve = ScoringCurve.CLASSIC;
+    private int maxPoints = 1000;
+    private int streakBonus = 100;
 
-    // Relación OneToMany con RoomQuestion (las preguntas elegidas)
+    // Modo a su ritmo (estilo Quizizz): cada alumno avanza solo, con su propio plazo por pregunta
+    private boolean selfPaced;
+
+    // Creación de la sala (la "última partida" del listado de bloques)
+    private java.time.LocalDateTime createdAt;
+
+    // Fin de la partida (lo pone la BD al materializar los resultados) y si sus jugadores, preguntas
+    // y respuestas ya se han pasado a las tablas *_archive (ArchiveService)
+    private java.time.LocalDateTime finishedAt;
+    private boolean archived;
 
     // Relación OneToMany con RoomQuestion (las preguntas elegidas)
     @OneToMany(mappedBy = "gameRoom", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -52,8 +67,8 @@ public class GameRoom {
     public String getPin() { return pin; }
     public void setPin(String pin) { this.pin = pin; }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    public RoomStatus getStatus() { return status; }
+    public void setStatus(RoomStatus status) { this.status = status; }
 
     public int getCurrentQuestionIndex() { return currentQuestionIndex; }
     public void setCurrentQuestionIndex(int currentQuestionIndex) { this.currentQuestionIndex = currentQuestionIndex; }
@@ -67,8 +82,26 @@ public class GameRoom {
     public int getTimeLimit() { return timeLimit; }
     public void setTimeLimit(int timeLimit) { this.timeLimit = timeLimit; }
 
-    public java.time.LocalDateTime getCurrentQuestionStartTime() { return currentQuestionStartTime; }
-    public void setCurrentQuestionStartTime(java.time.LocalDateTime currentQuestionStartTime) { this.currentQuestionStartTime = currentQuestionStartTime; }
+    public ScoringCurve getScoringCurve() { return scoringCurve; }
+    public void setScoringCurve(ScoringCurve scoringCurve) { this.scoringCurve = scoringCurve; }
+
+    public int getMaxPoints() { return maxPoints; }
+    public void setMaxPoints(int maxPoints) { this.maxPoints = maxPoints; }
+
+    public int getStreakBonus() { return streakBonus; }
+    public void setStreakBonus(int streakBonus) { this.streakBonus = streakBonus; }
+
+    public boolean isSelfPaced() { return selfPaced; }
+    public void setSelfPaced(boolean selfPaced) { this.selfPaced = selfPaced; }
+
+    public java.time.LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(java.time.LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public java.time.LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(java.time.LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public boolean isArchived() { return archived; }
+    public void setArchived(boolean archived) { this.archived = archived; }
 
     public List<RoomQuestion> getRoomQuestions() { return roomQuestions; }
     public void setRoomQuestions(List<RoomQuestion> roomQuestions) { this.roomQuestions = roomQuestions; }
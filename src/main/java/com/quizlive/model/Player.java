@@ -13,6 +13,7 @@ public class Player {
     private int score; // Puntos actuales
     
     // Índice de la pregunta actual del jugador (Estilo Quizizz - cada uno a su ritmo)
+    // El bueno está en memoria (cursor del motor); aquí llega con el volcado por lotes
     private int currentQuestionIndex = 0;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,52 @@
+package com.quizlive.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Resultado final de un jugador en una partida terminada.
+ * Se escribe una sola vez al finalizar (en lote, desde la memoria del motor) y no cambia.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_player_result_room_position", columnList = "game_room_id, position"))
+public class PlayerResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "game_room_id")
+    private Long gameRoomId;
+
+    private Long playerId;
+    private String nickname;
+    private int position; // 1 = primero; empates comparten puesto
+    private int score;
+    private int correctAnswers;
+    private int answeredQuestions;
+
+    public PlayerResult() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getGameRoomId() { return gameRoomId; }
+    public void setGameRoomId(Long gameRoomId) { this.gameRoomId = gameRoomId; }
+
+    public Long getPlayerId() { return playerId; }
+    public void setPlayerId(Long playerId) { this.playerId = playerId; }
+
+    public String getNickname() { return nickname; }
+    public void setNickname(String nickname) { this.nickname = nickname; }
+
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+
+    public int getScore() { return score; }
+    public void setScore(int score) { this.score = score; }
+
+    public int getCorrectAnswers() { return correctAnswers; }
+    public void setCorrectAnswers(int correctAnswers) { this.correctAnswers = correctAnswers; }
+
+    public int getAnsweredQuestions() { return answeredQuestions; }
+    public void setAnsweredQuestions(int answeredQuestions) { this.answeredQuestions = answeredQuestions; }
+}
@@ -17,14 +17,24 @@ public class Question {
     @Column(nullable = false)
     private String statement; // Enunciado
 
-    // Guardaremos las opciones como una colección de Strings
+    // Guardaremos las opciones como una colección de Strings.
+    // option_index es su posición: correctOptionIndex apunta a ella, así que el orden tiene que ser explícito
     @ElementCollection
     @CollectionTable(name = "question_options", joinColumns = @JoinColumn(name = "question_id"))
+    @OrderColumn(name = "option_index")
     @Column(name = "option_text")
     private List<String> options = new ArrayList<>();
 
     private int correctOptionIndex; // Índice de la respuesta correcta (0, 1, 2, o 3)
 
+    // Tema opcional dentro del bloque (para el muestreo aleatorio por temas)
+    @Column(length = 100)
+    private String topic;
+
+    // Imagen opcional: nombre del fichero en quizlive.media.dir (hash del contenido + extensión)
+    @Column(length = 80)
+    private String media;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "block_id")
     private Block block;
@@ -76,6 +86,22 @@ public class Question {
         this.correctOptionIndex = correctOptionIndex;
     }
 
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getMedia() {
+        return media;
+    }
+
+    public void setMedia(String media) {
+        this.media = media;
+    }
+
     public Block getBlock() {
         return block;
     }
@@ -0,0 +1,43 @@
+package com.quizlive.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Aciertos de una pregunta en una partida terminada (cuántos respondieron y cuántos acertaron).
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_question_result_room", columnList = "game_room_id, questionNumber"))
+public class QuestionResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "game_room_id")
+    private Long gameRoomId;
+
+    private int questionNumber; // 1, 2, 3... en el orden de la partida
+    private Long roomQuestionId;
+    private int answers;
+    private int correctAnswers;
+
+    public QuestionResult() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getGameRoomId() { return gameRoomId; }
+    public void setGameRoomId(Long gameRoomId) { this.gameRoomId = gameRoomId; }
+
+    public int getQuestionNumber() { return questionNumber; }
+    public void setQuestionNumber(int questionNumber) { this.questionNumber = questionNumber; }
+
+    public Long getRoomQuestionId() { return roomQuestionId; }
+    public void setRoomQuestionId(Long roomQuestionId) { this.roomQuestionId = roomQuestionId; }
+
+    public int getAnswers() { return answers; }
+    public void setAnswers(int answers) { this.answers = answers; }
+
+    public int getCorrectAnswers() { return correctAnswers; }
+    public void setCorrectAnswers(int correctAnswers) { this.correctAnswers = correctAnswers; }
+}
@@ -3,6 +3,8 @@ package com.quizlive.model;
 import jakarta.persistence.*;
 
 @Entity
+// Índice para recorrer las preguntas de una sala en orden (exportación sin ordenar en memoria)
+@Table(indexes = @Index(name = "idx_room_question_room_order", columnList = "game_room_id, orderIndex"))
 public class RoomQuestion {
 
     @Id
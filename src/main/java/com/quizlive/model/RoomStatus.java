@@ -0,0 +1,11 @@
+package com.quizlive.model;
+
+/**
+ * Estados de una sala: LOBBY (Esperando), PLAYING (Jugando), FINISHED (Acabado).
+ * El orden importa: el motor guarda el ordinal dentro de su palabra de estado.
+ */
+public enum RoomStatus {
+    LOBBY,
+    PLAYING,
+    FINISHED
+}
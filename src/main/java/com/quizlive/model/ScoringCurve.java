@@ -0,0 +1,12 @@
+package com.quizlive.model;
+
+/**
+ * Curva de puntuación según la rapidez de la respuesta.
+ * f = fracción del tiempo consumida (0 = al instante, 1 = al final).
+ */
+public enum ScoringCurve {
+    FLAT,       // Siempre el máximo (sin premio por rapidez)
+    CLASSIC,    // Estilo Kahoot: del 100% al 50% de forma lineal
+    LINEAR,     // Del 100% al 0%
+    QUADRATIC   // Cae rápido al principio: premia mucho responder pronto
+}
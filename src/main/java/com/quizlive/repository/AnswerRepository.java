@@ -1,12 +1,21 @@
 package com.quizlive.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.quizlive.model.Answer;
-import com.quizlive.model.Player;
-import com.quizlive.model.RoomQuestion;
-import java.util.Optional;
+import java.util.List;
 
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
-    boolean existsByPlayerAndRoomQuestion(Player player, RoomQuestion roomQuestion);
-    Optional<Answer> findByPlayerAndRoomQuestion(Player player, RoomQuestion roomQuestion);
+    // Recuentos por pregunta y por jugador de una sala (solo respuestas con opción elegida).
+    // Para reconstruir los contadores del motor al recuperar una sala desde la BD.
+    // Filas: {orderIndex, respuestas, aciertos}
+    @Query("select rq.orderIndex, count(a), sum(case when a.correct = true then 1 else 0 end) " +
+           "from Answer a join a.roomQuestion rq where rq.gameRoom.id = :roomId and a.selectedOption >= 0 group by rq.orderIndex")
+    List<Object[]> countByQuestion(@Param("roomId") Long roomId);
+
+    // Filas: {playerId, respuestas, aciertos}
+    @Query("select a.player.id, count(a), sum(case when a.correct = true then 1 else 0 end) " +
+           "from Answer a join a.roomQuestion rq where rq.gameRoom.id = :roomId and a.selectedOption >= 0 group by a.player.id")
+    List<Object[]> countByPlayer(@Param("roomId") Long roomId);
 }
@@ -1,10 +1,33 @@
 package com.quizlive.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import com.quizlive.dto.BlockSummary;
 import com.quizlive.model.Block;
 import java.util.List;
 
 public interface BlockRepository extends JpaRepository<Block, Long> {
     // Para listar "Mis Bloques", necesitamos buscar por Owner ID
     List<Block> findByOwnerId(Long ownerId);
+
+    // Los que se están borrando (progreso del borrado en el listado)
+    List<Block> findByOwnerIdAndDeletedAtIsNotNull(Long ownerId);
+
+    // Dueño del bloque, para invalidar su listado cacheado sin cargar el bloque
+    @Query("select b.owner.id from Block b where b.id = :id")
+    Long findOwnerIdById(@Param("id") Long id);
+
+    // Página del listado: proyección con el nº de preguntas y la última partida, sin cargar entidades.
+    // Keyset sobre id (descendente): "id < before" sigue el índice de la PK sin OFFSET
+    @Query("select new com.quizlive.dto.BlockSummary(b.id, b.name, b.description, " +
+            "(select count(q) from Question q where q.block = b), " +
+            "(select max(r.createdAt) from GameRoom r where r.block = b)) " +
+            "from Block b where b.owner.id = :ownerId and b.deletedAt is null and b.id < :before order by b.id desc")
+    List<BlockSummary> findCatalogPage(@Param("ownerId") Long ownerId, @Param("before") Long before, Pageable page);
+
+    // (id, nombre) de varios bloques
+    @Query("select b.id, b.name from Block b where b.id in :ids")
+    List<Object[]> findNamesByIdIn(@Param("ids") java.util.Collection<Long> ids);
 }
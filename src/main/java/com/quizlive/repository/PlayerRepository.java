@@ -1,9 +1,19 @@
 package com.quizlive.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import com.quizlive.model.Player;
 
 public interface PlayerRepository extends JpaRepository<Player, Long> {
     // Si queremos ver el ranking ordenado por puntuación
     // List<Player> findByGameRoomIdOrderByScoreDesc(Long gameRoomId);
+
+    // Suma atómica en la BD (sin leer el jugador): la usa el hilo de respuestas
+    @Transactional
+    @Modifying
+    @Query("update Player p set p.score = p.score + :points where p.id = :id")
+    int addScore(@Param("id") Long id, @Param("points") int points);
 }
@@ -0,0 +1,10 @@
+package com.quizlive.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.quizlive.model.PlayerResult;
+import java.util.List;
+
+public interface PlayerResultRepository extends JpaRepository<PlayerResult, Long> {
+    // Ranking final ya calculado (índice game_room_id, position)
+    List<PlayerResult> findByGameRoomIdOrderByPositionAscIdAsc(Long gameRoomId);
+}
@@ -1,9 +1,30 @@
 package com.quizlive.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import com.quizlive.model.Question;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
     // Si queremos buscar todas las preguntas de un bloque
     // Aunque normalmente accederemos a ellas a través de Block.getQuestions()
+
+    // Cursor (id, tema, opción correcta) del bloque, sin cargar entidades.
+    // fetchSize = Integer.MIN_VALUE hace que el driver MySQL lea fila a fila.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"))
+    @Query("select q.id, q.topic, q.correctOptionIndex from Question q where q.block.id = :blockId")
+    Stream<Object[]> streamKeysByBlockId(@Param("blockId") Long blockId);
+
+    // Número de preguntas por tema (muestreo estratificado)
+    @Query("select q.topic, count(q) from Question q where q.block.id = :blockId group by q.topic")
+    List<Object[]> countByTopic(@Param("blockId") Long blockId);
+
+    // (id, opción correcta) de las preguntas pedidas que sí son del bloque
+    @Query("select q.id, q.correctOptionIndex from Question q where q.block.id = :blockId and q.id in :ids")
+    List<Object[]> findKeysByBlockIdAndIdIn(@Param("blockId") Long blockId, @Param("ids") Collection<Long> ids);
 }
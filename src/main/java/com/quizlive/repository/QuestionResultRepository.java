@@ -0,0 +1,9 @@
+package com.quizlive.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.quizlive.model.QuestionResult;
+import java.util.List;
+
+public interface QuestionResultRepository extends JpaRepository<QuestionResult, Long> {
+    List<QuestionResult> findByGameRoomIdOrderByQuestionNumberAsc(Long gameRoomId);
+}
@@ -8,4 +8,6 @@ import java.util.List;
 public interface RoomQuestionRepository extends JpaRepository<RoomQuestion, Long> {
     // Buscar preguntas de una sala ordenadas
     List<RoomQuestion> findByGameRoomOrderByOrderIndexAsc(GameRoom gameRoom);
+
+    long countByGameRoom(GameRoom gameRoom);
 }
@@ -0,0 +1,347 @@
+package com.quizlive.search;
+
+import com.quizlive.dto.QuestionHit;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Índice invertido en memoria de las preguntas (enunciado y opciones), separado por profesor.
+ *
+ * Término (SpanishTokenizer) -> IDs de pregunta, en un TreeMap por dueño: los términos completos
+ * se buscan por clave y el último de la consulta por prefijo (búsqueda mientras se escribe). Se
+ * cruzan las listas empezando por la más corta, sin tocar la BD.
+ *
+ * Se construye al arrancar leyendo preguntas y opciones en streaming y después se mantiene con cada
+ * alta, edición o borrado (preguntas, importaciones, copias y borrado de bloques). Lo que cambia
+ * mientras se reconstruye se aplica también al índice nuevo antes de publicarlo.
+ */
+@Component
+public class QuestionSearchIndex {
+
+    private static final String ALL_QUESTIONS =
+            "select q.id, q.block_id, b.user_id, q.statement from question q join block b on b.id = q.block_id where b.deleted_at is null";
+
+    private static final String ALL_OPTIONS =
+            "select o.question_id, o.option_text from question_options o " +
+            "join question q on q.id = o.question_id join block b on b.id = q.block_id where b.deleted_at is null";
+
+    private static final String BLOCK_QUESTIONS =
+            "select q.id, q.block_id, b.user_id, q.statement from question q join block b on b.id = q.block_id where q.block_id = ?";
+
+    private static final String BLOCK_OPTIONS =
+            "select o.question_id, o.option_text from question_options o join question q on q.id = o.question_id where q.block_id = ?";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Lecturas fila a fila para la reconstrucción (no se toca el JdbcTemplate compartido)
+    private JdbcTemplate streamingJdbcTemplate;
+
+    private volatile Index current = new Index();
+
+    // Cambios llegados durante una reconstrucción (null si no hay ninguna en marcha). Protegido por this
+    private List<Consumer<Index>> pending;
+
+    private volatile String state = "EMPTY";
+    private volatile long buildMillis = -1;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        // En segundo plano: el arranque no espera; hasta que termine se busca en lo que haya
+        Thread builder = new Thread(this::rebuild, "search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // Reconstruye el índice entero desde la BD y lo publica de golpe
+    public void rebuild() {
+        synchronized (this) {
+            if (pending != null) return; // Ya hay una en marcha
+            pending = new ArrayList<>();
+        }
+        state = "BUILDING";
+        long start = System.nanoTime();
+        Index fresh = new Index();
+        try {
+            Map<Long, DocData> data = new LinkedHashMap<>();
+            streamingJdbcTemplate.query(ALL_QUESTIONS, questionRows(data));
+            streamingJdbcTemplate.query(ALL_OPTIONS, optionRows(data));
+            data.forEach((questionId, d) -> fresh.put(d.ownerId, d.blockId, questionId, d.statement, d.options));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            state = "ERROR";
+            System.out.println("[Search] [" + Thread.currentThread().getName() + "] ERROR al construir el índice: " + e);
+            return;
+        }
+        synchronized (this) {
+            for (Consumer<Index> op : pending) op.accept(fresh);
+            pending = null;
+            current = fresh;
+        }
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+        state = "READY";
+        System.out.println("[Search] [" + Thread.currentThread().getName() + "] Índice construido: " + fresh.docs.size()
+                + " preguntas, " + fresh.owners.size() + " profesores en " + buildMillis + " ms");
+    }
+
+    // Alta o edición de una pregunta
+    public void index(Long blockId, Long questionId, String statement, Collection<String> options) {
+        Long ownerId = ownerOf(blockId);
+        if (ownerId == null) return;
+        List<String> copy = options != null ? new ArrayList<>(options) : List.of();
+        apply(index -> index.put(ownerId, blockId, questionId, statement, copy));
+    }
+
+    public void remove(Long questionId) {
+        apply(index -> index.remove(questionId));
+    }
+
+    // El bloque se está borrando: sus preguntas dejan de aparecer ya
+    public void removeBlock(Long blockId) {
+        apply(index -> index.removeBlock(blockId));
+    }
+
+    // Vuelve a leer las preguntas de un bloque (copias y cambios hechos directamente en la BD)
+    public void reindexBlock(Long blockId) {
+        Map<Long, DocData> data = new LinkedHashMap<>();
+        jdbcTemplate.query(BLOCK_QUESTIONS, questionRows(data), blockId);
+        jdbcTemplate.query(BLOCK_OPTIONS, optionRows(data), blockId);
+        apply(index -> {
+            index.removeBlock(blockId);
+            data.forEach((questionId, d) -> index.put(d.ownerId, d.blockId, questionId, d.statement, d.options));
+        });
+    }
+
+    /**
+     * Preguntas del profesor que contienen todos los términos de la consulta (el último como prefijo).
+     * Primero las que los tienen en el enunciado; a igualdad, las más nuevas.
+     */
+    public List<QuestionHit> search(Long ownerId, String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<String> terms = new ArrayList<>(new LinkedHashSet<>(SpanishTokenizer.tokenize(query)));
+            Index index = current;
+            OwnerIndex owner = index.owners.get(ownerId);
+            if (terms.isEmpty() || owner == null) return List.of();
+            String prefix = terms.get(terms.size() - 1);
+
+            List<QuestionHit> hits = new ArrayList<>();
+            owner.lock.readLock().lock();
+            try {
+                List<Set<Long>> postings = new ArrayList<>(terms.size());
+                for (int i = 0; i < terms.size() - 1; i++) {
+                    Set<Long> p = owner.postings.get(terms.get(i));
+                    if (p == null) return List.of();
+                    postings.add(p);
+                }
+                SortedMap<String, Set<Long>> expansions = owner.postings.subMap(prefix, prefix + Character.MAX_VALUE);
+                if (expansions.isEmpty()) return List.of();
+                // Prefijo con varias expansiones: si hay términos exactos basta mirar el prefijo en cada candidato,
+                // sin juntar todas sus listas; si es el único término no queda otra que la unión
+                boolean checkPrefix = expansions.size() > 1 && !postings.isEmpty();
+                if (expansions.size() == 1) {
+                    postings.add(expansions.values().iterator().next());
+                } else if (!checkPrefix) {
+                    Set<Long> union = new HashSet<>();
+                    for (Set<Long> p : expansions.values()) union.addAll(p);
+                    postings.add(union);
+                }
+                postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+                // Se recorre la lista más corta y se comprueba en las demás
+                candidates:
+                for (Long questionId : postings.get(0)) {
+                    for (int i = 1; i < postings.size(); i++) {
+                        if (!postings.get(i).contains(questionId)) continue candidates;
+                    }
+                    Doc doc = index.docs.get(questionId);
+                    if (doc == null || (checkPrefix && !doc.hasPrefix(prefix))) continue;
+                    hits.add(new QuestionHit(questionId, doc.blockId, doc.statement, doc.statementScore(terms, prefix)));
+                }
+            } finally {
+                owner.lock.readLock().unlock();
+            }
+            hits.sort((a, b) -> a.getScore() != b.getScore()
+                    ? Integer.compare(b.getScore(), a.getScore())
+                    : Long.compare(b.getQuestionId(), a.getQuestionId()));
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Index index = current;
+        long count = searches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("buildMs", buildMillis);
+        stats.put("questions", index.docs.size());
+        stats.put("owners", index.owners.size());
+        stats.put("searches", count);
+        stats.put("avgSearchMicros", count == 0 ? 0 : searchNanos.sum() / count / 1000);
+        return stats;
+    }
+
+    // Los cambios van al índice publicado y, si se está reconstruyendo, también al nuevo
+    private synchronized void apply(Consumer<Index> op) {
+        op.accept(current);
+        if (pending != null) pending.add(op);
+    }
+
+    private Long ownerOf(Long blockId) {
+        Long ownerId = current.blockOwners.get(blockId);
+        if (ownerId != null) return ownerId;
+        List<Long> owners = jdbcTemplate.queryForList("select user_id from block where id = ?", Long.class, blockId);
+        return owners.isEmpty() ? null : owners.get(0);
+    }
+
+    private static RowCallbackHandler questionRows(Map<Long, DocData> data) {
+        return rs -> data.put(rs.getLong(1), new DocData(rs.getLong(3), rs.getLong(2), rs.getString(4)));
+    }
+
+    private static RowCallbackHandler optionRows(Map<Long, DocData> data) {
+        return rs -> {
+            DocData d = data.get(rs.getLong(1));
+            if (d != null) d.options.add(rs.getString(2));
+        };
+    }
+
+    /**
+     * Un índice completo. Las escrituras están serializadas (apply / reconstrucción); las búsquedas
+     * de un profesor solo esperan a las escrituras sobre su parte.
+     */
+    private static class Index {
+        private final ConcurrentHashMap<Long, OwnerIndex> owners = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Doc> docs = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Long> blockOwners = new ConcurrentHashMap<>();
+
+        void put(long ownerId, long blockId, long questionId, String statement, List<String> options) {
+            remove(questionId);
+            Set<String> statementTerms = new HashSet<>(SpanishTokenizer.tokenize(statement));
+            Set<String> allTerms = new HashSet<>(statementTerms);
+            for (String option : options) allTerms.addAll(SpanishTokenizer.tokenize(option));
+            Doc doc = new Doc(ownerId, blockId, statement, statementTerms, allTerms);
+
+            OwnerIndex owner = owners.computeIfAbsent(ownerId, id -> new OwnerIndex());
+            owner.lock.writeLock().lock();
+            try {
+                for (String term : allTerms) owner.postings.computeIfAbsent(term, t -> new HashSet<>()).add(questionId);
+            } finally {
+                owner.lock.writeLock().unlock();
+            }
+            docs.put(questionId, doc);
+            blockOwners.put(blockId, ownerId);
+        }
+
+        void remove(long questionId) {
+            Doc doc = docs.remove(questionId);
+            if (doc == null) return;
+            OwnerIndex owner = owners.get(doc.ownerId);
+            if (owner == null) return;
+            owner.lock.writeLock().lock();
+            try {
+                for (String term : doc.allTerms) {
+                    Set<Long> p = owner.postings.get(term);
+                    if (p != null && p.remove(questionId) && p.isEmpty()) owner.postings.remove(term);
+                }
+            } finally {
+                owner.lock.writeLock().unlock();
+            }
+        }
+
+        void removeBlock(long blockId) {
+            List<Long> questionIds = new ArrayList<>();
+            docs.forEach((questionId, doc) -> {
+                if (doc.blockId == blockId) questionIds.add(questionId);
+            });
+            for (Long questionId : questionIds) remove(questionId);
+            blockOwners.remove(blockId);
+        }
+    }
+
+    private static class OwnerIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+    }
+
+    private static class Doc {
+        private final long ownerId;
+        private final long blockId;
+        private final String statement;
+        private final Set<String> statementTerms;
+        private final Set<String> allTerms;
+
+        Doc(long ownerId, long blockId, String statement, Set<String> statementTerms, Set<String> allTerms) {
+            this.ownerId = ownerId;
+            this.blockId = blockId;
+            this.statement = statement;
+            this.statementTerms = statementTerms;
+            this.allTerms = allTerms;
+        }
+
+        // Cuántos términos de la consulta están en el enunciado (el resto estarán en las opciones)
+        int statementScore(List<String> terms, String prefix) {
+            int score = 0;
+            for (int i = 0; i < terms.size() - 1; i++) {
+                if (statementTerms.contains(terms.get(i))) score++;
+            }
+            for (String term : statementTerms) {
+                if (term.startsWith(prefix)) {
+                    score++;
+                    break;
+                }
+            }
+            return score;
+        }
+
+        boolean hasPrefix(String prefix) {
+            for (String term : allTerms) {
+                if (term.startsWith(prefix)) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class DocData {
+        private final long ownerId;
+        private final long blockId;
+        private final String statement;
+        private final List<String> options = new ArrayList<>(4);
+
+        DocData(long ownerId, long blockId, String statement) {
+            this.ownerId = ownerId;
+            this.blockId = blockId;
+            this.statement = statement;
+        }
+    }
+}
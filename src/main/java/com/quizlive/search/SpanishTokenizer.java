@@ -0,0 +1,77 @@
+package com.quizlive.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Tokenizador para el buscador de preguntas.
+ *
+ * Minúsculas y sin tildes ni diéresis (NFD + quitar marcas: "Geografía" y "geografia" son el mismo
+ * término), corta por todo lo que no sea letra o dígito, descarta palabras vacías del español y
+ * aplica un stemming ligero (plural y vocal final), para que "capitales" encuentre "capital" y
+ * "gatos" encuentre "gato". Al quitar solo finales, el prefijo de una palabra sigue siendo prefijo.
+ */
+public final class SpanishTokenizer {
+
+    private static final int MIN_LENGTH = 2;
+    private static final int MIN_STEM = 3;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "el", "la", "los", "las", "lo", "un", "una", "unos", "unas", "al", "del", "de", "en", "y", "e", "o", "u",
+            "a", "que", "se", "su", "sus", "por", "para", "con", "sin", "es", "son", "como", "cual", "cuales",
+            "cuando", "donde", "quien", "quienes", "mas", "muy", "ya", "le", "les", "me", "te", "nos", "mi", "tu",
+            "este", "esta", "estos", "estas", "ese", "esa", "esos", "esas", "eso", "esto", "hay", "ha", "han", "fue");
+
+    private SpanishTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) return terms;
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                String term = term(folded.substring(start, i));
+                if (term != null) terms.add(term);
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // Minúsculas y sin marcas diacríticas (á -> a, ü -> u, ñ -> n)
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) out.append(c);
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String term(String word) {
+        if (word.length() < MIN_LENGTH || STOPWORDS.contains(word)) return null;
+        return stem(word);
+    }
+
+    // Stemming ligero (parecido al SpanishLightStemmer de Lucene): primero el plural (-es / -s) y luego
+    // la vocal final (-o / -a / -e), así singular y plural acaban en la misma raíz: gato/gatos -> gat,
+    // mesa/mesas -> mes, clase/clases -> clas, capital/capitales -> capital. Ningún corte deja menos
+    // de MIN_STEM letras (tres, gas y sol se quedan como están)
+    static String stem(String word) {
+        int len = word.length();
+        int plural = word.endsWith("es") ? 2 : word.endsWith("s") ? 1 : 0;
+        if (len - plural >= MIN_STEM) len -= plural;
+        char last = word.charAt(len - 1);
+        if ((last == 'o' || last == 'a' || last == 'e') && len - 1 >= MIN_STEM) len -= 1;
+        return word.substring(0, len);
+    }
+}
@@ -0,0 +1,188 @@
+package com.quizlive.service;
+
+import com.quizlive.engine.QuizEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Archivado de partidas terminadas.
+ *
+ * Cada cierto tiempo pasa las salas que terminaron hace más de after-days a las tablas *_archive
+ * (answer_archive, player_archive, room_question_archive, creadas con el esquema: schema/archive.sql) y las
+ * borra de las tablas que usa el juego en vivo. Se mueve por trozos de chunk-size filas, cada trozo
+ * en su propia transacción (copiar + borrar) y con una pausa entre trozos: nunca hay un bloqueo largo
+ * ni un pico de binlog para la réplica. Si se corta a medias, la siguiente pasada sigue donde quedó.
+ *
+ * La fila de game_room se queda (una por partida, marcada archived) para que el PIN siga resolviendo,
+ * y los resultados ya están en player_result / question_result: ranking y pantalla final no cambian.
+ * La exportación de respuestas de una sala archivada lee de las tablas *_archive.
+ */
+@Service
+public class ArchiveService {
+
+    // Tablas calientes en orden de borrado (primero las que tienen FK hacia las otras): consulta de IDs
+    // de un trozo de la sala y columnas que se copian, por nombre (las de su *_archive en schema/archive.sql)
+    private static final String[][] TABLES = {
+            { "answer", "select a.id from answer a join room_question rq on rq.id = a.room_question_id where rq.game_room_id = ? order by a.id limit ?",
+                    "id, player_id, room_question_id, selected_option, correct, points, response_time_ms" },
+            { "player", "select id from player where game_room_id = ? order by id limit ?",
+                    "id, game_room_id, nickname, score, current_question_index" },
+            { "room_question", "select id from room_question where game_room_id = ? order by id limit ?",
+                    "id, game_room_id, question_id, order_index" },
+    };
+
+    private static final String ROOMS_TO_ARCHIVE =
+            "select id, pin from game_room where status = 'FINISHED' and archived = false and finished_at < now() - interval ? day order by id limit ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ResultsService resultsService;
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Value("${quizlive.archive.enabled:true}")
+    private boolean enabled;
+
+    // Días desde el final de la partida hasta archivarla
+    @Value("${quizlive.archive.after-days:30}")
+    private int afterDays;
+
+    @Value("${quizlive.archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    // Filas por transacción y pausa entre trozos
+    @Value("${quizlive.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${quizlive.archive.pause-ms:50}")
+    private long pauseMillis;
+
+    // Salas como mucho por pasada (el resto, en la siguiente)
+    @Value("${quizlive.archive.rooms-per-run:100}")
+    private int roomsPerRun;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "archiver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Map<String, Object> lastRun = Map.of("status", "PENDING");
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            lastRun = Map.of("status", "DISABLED");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveFinishedRooms();
+            } catch (RuntimeException e) {
+                // Se reintenta en la siguiente pasada; lo ya movido queda movido
+                lastRun = Map.of("status", "ERROR", "error", String.valueOf(e.getMessage()));
+                System.out.println("[Archive] [" + Thread.currentThread().getName() + "] ERROR: " + e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Una pasada: archiva hasta rooms-per-run salas terminadas hace más de after-days
+    public Map<String, Object> archiveFinishedRooms() {
+        long start = System.currentTimeMillis();
+        // Partidas terminadas antes de existir finished_at: empiezan a contar desde ahora
+        jdbcTemplate.update("update game_room set finished_at = now() where status = 'FINISHED' and finished_at is null");
+
+        List<Object[]> rooms = jdbcTemplate.query(ROOMS_TO_ARCHIVE,
+                (rs, n) -> new Object[] { rs.getLong(1), rs.getString(2) }, afterDays, roomsPerRun);
+        int archivedRooms = 0;
+        long movedRows = 0;
+        for (Object[] room : rooms) {
+            if (Thread.currentThread().isInterrupted()) break;
+            Long gameRoomId = (Long) room[0];
+            String pin = (String) room[1];
+            if (quizEngine.isActive(pin)) continue;
+            // Las partidas antiguas sin resultados guardados se materializan antes, mientras sus respuestas siguen aquí
+            if (resultsService.getResults(pin) == null) continue;
+
+            long rows = 0;
+            for (String[] table : TABLES) {
+                rows += moveRoomRows(table[0], table[1], table[2], gameRoomId);
+            }
+            // Apagado a mitad de sala: queda sin marcar y la siguiente pasada termina de moverla
+            if (Thread.currentThread().isInterrupted()) break;
+            jdbcTemplate.update("update game_room set archived = true where id = ?", gameRoomId);
+            archivedRooms++;
+            movedRows += rows;
+            System.out.println("[Room " + pin + "] [" + Thread.currentThread().getName() + "] Archivada: " + rows + " filas");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "DONE");
+        result.put("finishedAtMillis", System.currentTimeMillis());
+        result.put("durationMs", System.currentTimeMillis() - start);
+        result.put("rooms", archivedRooms);
+        result.put("rows", movedRows);
+        result.put("pending", rooms.size() == roomsPerRun);
+        lastRun = result;
+        return result;
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    // Mueve las filas de la sala de una tabla a su *_archive, chunk-size filas por transacción
+    private long moveRoomRows(String table, String idsSql, String columns, Long gameRoomId) {
+        long moved = 0;
+        while (true) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList(idsSql, Long.class, gameRoomId, chunkSize);
+                if (ids.isEmpty()) return 0;
+                String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+                Object[] args = ids.toArray();
+                // insert ignore: si otro nodo ya copió este trozo, solo queda borrarlo
+                jdbcTemplate.update("insert ignore into " + table + "_archive (" + columns + ") select " + columns
+                        + " from " + table + " where id in (" + in + ")", args);
+                jdbcTemplate.update("delete from " + table + " where id in (" + in + ")", args);
+                return ids.size();
+            });
+            if (count == null || count == 0) return moved;
+            moved += count;
+            if (count < chunkSize) return moved;
+            pause();
+            if (Thread.currentThread().isInterrupted()) return moved;
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
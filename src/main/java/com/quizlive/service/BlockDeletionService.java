@@ -0,0 +1,216 @@
+package com.quizlive.service;
+
+import com.quizlive.engine.QuizEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrado de bloques en segundo plano.
+ *
+ * Al pedir el borrado el bloque solo se marca (deleted_at): deja de listarse, editarse y jugarse al
+ * momento. Después un hilo borra de abajo arriba lo que cuelga de él con DELETE por conjuntos de
+ * como mucho chunk-size filas (respuestas, jugadores, preguntas de sala y resultados de cada sala,
+ * la sala; luego opciones y preguntas; por último el bloque), sin cargar entidades ni cascadas de JPA.
+ * Cada DELETE es su propia transacción: los bloqueos duran poco y si se corta se sigue donde quedó.
+ *
+ * Las salas que siguen en juego en el motor se dejan para una pasada posterior (cada interval-minutes).
+ */
+@Service
+public class BlockDeletionService {
+
+    // De cada sala, de abajo arriba (las FK apuntan hacia la siguiente). Incluye lo archivado
+    private static final String[] ROOM_DELETES = {
+            "delete from answer where room_question_id in (select id from room_question where game_room_id = ?) limit ?",
+            "delete from answer_archive where room_question_id in (select id from room_question_archive where game_room_id = ?) limit ?",
+            "delete from player where game_room_id = ? limit ?",
+            "delete from player_archive where game_room_id = ? limit ?",
+            "delete from room_question where game_room_id = ? limit ?",
+            "delete from room_question_archive where game_room_id = ? limit ?",
+            "delete from player_result where game_room_id = ? limit ?",
+            "delete from question_result where game_room_id = ? limit ?",
+            "delete from game_room where id = ? limit ?",
+    };
+
+    // Del bloque, cuando ya no le quedan salas
+    private static final String[] BLOCK_DELETES = {
+            "delete from question_options where question_id in (select id from question where block_id = ?) limit ?",
+            "delete from question where block_id = ? limit ?",
+            "delete from block where id = ? limit ?",
+    };
+
+    // Salas del bloque por páginas (keyset sobre id)
+    private static final String ROOMS_PAGE =
+            "select id, pin from game_room where block_id = ? and id > ? order by id limit 500";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Autowired
+    private ResultsService resultsService;
+
+    @Value("${quizlive.block-delete.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${quizlive.block-delete.pause-ms:20}")
+    private long pauseMillis;
+
+    // Cada cuánto se reintentan los borrados pendientes (salas que estaban en juego, reinicios)
+    @Value("${quizlive.block-delete.interval-minutes:10}")
+    private long intervalMinutes;
+
+    // Un solo hilo: nunca dos pasadas sobre el mismo bloque a la vez
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "block-delete");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Bloques con el borrado en marcha en este nodo
+    private final Map<Long, Progress> progress = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // Desde el principio: recoge también lo que quedó a medias antes de un reinicio
+        worker.scheduleWithFixedDelay(this::processPending, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // Marca el bloque como borrado (al momento) y encola el borrado de sus filas
+    public void requestDeletion(Long blockId) {
+        int marked = jdbcTemplate.update("update block set deleted_at = now() where id = ? and deleted_at is null", blockId);
+        if (marked == 0) return; // Ya se estaba borrando
+        progress.put(blockId, new Progress());
+        worker.execute(() -> process(blockId));
+    }
+
+    // Bloque -> progreso, para el listado de bloques y /ops/deletions
+    public Map<Long, Progress> getProgress() {
+        return progress;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        progress.forEach((blockId, p) -> stats.put(String.valueOf(blockId), p.toMap()));
+        return stats;
+    }
+
+    private void processPending() {
+        try {
+            for (Long blockId : jdbcTemplate.queryForList("select id from block where deleted_at is not null", Long.class)) {
+                if (Thread.currentThread().isInterrupted()) return;
+                process(blockId);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("[BlockDelete] [" + Thread.currentThread().getName() + "] ERROR: " + e);
+        }
+    }
+
+    private void process(Long blockId) {
+        Progress p = progress.computeIfAbsent(blockId, id -> new Progress());
+        long start = System.currentTimeMillis();
+        try {
+            p.stage = "ROOMS";
+            int waiting = 0;
+            long lastId = 0;
+            while (true) {
+                List<Object[]> rooms = jdbcTemplate.query(ROOMS_PAGE,
+                        (rs, n) -> new Object[] { rs.getLong(1), rs.getString(2) }, blockId, lastId);
+                if (rooms.isEmpty()) break;
+                for (Object[] room : rooms) {
+                    lastId = (Long) room[0];
+                    String pin = (String) room[1];
+                    if (quizEngine.isActive(pin)) {
+                        waiting++; // En juego: se borrará cuando termine
+                        continue;
+                    }
+                    for (String sql : ROOM_DELETES) {
+                        if (!deleteInChunks(sql, lastId, p)) return;
+                    }
+                    resultsService.forget(pin);
+                    p.rooms++;
+                }
+            }
+            p.waitingRooms = waiting;
+            if (waiting > 0) {
+                p.stage = "WAITING";
+                return;
+            }
+
+            p.stage = "QUESTIONS";
+            for (String sql : BLOCK_DELETES) {
+                if (!deleteInChunks(sql, blockId, p)) return;
+            }
+            progress.remove(blockId);
+            System.out.println("[BlockDelete] [" + Thread.currentThread().getName() + "] Bloque " + blockId + " borrado: "
+                    + p.rooms + " salas, " + p.rows + " filas en " + (System.currentTimeMillis() - start) + " ms");
+        } catch (RuntimeException e) {
+            // Lo borrado queda borrado; la siguiente pasada sigue desde ahí
+            p.stage = "ERROR";
+            p.error = String.valueOf(e.getMessage());
+            System.out.println("[BlockDelete] [" + Thread.currentThread().getName() + "] ERROR en el bloque " + blockId + ": " + e);
+        }
+    }
+
+    // Repite el DELETE ... LIMIT hasta que borra menos de un trozo. false si se interrumpe (apagado)
+    private boolean deleteInChunks(String sql, Long id, Progress p) {
+        while (true) {
+            int deleted = jdbcTemplate.update(sql, id, chunkSize);
+            p.rows += deleted;
+            if (deleted < chunkSize) return true;
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Progreso del borrado de un bloque. Lo escribe solo el hilo de borrado.
+     */
+    public static class Progress {
+        private final long startedAt = System.currentTimeMillis();
+        private volatile String stage = "PENDING";
+        private volatile int rooms;
+        private volatile int waitingRooms;
+        private volatile long rows;
+        private volatile String error;
+
+        public String getStage() { return stage; }
+        public int getRooms() { return rooms; }
+        public int getWaitingRooms() { return waitingRooms; }
+        public long getRows() { return rows; }
+        public String getError() { return error; }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("stage", stage);
+            map.put("rooms", rooms);
+            map.put("waitingRooms", waitingRooms);
+            map.put("rows", rows);
+            map.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            if (error != null) map.put("error", error);
+            return map;
+        }
+    }
+}
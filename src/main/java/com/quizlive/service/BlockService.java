@@ -1,25 +1,153 @@
 package com.quizlive.service;
 
+import com.quizlive.dto.BlockPage;
+import com.quizlive.dto.BlockSummary;
 import com.quizlive.model.Block;
 import com.quizlive.model.User;
 import com.quizlive.repository.BlockRepository;
+import com.quizlive.search.QuestionSearchIndex;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class BlockService {
 
+    // Copia de un bloque: la fila del bloque, sus preguntas (en orden de id) y las opciones de cada una.
+    // Las imágenes no se copian: la copia apunta al mismo fichero (su nombre es el hash del contenido)
+    private static final String CLONE_BLOCK =
+            "insert into block (name, description, user_id) " +
+            "select left(concat(name, ' (copia)'), 255), description, ? from block where id = ? and deleted_at is null";
+
+    private static final String CLONE_QUESTIONS =
+            "insert into question (statement, correct_option_index, topic, media, block_id) " +
+            "select statement, correct_option_index, topic, media, ? from question where block_id = ? order by id";
+
+    private static final String CLONE_OPTIONS =
+            "insert into question_options (question_id, option_index, option_text) " +
+            "select copy.id, o.option_index, o.option_text " +
+            "from (select id, row_number() over (order by id) n from question where block_id = ?) original " +
+            "join (select id, row_number() over (order by id) n from question where block_id = ?) copy on copy.n = original.n " +
+            "join question_options o on o.question_id = original.id";
+
     @Autowired
     private BlockRepository blockRepository;
 
-    public List<Block> getBlocksByUser(User user) {
-        return blockRepository.findByOwnerId(user.getId());
+    @Autowired
+    private BlockDeletionService blockDeletionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Bloques por página del listado
+    @Value("${quizlive.catalog.page-size:24}")
+    private int pageSize;
+
+    // Vida de una página cacheada (acota lo que tarda en verse un cambio hecho desde otro nodo)
+    @Value("${quizlive.catalog.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    // Usuarios con páginas en caché (LRU)
+    @Value("${quizlive.catalog.cache-owners:1000}")
+    private int cacheOwners;
+
+    // Tras un cambio, este tiempo se lee de la principal (como mucho el retraso admitido de la réplica)
+    @Value("${quizlive.catalog.primary-after-change-ms:5000}")
+    private long primaryAfterChangeMillis;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    // Usuario -> sus páginas
+    private final LinkedHashMap<Long, OwnerCatalog> catalogCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, OwnerCatalog> eldest) {
+            return size() > cacheOwners;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Listado paginado de los bloques del usuario (tarjetas con nº de preguntas y última partida),
+     * cacheado por usuario. Cualquier cambio en sus bloques, preguntas o partidas tira su caché entera.
+     * Justo después de un cambio se lee de la principal: la réplica podría no tenerlo todavía.
+     */
+    public BlockPage getCatalogPage(User user, Long before) {
+        long cursor = before != null ? before : Long.MAX_VALUE;
+        OwnerCatalog catalog;
+        synchronized (catalogCache) {
+            catalog = catalogCache.computeIfAbsent(user.getId(), id -> new OwnerCatalog(0));
+        }
+        BlockPage page = catalog.get(cursor);
+        if (page != null) return page;
+
+        PageRequest limit = PageRequest.of(0, pageSize + 1); // Una de más para saber si hay siguiente página
+        List<BlockSummary> rows = System.currentTimeMillis() - catalog.changedAtMillis < primaryAfterChangeMillis
+                ? blockRepository.findCatalogPage(user.getId(), cursor, limit)
+                : readOnlyTransaction.execute(status -> blockRepository.findCatalogPage(user.getId(), cursor, limit));
+        boolean more = rows.size() > pageSize;
+        if (more) rows = rows.subList(0, pageSize);
+        page = new BlockPage(new ArrayList<>(rows), more ? rows.get(rows.size() - 1).getId() : null);
+        // Si entretanto se invalidó, esto va a una caché ya desenganchada y no se vuelve a servir
+        catalog.put(cursor, page, System.currentTimeMillis() + cacheTtlSeconds * 1000);
+        return page;
     }
 
+    // Nombres de los bloques (resultados del buscador), sin cargar las entidades
+    public Map<Long, String> getBlockNames(java.util.Collection<Long> blockIds) {
+        Map<Long, String> names = new java.util.HashMap<>();
+        if (blockIds.isEmpty()) return names;
+        for (Object[] row : blockRepository.findNamesByIdIn(blockIds)) {
+            names.put((Long) row[0], (String) row[1]);
+        }
+        return names;
+    }
+
+    // Tira las páginas cacheadas del usuario
+    public void evictCatalog(Long ownerId) {
+        if (ownerId == null) return;
+        synchronized (catalogCache) {
+            catalogCache.put(ownerId, new OwnerCatalog(System.currentTimeMillis()));
+        }
+    }
+
+    public void evictCatalogForBlock(Long blockId) {
+        evictCatalog(blockRepository.findOwnerIdById(blockId));
+    }
+
+    // Bloques del usuario con el borrado en marcha
+    @Transactional(readOnly = true)
+    public List<Block> getDeletingBlocks(User user) {
+        return blockRepository.findByOwnerIdAndDeletedAtIsNotNull(user.getId());
+    }
+
+    // null también si se está borrando: ni se edita ni se juega
     public Block getBlockById(Long id) {
-        return blockRepository.findById(id).orElse(null);
+        return blockRepository.findById(id).filter(b -> b.getDeletedAt() == null).orElse(null);
     }
     
     public void saveBlock(Block block, User owner) {
@@ -31,16 +159,73 @@ public class BlockService {
                 existingBlock.setDescription(block.getDescription());
                 // No tocamos existingBlock.setQuestions(...) asi las mantenemos
                 blockRepository.save(existingBlock);
+                evictCatalog(existingBlock.getOwner().getId());
                 return;
             }
         }
         // Creación nueva
         block.setOwner(owner); 
         blockRepository.save(block);
+        evictCatalog(owner.getId());
     }
 
+    /**
+     * Copia el bloque (con sus preguntas y opciones) para el usuario, todo en la BD con INSERT ... SELECT
+     * y en una transacción: tres sentencias sean cuantas sean las preguntas. Devuelve el id de la copia.
+     *
+     * Las preguntas se copian en orden de id, así que la n-ésima copia (por id) es la de la n-ésima original:
+     * con eso se emparejan para copiar las opciones. Cada opción se copia con su option_index, así que la
+     * copia conserva el orden y la correcta sigue siendo la misma.
+     */
+    @Transactional
+    public Long cloneBlock(Long blockId, User owner) {
+        long start = System.nanoTime();
+        int blocks = jdbcTemplate.update(CLONE_BLOCK, owner.getId(), blockId);
+        if (blocks == 0) return null;
+        Long cloneId = jdbcTemplate.queryForObject("select last_insert_id()", Long.class);
+        int questions = jdbcTemplate.update(CLONE_QUESTIONS, cloneId, blockId);
+        int options = jdbcTemplate.update(CLONE_OPTIONS, blockId, cloneId);
+        evictCatalog(owner.getId());
+        // La copia entra en el buscador cuando ya está confirmada en la BD
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                questionSearchIndex.reindexBlock(cloneId);
+            }
+        });
+        System.out.println("[Blocks] [" + Thread.currentThread().getName() + "] Bloque " + blockId + " copiado en " + cloneId + ": "
+                + questions + " preguntas, " + options + " opciones en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return cloneId;
+    }
+
+    // Borrado lógico inmediato; las filas (salas, jugadores, respuestas, preguntas) se borran en segundo plano
     public void deleteBlock(Long blockId) {
         // Aquí podríamos validar que el usuario es el dueño antes de borrar
-        blockRepository.deleteById(blockId);
+        blockDeletionService.requestDeletion(blockId);
+        evictCatalogForBlock(blockId);
+        questionSearchIndex.removeBlock(blockId);
+    }
+
+    /**
+     * Páginas cacheadas de un usuario (cursor -> página) y cuándo cambiaron por última vez sus bloques.
+     */
+    private static class OwnerCatalog {
+        private final long changedAtMillis;
+        private final ConcurrentHashMap<Long, BlockPage> pages = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Long, Long> expiresAt = new ConcurrentHashMap<>();
+
+        OwnerCatalog(long changedAtMillis) {
+            this.changedAtMillis = changedAtMillis;
+        }
+
+        BlockPage get(long cursor) {
+            Long expires = expiresAt.get(cursor);
+            return expires != null && expires > System.currentTimeMillis() ? pages.get(cursor) : null;
+        }
+
+        void put(long cursor, BlockPage page, long expires) {
+            pages.put(cursor, page);
+            expiresAt.put(cursor, expires);
+        }
     }
 }
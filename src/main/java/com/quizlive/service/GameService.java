@@ -1,9 +1,12 @@
 package com.quizlive.service;
 
+import com.quizlive.engine.RoomStateMachine;
 import com.quizlive.model.Block;
 import com.quizlive.model.GameRoom;
 import com.quizlive.model.Player;
 import com.quizlive.model.Question;
+import com.quizlive.model.RoomStatus;
+import com.quizlive.model.ScoringCurve;
 import com.quizlive.model.User;
 import com.quizlive.repository.GameRoomRepository;
 import com.quizlive.repository.PlayerRepository;
@@ -12,8 +15,6 @@ import org.springframework.stereotype.Service;
 import java.util.Random;
 import java.util.Optional;
 import java.util.List;
-import java.util.Comparator;
-import java.util.stream.Collectors;
 
 @Service
 public class GameService {
@@ -33,57 +34,86 @@ public class GameService {
     @Autowired
     private BlockService blockService;
 
+    @Autowired
+    private com.quizlive.cluster.ClusterRouter clusterRouter;
+
+    @Autowired
+    private QuestionSelector questionSelector;
+
+    @Autowired
+    private PlayerTokenService playerTokenService;
+
+    @Autowired
+    private com.quizlive.repository.QuestionRepository questionRepository;
+
+    @Autowired
+    private ResultsService resultsService;
+
     // Crear Sala con Configuración (Parte C)
     public GameRoom createGameWithConfig(com.quizlive.dto.GameConfigForm config, User host) {
         Block block = blockService.getBlockById(config.getBlockId());
         if(block == null) return null;
 
+        // Drain & handoff: durante el apagado no se crean salas nuevas
+        if(!quizEngine.isAcceptingRooms()) return null;
+        // Tope de salas del nodo (503) antes de escribir nada en la BD
+        quizEngine.admitRoom();
+
+        // Selección de Preguntas (Parte C / E)
+        // Solo IDs: no se carga block.getQuestions() ni se baraja la colección de la entidad
+        List<QuestionSelector.SelectedQuestion> selectedQuestions;
+        if(config.isRandomMode()) {
+            // Modo Aleatorio: N al azar (reservorio), opcionalmente por temas
+            selectedQuestions = questionSelector.selectRandom(block.getId(), config.getNumQuestionsRandom(), config.isStratifiedByTopic());
+        } else {
+            // Modo Manual: IDs seleccionados, resueltos con una consulta IN
+            selectedQuestions = questionSelector.selectManual(block.getId(), config.getSelectedQuestionIds());
+        }
+        // Sin preguntas no hay partida (el motor no puede abrir la primera): nada se escribe en la BD
+        if(selectedQuestions.isEmpty()) return null;
+
         GameRoom room = new GameRoom();
         room.setBlock(block);
         room.setHost(host);
-        room.setStatus("LOBBY");
+        room.setStatus(RoomStatus.LOBBY);
         room.setCurrentQuestionIndex(0);
         room.setTimeLimit(config.getTimeLimit());
+        room.setScoringCurve(parseCurve(config.getScoringCurve()));
+        room.setMaxPoints(config.getMaxPoints() > 0 ? config.getMaxPoints() : 1000);
+        room.setStreakBonus(Math.max(0, config.getStreakBonus()));
+        room.setSelfPaced(config.isSelfPaced());
+        room.setCreatedAt(java.time.LocalDateTime.now());
         
-        // Generar PIN
+        // Generar PIN (en cluster, solo PINs cuyo dueño sea este nodo: la sala vive aquí)
         String pin;
         do {
             pin = String.format("%05d", new Random().nextInt(100000));
-        } while (gameRoomRepository.findByPin(pin).isPresent());
+        } while (!clusterRouter.isLocal(pin) || gameRoomRepository.findByPin(pin).isPresent());
         room.setPin(pin);
         
         room = gameRoomRepository.save(room);
-        
-        // --- INTEGRACIÓN ENGINE: Inicializar sala en memoria ---
-        quizEngine.initRoom(pin, room.getId());
-
-        // Selección de Preguntas (Parte C / E)
-        List<Question> selectedQuestions = new java.util.ArrayList<>();
-        List<Question> allQuestions = block.getQuestions();
+        blockService.evictCatalog(block.getOwner().getId()); // Cambia la "última partida" del bloque
 
-        if(config.isRandomMode()) {
-            // Modo Aleatorio: Barajar y coger N
-            java.util.Collections.shuffle(allQuestions);
-            int n = Math.min(config.getNumQuestionsRandom(), allQuestions.size());
-            selectedQuestions = allQuestions.subList(0, n);
-        } else {
-            // Modo Manual: Filtrar por IDs seleccionados
-            if(config.getSelectedQuestionIds() != null) {
-                for(Question q : allQuestions) {
-                    if(config.getSelectedQuestionIds().contains(q.getId())) {
-                        selectedQuestions.add(q);
-                    }
-                }
-            }
-        }
-        
         // Guardar RoomQuestion (Orden fijo para esta partida)
+        // y de paso la clave de respuestas que el motor tendrá en memoria
+        List<com.quizlive.model.RoomQuestion> roomQuestions = new java.util.ArrayList<>(selectedQuestions.size());
         int order = 0;
-        for(Question q : selectedQuestions) {
-            com.quizlive.model.RoomQuestion rq = new com.quizlive.model.RoomQuestion(room, q, order++);
-            roomQuestionRepository.save(rq);
+        for(QuestionSelector.SelectedQuestion q : selectedQuestions) {
+            // Referencia por ID (proxy), sin cargar la pregunta
+            roomQuestions.add(new com.quizlive.model.RoomQuestion(room, questionRepository.getReferenceById(q.getId()), order++));
+        }
+        roomQuestions = roomQuestionRepository.saveAll(roomQuestions);
+
+        long[] roomQuestionIds = new long[roomQuestions.size()];
+        int[] correctOptions = new int[roomQuestions.size()];
+        for(int i = 0; i < roomQuestions.size(); i++) {
+            roomQuestionIds[i] = roomQuestions.get(i).getId();
+            correctOptions[i] = selectedQuestions.get(i).getCorrectOptionIndex();
         }
         
+        // --- INTEGRACIÓN ENGINE: Inicializar sala en memoria ---
+        quizEngine.initRoom(pin, room.getId(), room.getTimeLimit(), scoringPolicyOf(room), roomQuestionIds, correctOptions, room.isSelfPaced());
+
         return room;
     }
     
@@ -91,207 +121,346 @@ public class GameService {
         return gameRoomRepository.findByPin(pin);
     }
 
-    public Player joinGame(String pin, String nickname) {
+    // Devuelve el token firmado del jugador (null si el PIN no vale, la sala no está en LOBBY o el nick existe)
+    // clientKey identifica al navegador (cookie) o, sin ella, a la IP para limitar intentos de entrada
+    public String joinGame(String pin, String nickname, String clientKey) {
+        // Límite por cliente antes de cualquier lectura: un PIN inventado también cuesta un token (429)
+        quizEngine.admitJoinAttempt(clientKey);
+
         // Parte D: Evitar nombres duplicados
         Optional<GameRoom> roomOpt = gameRoomRepository.findByPin(pin);
         if(roomOpt.isPresent()) {
             GameRoom room = roomOpt.get();
-            if("LOBBY".equals(room.getStatus())) {
-                // Verificar duplicado
-                boolean exists = room.getPlayers().stream()
-                        .anyMatch(p -> p.getNickname().equalsIgnoreCase(nickname));
-                if(exists) return null; // O lanzar excepción personalizada
+            if(ensureActive(pin) && getRoomStatus(room) == RoomStatus.LOBBY) {
+                // Límite de entradas por sala y tope de jugadores del nodo (429/503)
+                quizEngine.admitJoin(pin);
+
+                // Verificar duplicado: reserva atómica en memoria (no se cargan los jugadores)
+                if(!quizEngine.reserveNickname(pin, nickname)) return null; // O lanzar excepción personalizada
 
                 Player player = new Player();
                 player.setNickname(nickname);
                 player.setScore(0);
                 player.setGameRoom(room);
-                return playerRepository.save(player);
+                try {
+                    player = playerRepository.save(player);
+                } catch (RuntimeException e) {
+                    quizEngine.releaseNickname(pin, nickname);
+                    throw e;
+                }
+                int slot = quizEngine.registerPlayer(pin, player.getId(), nickname);
+                return playerTokenService.issue(pin, slot, player.getId());
             }
         }
         return null; 
     }
 
     public void startGame(String pin) {
+        if(!ensureActive(pin)) return;
+
+        // --- INTEGRACIÓN ENGINE: LOBBY -> PLAYING por CAS e inicio del Timer pregunta 1 ---
+        long state = quizEngine.startGame(pin);
+        if(state != RoomStateMachine.REJECTED) {
+            syncRoomStateAsync(pin, state);
+        }
+    }
+
+    // Estado de la sala: el del motor si está en memoria (lectura atómica), si no el de la BD
+    public RoomStatus getRoomStatus(GameRoom room) {
+        long state = quizEngine.getState(room.getPin());
+        return state != RoomStateMachine.REJECTED ? RoomStateMachine.statusOf(state) : room.getStatus();
+    }
+
+    public int getCurrentQuestionIndex(GameRoom room) {
+        long state = quizEngine.getState(room.getPin());
+        return state != RoomStateMachine.REJECTED ? RoomStateMachine.indexOf(state) : room.getCurrentQuestionIndex();
+    }
+
+    // Roster del lobby en memoria (null si la sala no existe o ya terminó)
+    public com.quizlive.engine.LobbyRoster getLobbyRoster(String pin) {
+        if(!ensureActive(pin)) return null;
+        return quizEngine.getRoster(pin);
+    }
+
+    // --- JUGADOR POR TOKEN (sin cargar Player/GameRoom en cada petición) ---
+
+    // Verifica la firma y se asegura de que la sala esté en memoria (salvo si ya terminó)
+    public PlayerTokenService.PlayerToken verifyPlayerToken(String token) {
+        PlayerTokenService.PlayerToken player = playerTokenService.verify(token);
+        if(player == null) return null;
+        ensureActive(player.getPin());
+        return player;
+    }
+
+    // Estado por PIN: motor primero; la BD solo si la sala no está en memoria (partida ya terminada)
+    public RoomStatus getRoomStatus(String pin) {
+        long state = quizEngine.getState(pin);
+        if(state != RoomStateMachine.REJECTED) return RoomStateMachine.statusOf(state);
+        return gameRoomRepository.findByPin(pin).map(GameRoom::getStatus).orElse(null);
+    }
+
+    // Nick, puntos y posición del jugador. Desde el motor; si la sala ya no está, desde la BD.
+    public com.quizlive.dto.PlayerView getPlayerView(PlayerTokenService.PlayerToken token) {
+        String pin = token.getPin();
+        String nickname = quizEngine.getNickname(pin, token.getSlot(), token.getPlayerId());
+        if(nickname != null) {
+            return new com.quizlive.dto.PlayerView(token.getPlayerId(), nickname,
+                    quizEngine.getScore(pin, token.getPlayerId()),
+                    quizEngine.getPosition(pin, token.getPlayerId()),
+                    quizEngine.getPlayerCount(pin));
+        }
+        // Partida terminada: su línea de los resultados materializados (sin ordenar a todos los jugadores)
+        com.quizlive.dto.GameResults results = resultsService.getResults(pin);
+        com.quizlive.dto.GameResults.Entry entry = results != null ? results.entryOf(token.getPlayerId()) : null;
+        if(entry == null) return null;
+        return new com.quizlive.dto.PlayerView(entry.getPlayerId(), entry.getNickname(), entry.getScore(),
+                entry.getPosition(), results.getTotalPlayers());
+    }
+
+    // Pregunta actual de la sala a partir del ID que el motor tiene en memoria (una lectura por clave)
+    public com.quizlive.model.RoomQuestion getCurrentRoomQuestion(String pin) {
+        long state = quizEngine.getState(pin);
+        if(state == RoomStateMachine.REJECTED) return null;
+        long roomQuestionId = quizEngine.getRoomQuestionId(pin, RoomStateMachine.indexOf(state));
+        return roomQuestionId < 0 ? null : roomQuestionRepository.findById(roomQuestionId).orElse(null);
+    }
+
+    public int getTotalQuestions(String pin) {
+        return quizEngine.getTotalQuestions(pin);
+    }
+
+    public int getTimeLimit(String pin) {
+        return quizEngine.getTimeLimitSeconds(pin);
+    }
+
+    public boolean hasAnswered(String pin, Long playerId) {
+        return quizEngine.hasAnswered(pin, playerId);
+    }
+
+    public boolean wasAnswerCorrect(String pin, Long playerId) {
+        return quizEngine.wasAnswerCorrect(pin, playerId);
+    }
+
+    // Palabra de estado del motor para un PIN (RoomStateMachine.REJECTED si no está en memoria)
+    public long getEngineState(String pin) {
+        return quizEngine.getState(pin);
+    }
+
+    // Epoch actual de la sala (para el long-poll del jugador); -1 si no está en memoria
+    public long getEngineEpoch(String pin) {
+        long state = quizEngine.getState(pin);
+        return state != RoomStateMachine.REJECTED ? RoomStateMachine.epochOf(state) : -1;
+    }
+
+    // Long-poll: aparca la petición del jugador hasta que su sala cambie de epoch
+    public org.springframework.web.context.request.async.DeferredResult<com.quizlive.engine.RoomStateView> waitForStateChange(PlayerTokenService.PlayerToken player, long lastEpoch) {
+        return quizEngine.awaitStateChange(player.getPin(), player.getPlayerId(), lastEpoch);
+    }
+
+    // Si la sala no está en memoria (reinicio sin handoff) se recupera desde la BD
+    private boolean ensureActive(String pin) {
+        if(quizEngine.isActive(pin)) return true;
         Optional<GameRoom> roomOpt = gameRoomRepository.findByPin(pin);
-        if(roomOpt.isPresent()) {
-            GameRoom room = roomOpt.get();
-            room.setStatus("PLAYING");
-            room.setCurrentQuestionIndex(0);
-            room.setCurrentQuestionStartTime(java.time.LocalDateTime.now()); // Marca de tiempo inicio
-            gameRoomRepository.save(room);
-            
-            // --- INTEGRACIÓN ENGINE: Iniciar Timer pregunta 1 ---
-            quizEngine.startQuestionTimer(pin, room.getTimeLimit());
+        if(roomOpt.isEmpty() || roomOpt.get().getStatus() == RoomStatus.FINISHED) return false;
+        GameRoom room = roomOpt.get();
+        List<com.quizlive.model.RoomQuestion> questions = roomQuestionRepository.findByGameRoomOrderByOrderIndexAsc(room);
+        long[] roomQuestionIds = new long[questions.size()];
+        int[] correctOptions = new int[questions.size()];
+        for(int i = 0; i < questions.size(); i++) {
+            roomQuestionIds[i] = questions.get(i).getId();
+            correctOptions[i] = questions.get(i).getQuestion().getCorrectOptionIndex();
+        }
+        java.util.Map<Long, Integer> scores = new java.util.HashMap<>();
+        List<Player> players = new java.util.ArrayList<>(room.getPlayers());
+        players.sort(java.util.Comparator.comparing(Player::getId)); // Orden de llegada para el roster
+        java.util.LinkedHashMap<Long, String> nicknames = new java.util.LinkedHashMap<>();
+        java.util.Map<Long, Integer> cursors = new java.util.HashMap<>();
+        for(Player p : players) {
+            scores.put(p.getId(), p.getScore());
+            nicknames.put(p.getId(), p.getNickname());
+            if(p.getCurrentQuestionIndex() > 0) cursors.put(p.getId(), p.getCurrentQuestionIndex());
+        }
+        quizEngine.recoverRoom(pin, room.getId(), room.getTimeLimit(), scoringPolicyOf(room),
+                roomQuestionIds, correctOptions, room.getStatus(), room.getCurrentQuestionIndex(), scores, nicknames,
+                room.isSelfPaced(), cursors);
+
+        // Recuentos de respuestas y aciertos hasta ahora, para que los resultados finales salgan completos
+        int[] answersByQuestion = new int[questions.size()];
+        int[] correctByQuestion = new int[questions.size()];
+        for(Object[] row : answerRepository.countByQuestion(room.getId())) {
+            int index = ((Number) row[0]).intValue();
+            if(index < 0 || index >= questions.size()) continue;
+            answersByQuestion[index] = ((Number) row[1]).intValue();
+            correctByQuestion[index] = ((Number) row[2]).intValue();
         }
+        java.util.Map<Long, Integer> answersByPlayer = new java.util.HashMap<>();
+        java.util.Map<Long, Integer> correctByPlayer = new java.util.HashMap<>();
+        for(Object[] row : answerRepository.countByPlayer(room.getId())) {
+            Long playerId = ((Number) row[0]).longValue();
+            answersByPlayer.put(playerId, ((Number) row[1]).intValue());
+            correctByPlayer.put(playerId, ((Number) row[2]).intValue());
+        }
+        quizEngine.restoreAnswerStats(pin, answersByQuestion, correctByQuestion, answersByPlayer, correctByPlayer);
+        return true;
     }
-    
-    public Player getPlayerById(Long id) {
-        return playerRepository.findById(id).orElse(null);
+
+    private com.quizlive.engine.ScoringPolicy scoringPolicyOf(GameRoom room) {
+        return new com.quizlive.engine.ScoringPolicy(room.getScoringCurve(), room.getMaxPoints(), room.getStreakBonus());
     }
-    
-    // Calcular la posición del jugador en el ranking
-    public int getPlayerPosition(Player player) {
-        GameRoom room = player.getGameRoom();
-        java.util.List<Player> players = new java.util.ArrayList<>(room.getPlayers());
-        // Ordenar por puntuación descendente
-        players.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
-        
-        for(int i = 0; i < players.size(); i++) {
-            if(players.get(i).getId().equals(player.getId())) {
-                return i + 1; // Posición 1-indexed
-            }
+
+    private ScoringCurve parseCurve(String curve) {
+        try {
+            return curve != null ? ScoringCurve.valueOf(curve) : ScoringCurve.CLASSIC;
+        } catch (IllegalArgumentException e) {
+            return ScoringCurve.CLASSIC;
         }
-        return players.size();
+    }
+
+    // La BD se actualiza fuera del hilo HTTP, en el orden de las transiciones
+    private void syncRoomStateAsync(String pin, long state) {
+        quizEngine.persistAsync(() -> gameRoomRepository.findByPin(pin).ifPresent(room -> {
+            RoomStatus status = RoomStateMachine.statusOf(state);
+            room.setStatus(status);
+            room.setCurrentQuestionIndex(RoomStateMachine.indexOf(state));
+            gameRoomRepository.save(room);
+        }));
     }
     
-    // Obtener total de jugadores en la sala
-    public int getTotalPlayersInRoom(Player player) {
-        return player.getGameRoom().getPlayers().size();
+    // Al terminar: estado en la BD y, detrás en el mismo hilo, los resultados finales (la sala sale del motor)
+    private void finishRoomAsync(String pin, long state) {
+        syncRoomStateAsync(pin, state);
+        quizEngine.persistAsync(() -> resultsService.finalizeRoom(pin));
     }
-
+    
     // --- LÓGICA DE JUEGO ESTILO QUIZIZZ ---
 
     // Helper para obtener la pregunta actual DE LA SALA (para el host)
     public com.quizlive.model.RoomQuestion getCurrentRoomQuestion(GameRoom room) {
+        return getRoomQuestionAt(room, getCurrentQuestionIndex(room));
+    }
+
+    private com.quizlive.model.RoomQuestion getRoomQuestionAt(GameRoom room, int index) {
         List<com.quizlive.model.RoomQuestion> questions = roomQuestionRepository.findByGameRoomOrderByOrderIndexAsc(room);
-        if(room.getCurrentQuestionIndex() < questions.size()) {
-            return questions.get(room.getCurrentQuestionIndex());
+        if(index < questions.size()) {
+            return questions.get(index);
         }
         return null;
     }
     
-    // Helper para obtener la pregunta actual DEL JUGADOR (Quizizz: cada uno a su ritmo)
-    public com.quizlive.model.RoomQuestion getCurrentRoomQuestionForPlayer(Player player) {
-        GameRoom room = player.getGameRoom();
-        List<com.quizlive.model.RoomQuestion> questions = roomQuestionRepository.findByGameRoomOrderByOrderIndexAsc(room);
-        if(player.getCurrentQuestionIndex() < questions.size()) {
-            return questions.get(player.getCurrentQuestionIndex());
+    public boolean isSelfPaced(String pin) {
+        return quizEngine.isSelfPaced(pin);
+    }
+
+    // Índice de la pregunta actual DEL JUGADOR (Quizizz: cada uno a su ritmo), desde su cursor en memoria.
+    // Verla arranca su plazo. Igual al total si ya ha terminado; -1 si la sala no está en juego.
+    public int openPlayerQuestion(PlayerTokenService.PlayerToken player) {
+        return quizEngine.openSelfPacedQuestion(player.getPin(), player.getPlayerId());
+    }
+
+    // Pregunta del jugador por su posición (una lectura por clave, sin cargar la lista de la sala)
+    public com.quizlive.model.RoomQuestion getRoomQuestion(String pin, int index) {
+        long roomQuestionId = quizEngine.getRoomQuestionId(pin, index);
+        return roomQuestionId < 0 ? null : roomQuestionRepository.findById(roomQuestionId).orElse(null);
+    }
+
+    // Segundos que le quedan al jugador (redondeando hacia arriba) para su pregunta
+    public int getPlayerRemainingSeconds(PlayerTokenService.PlayerToken player) {
+        long millis = quizEngine.getSelfPacedRemainingMillis(player.getPin(), player.getPlayerId());
+        return (int) ((millis + 999) / 1000);
+    }
+
+    // null si la respuesta no se aplicó (doble envío o pregunta ya vencida)
+    public Boolean submitSelfPacedAnswer(PlayerTokenService.PlayerToken player, int questionIndex, int optionIndex) {
+        Boolean correct = quizEngine.submitSelfPacedAnswer(player.getPin(), player.getPlayerId(), questionIndex, optionIndex);
+        // El último alumno en terminar cierra la partida en el motor: se refleja en la BD
+        long state = quizEngine.getState(player.getPin());
+        if(correct != null && state != RoomStateMachine.REJECTED && RoomStateMachine.statusOf(state) == RoomStatus.FINISHED) {
+            finishRoomAsync(player.getPin(), state);
+        }
+        return correct;
+    }
+
+    // % completado, jugadores terminados y reparto por pregunta (para el host)
+    public java.util.Map<String, Object> getSelfPacedProgress(String pin) {
+        if(!ensureActive(pin)) return null;
+        return quizEngine.getSelfPacedProgress(pin);
+    }
+
+    // El host termina una partida a su ritmo (aunque queden alumnos sin acabar).
+    // Si ya había terminado sola, solo se asegura de que el progreso pendiente esté en la BD.
+    public void finishGame(String pin) {
+        if(!ensureActive(pin)) return;
+        quizEngine.finishSelfPaced(pin);
+        long state = quizEngine.getState(pin);
+        if(state != RoomStateMachine.REJECTED && RoomStateMachine.statusOf(state) == RoomStatus.FINISHED) {
+            finishRoomAsync(pin, state);
         }
-        return null; // El jugador ha terminado
     }
     
     // Obtener total de preguntas de la sala
     public int getTotalQuestionsForRoom(GameRoom room) {
-        return roomQuestionRepository.findByGameRoomOrderByOrderIndexAsc(room).size();
-    }
-    
-    // Verificar si el jugador ha terminado todas las preguntas
-    public boolean hasPlayerFinished(Player player) {
-        int total = getTotalQuestionsForRoom(player.getGameRoom());
-        return player.getCurrentQuestionIndex() >= total;
+        return (int) roomQuestionRepository.countByGameRoom(room);
     }
     
     @Autowired
     private com.quizlive.repository.AnswerRepository answerRepository;
     
-    // Verificar si el jugador ya respondió la pregunta actual de la sala
-    public boolean hasPlayerAnsweredCurrentQuestion(Player player) {
-        GameRoom room = player.getGameRoom();
-        com.quizlive.model.RoomQuestion currentRQ = getCurrentRoomQuestion(room);
-        if(currentRQ == null) return false;
-        
-        // Buscar si existe una respuesta de este jugador para esta RoomQuestion
-        return answerRepository.existsByPlayerAndRoomQuestion(player, currentRQ);
-    }
-    
-    // Obtener si la respuesta del jugador a la pregunta actual fue correcta
-    public boolean wasPlayerAnswerCorrect(Player player) {
-        GameRoom room = player.getGameRoom();
-        com.quizlive.model.RoomQuestion currentRQ = getCurrentRoomQuestion(room);
-        if(currentRQ == null) return false;
-        
-        java.util.Optional<com.quizlive.model.Answer> answer = answerRepository.findByPlayerAndRoomQuestion(player, currentRQ);
-        return answer.map(com.quizlive.model.Answer::isCorrect).orElse(false);
-    }
-
-    public boolean submitAnswer(Long playerId, int optionIndex) {
-        Player player = playerRepository.findById(playerId).orElse(null);
-        if(player != null) {
-            GameRoom room = player.getGameRoom();
-            if("PLAYING".equals(room.getStatus())) {
-                
-                // KAHOOT: Obtenemos la pregunta de la SALA (todos ven la misma)
-                com.quizlive.model.RoomQuestion currentRQ = getCurrentRoomQuestion(room);
-                if(currentRQ != null) {
-                   Question q = currentRQ.getQuestion();
-                   boolean isCorrect = (q.getCorrectOptionIndex() == optionIndex);
-                   
-                   // --- INTEGRACIÓN ENGINE: Procesar respuesta ASYNC ---
-                   quizEngine.processAnswerAsync(room.getPin(), playerId, isCorrect, () -> {
-                       // Callback de Persistencia
-                       saveAnswerToDb(player, currentRQ, optionIndex, isCorrect);
-                   });
-                   
-                   // KAHOOT: NO avanzamos al jugador. Espera a que el profe pase.
-                   return isCorrect;
-                }
-            }
-        }
-        return false;
-    }
-    
-    // QUIZIZZ: Avanzar jugador a la siguiente pregunta
-    public void advancePlayer(Player player) {
-        int nextIndex = player.getCurrentQuestionIndex() + 1;
-        player.setCurrentQuestionIndex(nextIndex);
-        playerRepository.save(player);
-        
-        // Verificar si el jugador terminó todas las preguntas
-        if(hasPlayerFinished(player)) {
-            System.out.println("[QUIZIZZ] Jugador " + player.getNickname() + " ha TERMINADO el quiz!");
-        }
+    // pin sale del token del jugador, ya verificado en el controlador
+    public com.quizlive.engine.AnswerOutcome submitAnswer(String pin, Long playerId, int optionIndex, com.quizlive.engine.AnswerTrace trace) {
+        if(trace != null) trace.markService();
+
+        // --- INTEGRACIÓN ENGINE: corregir y puntuar en memoria, persistir ASYNC ---
+        // KAHOOT: todos responden a la pregunta actual de la SALA. Ninguna lectura de BD en este camino.
+        // KAHOOT: NO avanzamos al jugador. Espera a que el profe pase.
+        return quizEngine.processAnswerAsync(pin, playerId, optionIndex,
+                (roomQuestionId, selected, correct, points, responseTimeMs) ->
+                        // Callback de Persistencia
+                        saveAnswerToDb(playerId, roomQuestionId, selected, correct, points, responseTimeMs), trace);
     }
     
     // Método auxiliar para persistir (invocado desde el hilo async)
-    private void saveAnswerToDb(Player player, com.quizlive.model.RoomQuestion rq, int optionIndex, boolean isCorrect) {
+    // Solo escrituras: referencias por ID (sin cargar entidades) y suma de puntos en la BD
+    private void saveAnswerToDb(Long playerId, long roomQuestionId, int optionIndex, boolean isCorrect, int points, long responseTimeMs) {
        // Guardar Respuesta
        com.quizlive.model.Answer answer = new com.quizlive.model.Answer();
-       answer.setPlayer(player);
-       answer.setRoomQuestion(rq);
+       answer.setPlayer(playerRepository.getReferenceById(playerId));
+       answer.setRoomQuestion(roomQuestionRepository.getReferenceById(roomQuestionId));
        answer.setSelectedOption(optionIndex);
        answer.setCorrect(isCorrect);
+       answer.setPoints(points);
+       answer.setResponseTimeMs(responseTimeMs);
        answerRepository.save(answer);
 
        // Actualizar Puntuación en DB
-       if(isCorrect) {
-           player.setScore(player.getScore() + 1); 
-           playerRepository.save(player);
+       if(points > 0) {
+           playerRepository.addScore(playerId, points);
        }
     }
 
-    public boolean nextQuestion(String pin) {
-        Optional<GameRoom> roomOpt = gameRoomRepository.findByPin(pin);
-        if(roomOpt.isPresent()) {
-            GameRoom room = roomOpt.get();
-            int nextIndex = room.getCurrentQuestionIndex() + 1;
-            
-            // Verificar contra el número de RoomQuestions
-            int totalQuestions = roomQuestionRepository.findByGameRoomOrderByOrderIndexAsc(room).size();
-            
-            if (nextIndex < totalQuestions) {
-                room.setCurrentQuestionIndex(nextIndex);
-                room.setCurrentQuestionStartTime(java.time.LocalDateTime.now()); 
-                gameRoomRepository.save(room);
-                
-                // --- INTEGRACIÓN ENGINE: Timer siguiente pregunta ---
-                quizEngine.startQuestionTimer(pin, room.getTimeLimit());
-                
-                return true; 
-            } else {
-                room.setStatus("FINISHED");
-                gameRoomRepository.save(room);
-                return false; 
-            }
+    // expectedIndex = pregunta que veía el host al pulsar "Siguiente" (-1 si no se sabe)
+    public boolean nextQuestion(String pin, int expectedIndex) {
+        if(!ensureActive(pin)) return false;
+
+        // --- INTEGRACIÓN ENGINE: transición por CAS (siguiente pregunta o FINISHED) + Timer ---
+        long state = quizEngine.nextQuestion(pin, expectedIndex);
+        if(state != RoomStateMachine.REJECTED && RoomStateMachine.statusOf(state) == RoomStatus.FINISHED) {
+            finishRoomAsync(pin, state);
+        } else if(state != RoomStateMachine.REJECTED) {
+            syncRoomStateAsync(pin, state);
+        } else {
+            state = quizEngine.getState(pin); // Otro click ya avanzó: devolvemos el estado actual
         }
-        return false;
+        // REJECTED otra vez: la sala ha salido del motor entre tanto (apagado, handoff)
+        return state != RoomStateMachine.REJECTED && RoomStateMachine.statusOf(state) == RoomStatus.PLAYING;
     }
     
-    public List<Player> getRanking(GameRoom room) {
-        // Podríamos sacar el ranking de memoria del Engine si quisiéramos tiempo real absoluto,
-        // pero para persistencia y simplicidad final leemos de BD.
-        return room.getPlayers().stream()
-                .sorted(Comparator.comparingInt(Player::getScore).reversed())
-                .collect(Collectors.toList());
+    // Ranking final y aciertos por pregunta: calculados una vez al terminar (ver ResultsService)
+    public com.quizlive.dto.GameResults getResults(String pin) {
+        return resultsService.getResults(pin);
+    }
+
+    // Ranking provisional mientras la partida sigue en juego
+    public com.quizlive.dto.GameResults getLiveResults(String pin) {
+        return resultsService.getLiveResults(pin);
     }
 }
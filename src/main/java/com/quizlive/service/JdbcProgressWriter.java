@@ -0,0 +1,58 @@
+package com.quizlive.service;
+
+import com.quizlive.engine.ProgressEvent;
+import com.quizlive.engine.ProgressWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vuelca el progreso del modo a su ritmo: un INSERT por lotes de las respuestas y un UPDATE
+ * por jugador (puntos sumados y cursor), todo en una transacción. Cientos de alumnos avanzando
+ * a la vez se convierten en dos sentencias por lote en vez de varias escrituras por click.
+ */
+@Service
+public class JdbcProgressWriter implements ProgressWriter {
+
+    private static final String INSERT_ANSWER =
+            "insert into answer (player_id, room_question_id, selected_option, correct, points, response_time_ms) values (?, ?, ?, ?, ?, ?)";
+
+    // greatest(): un lote reintentado o desordenado nunca hace retroceder el cursor
+    private static final String UPDATE_PLAYER =
+            "update player set score = score + ?, current_question_index = greatest(current_question_index, ?) where id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void write(List<ProgressEvent> events) {
+        List<Object[]> answers = new ArrayList<>(events.size());
+        // playerId -> {puntos, siguiente pregunta}
+        Map<Long, int[]> players = new LinkedHashMap<>();
+        for (ProgressEvent e : events) {
+            answers.add(new Object[] { e.getPlayerId(), e.getRoomQuestionId(), e.getSelectedOption(),
+                    e.isCorrect(), e.getPoints(), e.getResponseTimeMs() });
+            int[] progress = players.computeIfAbsent(e.getPlayerId(), id -> new int[2]);
+            progress[0] += e.getPoints();
+            progress[1] = Math.max(progress[1], e.getQuestionIndex() + 1);
+        }
+        List<Object[]> updates = new ArrayList<>(players.size());
+        players.forEach((playerId, progress) -> updates.add(new Object[] { progress[0], progress[1], playerId }));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_ANSWER, answers);
+            jdbcTemplate.batchUpdate(UPDATE_PLAYER, updates);
+        });
+        System.out.println("[SelfPaced] [" + Thread.currentThread().getName() + "] Lote volcado: "
+                + answers.size() + " respuestas, " + updates.size() + " jugadores");
+    }
+}
@@ -0,0 +1,128 @@
+package com.quizlive.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Tokens de sesión del jugador, sin estado en el servidor.
+ *
+ * Formato: pin.slot.playerId.firma, donde firma = HMAC-SHA256(pin.slot.playerId) truncado a 128 bits
+ * en base64url (22 caracteres). El slot es la posición del jugador en el roster de la sala,
+ * así el nick sale de memoria sin leer el Player. Verificar es un HMAC: microsegundos, sin BD.
+ * Cambiar el playerId de la URL ya no permite jugar como otro alumno.
+ *
+ * La clave (quizlive.player-token.secret) tiene que ser la misma en todos los nodos y sobrevivir
+ * a los reinicios; si no se configura se genera una aleatoria y los tokens caducan al reiniciar.
+ * Con cluster o handoff-dir configurados la clave es obligatoria y sin ella no arranca.
+ */
+@Service
+public class PlayerTokenService {
+
+    private static final int SIGNATURE_BYTES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    @Value("${quizlive.player-token.secret:}")
+    private String secret;
+
+    @Value("${quizlive.cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${quizlive.cluster.handoff-dir:}")
+    private String handoffDir;
+
+    private SecretKeySpec key;
+
+    // Mac no es thread-safe: una instancia por hilo
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            // Con cluster o handoff el token viaja a otro nodo (o a la instancia sucesora): una clave
+            // aleatoria lo invalidaría allí y el jugador perdería la sesión. Mejor no arrancar
+            if (!clusterNodes.isBlank() || !handoffDir.isBlank()) {
+                throw new IllegalStateException("quizlive.player-token.secret es obligatorio con quizlive.cluster.nodes"
+                        + " o quizlive.cluster.handoff-dir (misma clave en todos los nodos)");
+            }
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            System.out.println("[Tokens] quizlive.player-token.secret no configurado: clave aleatoria (los jugadores tendrán que volver a entrar tras un reinicio)");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(keyBytes, "HmacSHA256");
+    }
+
+    public String issue(String pin, int slot, long playerId) {
+        String payload = pin + "." + slot + "." + playerId;
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    // Token válido -> datos del jugador; cualquier otra cosa (formato, firma) -> null
+    public PlayerToken verify(String token) {
+        if (token == null || token.length() > 128) return null;
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart <= 0) return null;
+
+        String payload = token.substring(0, signatureStart);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // Comparación en tiempo constante
+        if (!MessageDigest.isEqual(signature, sign(payload))) return null;
+
+        String[] parts = payload.split("\\.");
+        if (parts.length != 3) return null;
+        try {
+            return new PlayerToken(parts[0], Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        byte[] full = macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        return Arrays.copyOf(full, SIGNATURE_BYTES);
+    }
+
+    /**
+     * Contenido de un token ya verificado.
+     */
+    public static class PlayerToken {
+        private final String pin;
+        private final int slot;
+        private final long playerId;
+
+        public PlayerToken(String pin, int slot, long playerId) {
+            this.pin = pin;
+            this.slot = slot;
+            this.playerId = playerId;
+        }
+
+        public String getPin() { return pin; }
+        public int getSlot() { return slot; }
+        public long getPlayerId() { return playerId; }
+    }
+}
@@ -0,0 +1,432 @@
+package com.quizlive.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quizlive.search.QuestionSearchIndex;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Importación masiva de preguntas a un bloque desde CSV o JSON.
+ *
+ * El fichero se copia a disco y se procesa en segundo plano leyéndolo como stream:
+ * en memoria solo hay un lote de preguntas (BATCH_SIZE), sea cual sea el tamaño del fichero.
+ * Cada lote se inserta con JDBC batch (question + question_options) en su propia transacción,
+ * así el progreso es real y un error a mitad no deshace lo ya importado.
+ *
+ * CSV: enunciado, opción 1, opción 2, opción 3, opción 4, índice correcto (0-3) [, tema]
+ *      separado por ',' o ';' (se detecta en la primera línea), con cabecera opcional.
+ * JSON: array de objetos (o un objeto por línea) con statement, options[4], correctOptionIndex y topic opcional.
+ */
+@Service
+public class QuestionImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_ERRORS = 50;
+    private static final int MAX_TEXT = 255;
+    private static final int MAX_TOPIC = 100;
+
+    private static final String INSERT_QUESTION =
+            "insert into question (statement, correct_option_index, topic, block_id) values (?, ?, ?, ?)";
+    private static final String INSERT_OPTION =
+            "insert into question_options (question_id, option_index, option_text) values (?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BlockService blockService;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Las importaciones van de una en una para no competir con las partidas por conexiones
+    private ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    // Progreso de cada importación (ID -> progreso)
+    private ConcurrentHashMap<String, ImportProgress> jobs = new ConcurrentHashMap<>();
+
+    // Copia el fichero subido a disco y encola la importación. Devuelve el ID para consultar el progreso.
+    public String startImport(Long blockId, MultipartFile file) throws IOException {
+        purgeOldJobs();
+
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "";
+        boolean json = fileName.toLowerCase().endsWith(".json") || fileName.toLowerCase().endsWith(".jsonl")
+                || (file.getContentType() != null && file.getContentType().contains("json"));
+
+        Path tmp = Files.createTempFile("quizlive-import-", json ? ".json" : ".csv");
+        file.transferTo(tmp);
+
+        ImportProgress progress = new ImportProgress(UUID.randomUUID().toString(), blockId, fileName, Files.size(tmp));
+        jobs.put(progress.getId(), progress);
+        importExecutor.submit(() -> runImport(progress, tmp, json));
+        System.out.println("Importación encolada: " + fileName + " -> bloque " + blockId + " (" + progress.getTotalBytes() + " bytes)");
+        return progress.getId();
+    }
+
+    public ImportProgress getProgress(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void runImport(ImportProgress progress, Path file, boolean json) {
+        progress.setState(ImportProgress.State.RUNNING);
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        try (InputStream in = new CountingInputStream(Files.newInputStream(file), progress)) {
+            RowSink sink = row -> {
+                String error = validate(row);
+                if (error != null) {
+                    progress.reject("Registro " + row.record + ": " + error, MAX_ERRORS);
+                    return;
+                }
+                batch.add(row);
+                if (batch.size() >= BATCH_SIZE) flush(progress, batch);
+            };
+            if (json) {
+                parseJson(in, sink);
+            } else {
+                parseCsv(in, sink);
+            }
+            flush(progress, batch);
+            progress.setState(ImportProgress.State.DONE);
+            System.out.println("Importación terminada: " + progress.getImported() + " preguntas, " + progress.getRejected() + " rechazadas");
+        } catch (Exception e) {
+            progress.fail(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            System.err.println("Error en la importación " + progress.getId() + ": " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // --- Lectura ---
+
+    private void parseCsv(InputStream in, RowSink sink) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        skipBom(reader);
+        CsvRecordReader csv = new CsvRecordReader(reader, detectDelimiter(reader));
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            // La primera línea es cabecera si la columna del índice correcto no es un número
+            if (csv.getRecordNumber() == 1 && fields.size() >= 6 && parseIndex(fields.get(5)) == null) continue;
+
+            ImportRow row = new ImportRow(csv.getRecordNumber());
+            if (fields.size() < 6) {
+                row.error = "se esperaban al menos 6 columnas y hay " + fields.size();
+            } else {
+                row.statement = fields.get(0).trim();
+                for (int i = 1; i <= 4; i++) row.options.add(fields.get(i).trim());
+                Integer correct = parseIndex(fields.get(5));
+                row.correctOptionIndex = correct != null ? correct : -1;
+                if (fields.size() > 6) row.topic = fields.get(6).trim();
+            }
+            sink.accept(row);
+        }
+    }
+
+    private void parseJson(InputStream in, RowSink sink) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) return;
+            boolean array = first == JsonToken.START_ARRAY;
+            long record = 0;
+            JsonToken token = array ? parser.nextToken() : first;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                // Solo se materializa el objeto actual, no el documento entero
+                JsonNode node = objectMapper.readTree(parser);
+                ImportRow row = new ImportRow(++record);
+                if (node == null || !node.isObject()) {
+                    row.error = "no es un objeto JSON";
+                } else {
+                    row.statement = node.path("statement").asText("").trim();
+                    JsonNode options = node.path("options");
+                    if (options.isArray()) {
+                        for (JsonNode option : options) row.options.add(option.asText("").trim());
+                    }
+                    JsonNode correct = node.has("correctOptionIndex") ? node.get("correctOptionIndex") : node.path("correct");
+                    row.correctOptionIndex = correct.canConvertToInt() ? correct.asInt() : parseIndexOrInvalid(correct.asText(""));
+                    row.topic = node.hasNonNull("topic") ? node.get("topic").asText().trim() : null;
+                }
+                sink.accept(row);
+                token = parser.nextToken();
+            }
+        }
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.error != null) return row.error;
+        if (row.statement == null || row.statement.isEmpty()) return "enunciado vacío";
+        if (row.statement.length() > MAX_TEXT) return "enunciado de más de " + MAX_TEXT + " caracteres";
+        if (row.options.size() != 4) return "se esperaban 4 opciones y hay " + row.options.size();
+        for (String option : row.options) {
+            if (option.isEmpty()) return "opción vacía";
+            if (option.length() > MAX_TEXT) return "opción de más de " + MAX_TEXT + " caracteres";
+        }
+        if (row.correctOptionIndex < 0 || row.correctOptionIndex > 3) return "índice correcto fuera de rango (0-3)";
+        if (row.topic != null && row.topic.isEmpty()) row.topic = null;
+        if (row.topic != null && row.topic.length() > MAX_TOPIC) return "tema de más de " + MAX_TOPIC + " caracteres";
+        return null;
+    }
+
+    // --- Escritura por lotes ---
+
+    private void flush(ImportProgress progress, List<ImportRow> batch) {
+        if (batch.isEmpty()) return;
+        Long blockId = progress.getBlockId();
+        long[] questionIds = transactionTemplate.execute(status -> {
+            KeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_QUESTION, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ImportRow row = batch.get(i);
+                            ps.setString(1, row.statement);
+                            ps.setInt(2, row.correctOptionIndex);
+                            ps.setString(3, row.topic);
+                            ps.setLong(4, blockId);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }, keys);
+
+            List<Map<String, Object>> keyList = keys.getKeyList();
+            if (keyList.size() != batch.size()) {
+                throw new IllegalStateException("El driver devolvió " + keyList.size() + " IDs para " + batch.size() + " preguntas");
+            }
+            long[] ids = new long[batch.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ((Number) keyList.get(i).values().iterator().next()).longValue();
+            }
+
+            // 4 opciones por pregunta, en orden (la colección no tiene columna de orden)
+            jdbcTemplate.batchUpdate(INSERT_OPTION, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, ids[i / 4]);
+                    ps.setInt(2, i % 4);
+                    ps.setString(3, batch.get(i / 4).options.get(i % 4));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size() * 4;
+                }
+            });
+            return ids;
+        });
+        progress.addImported(batch.size());
+        for (int i = 0; i < questionIds.length; i++) {
+            questionSearchIndex.index(blockId, questionIds[i], batch.get(i).statement, batch.get(i).options);
+        }
+        batch.clear();
+        blockService.evictCatalogForBlock(blockId); // Los contadores del listado ven cada lote
+    }
+
+    // --- Utilidades ---
+
+    private static void skipBom(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') reader.reset();
+    }
+
+    // ';' si la primera línea tiene más ';' que ',' (CSV de Excel en español), si no ','
+    private static char detectDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(64 * 1024);
+        int commas = 0, semicolons = 0;
+        int c;
+        for (int read = 0; read < 64 * 1024 - 1 && (c = reader.read()) != -1 && c != '\n'; read++) {
+            if (c == ',') commas++;
+            else if (c == ';') semicolons++;
+        }
+        reader.reset();
+        return semicolons > commas ? ';' : ',';
+    }
+
+    private static Integer parseIndex(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int parseIndexOrInvalid(String value) {
+        Integer index = parseIndex(value);
+        return index != null ? index : -1;
+    }
+
+    // Se olvidan las importaciones terminadas hace más de una hora
+    private void purgeOldJobs() {
+        long limit = System.currentTimeMillis() - 3_600_000L;
+        jobs.values().removeIf(p -> p.isFinished() && p.getFinishedAt() < limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private interface RowSink {
+        void accept(ImportRow row);
+    }
+
+    private static class ImportRow {
+        final long record;
+        String statement;
+        List<String> options = new ArrayList<>(4);
+        int correctOptionIndex = -1;
+        String topic;
+        String error;
+
+        ImportRow(long record) {
+            this.record = record;
+        }
+    }
+
+    // Cuenta los bytes leídos para calcular el porcentaje
+    private static class CountingInputStream extends FilterInputStream {
+        private final ImportProgress progress;
+        private long count;
+
+        CountingInputStream(InputStream in, ImportProgress progress) {
+            super(in);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) progress.setBytesRead(++count);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) progress.setBytesRead(count += n);
+            return n;
+        }
+    }
+
+    /**
+     * Progreso de una importación. Lo escribe solo el hilo de importación; lo leen los controladores.
+     */
+    public static class ImportProgress {
+        public enum State { QUEUED, RUNNING, DONE, FAILED }
+
+        private final String id;
+        private final Long blockId;
+        private final String fileName;
+        private final long totalBytes;
+        private volatile long bytesRead;
+        private volatile State state = State.QUEUED;
+        private volatile int imported;
+        private volatile int rejected;
+        private volatile String failure;
+        private volatile long finishedAt;
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        ImportProgress(String id, Long blockId, String fileName, long totalBytes) {
+            this.id = id;
+            this.blockId = blockId;
+            this.fileName = fileName;
+            this.totalBytes = totalBytes;
+        }
+
+        public String getId() { return id; }
+        public Long getBlockId() { return blockId; }
+        public String getFileName() { return fileName; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getBytesRead() { return bytesRead; }
+        public State getState() { return state; }
+        public int getImported() { return imported; }
+        public int getRejected() { return rejected; }
+        public String getFailure() { return failure; }
+        public long getFinishedAt() { return finishedAt; }
+
+        public boolean isFinished() {
+            return state == State.DONE || state == State.FAILED;
+        }
+
+        public int getPercent() {
+            if (state == State.DONE) return 100;
+            return totalBytes > 0 ? (int) Math.min(99, bytesRead * 100 / totalBytes) : 0;
+        }
+
+        void setBytesRead(long bytesRead) { this.bytesRead = bytesRead; }
+
+        void setState(State state) {
+            this.state = state;
+            if (isFinished()) finishedAt = System.currentTimeMillis();
+        }
+
+        void addImported(int count) { imported += count; }
+
+        void reject(String error, int maxErrors) {
+            rejected++;
+            if (errors.size() < maxErrors) errors.add(error);
+        }
+
+        void fail(String failure) {
+            this.failure = failure;
+            setState(State.FAILED);
+        }
+
+        // Vista para el endpoint JSON de progreso
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("blockId", blockId);
+            map.put("fileName", fileName);
+            map.put("state", state.name());
+            map.put("percent", getPercent());
+            map.put("imported", imported);
+            map.put("rejected", rejected);
+            synchronized (errors) {
+                map.put("errors", new ArrayList<>(errors));
+            }
+            map.put("failure", failure);
+            return map;
+        }
+    }
+}
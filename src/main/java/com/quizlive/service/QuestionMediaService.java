@@ -0,0 +1,404 @@
+package com.quizlive.service;
+
+import com.quizlive.engine.MediaPreloader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Imágenes de las preguntas, en disco local (quizlive.media.dir).
+ *
+ * Cada fichero se guarda con el SHA-256 de su contenido como nombre (&lt;hash&gt;.png): la misma imagen
+ * subida dos veces es un solo fichero, las copias de bloques la comparten sin copiar nada, y el hash
+ * sirve de ETag fuerte y permite cachearla en el navegador como inmutable.
+ *
+ * Las más usadas se guardan en memoria (LRU acotada a cache-mb, solo ficheros de hasta max-cached-file-kb).
+ * El motor las precarga al abrir cada pregunta, así que cuando la piden todos los jugadores a la vez
+ * no se lee del disco. Las que no están en memoria se sirven con sendfile desde el fichero (ver MediaController).
+ *
+ * Los ficheros que ya no usa ninguna pregunta (pregunta o bloque borrados, imagen cambiada) se borran
+ * en una pasada periódica, con una hora de margen para las subidas cuya pregunta aún no se ha guardado.
+ */
+@Service
+public class QuestionMediaService implements MediaPreloader {
+
+    // Lo único que se acepta como nombre: nunca una ruta ni una extensión que no sea de imagen
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}\\.(png|jpg|gif|webp)");
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "png", "image/png", "jpg", "image/jpeg", "gif", "image/gif", "webp", "image/webp");
+
+    // Antigüedad mínima de un fichero sin pregunta para borrarlo
+    private static final long ORPHAN_GRACE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final String MEDIA_OF_ROOM_QUESTIONS =
+            "select distinct q.media from room_question rq join question q on q.id = rq.question_id " +
+            "where q.media is not null and rq.id in (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Datos permanentes: junto a la aplicación por defecto, nunca en el temporal.
+    // Compartido por todos los nodos si hay cluster
+    @Value("${quizlive.media.dir:${user.dir}/data/media}")
+    private String mediaDir;
+
+    @Value("${quizlive.media.max-upload-kb:5120}")
+    private long maxUploadKb;
+
+    // Memoria total para imágenes y tamaño máximo de las que se guardan en ella
+    @Value("${quizlive.media.cache-mb:64}")
+    private long cacheMb;
+
+    @Value("${quizlive.media.max-cached-file-kb:1024}")
+    private long maxCachedFileKb;
+
+    @Value("${quizlive.media.sweep-interval-minutes:60}")
+    private long sweepIntervalMinutes;
+
+    private Path root;
+
+    // Lecturas del disco para la caché: un solo hilo, nunca en el de la petición ni en el del motor
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "media-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "media-sweep");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Nombre -> contenido, en orden de uso (LRU). Protegida por su propio monitor
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    // Ficheros con una lectura ya encolada (no se encola dos veces el mismo)
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder preloads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Map<String, LongAdder> servedBytes = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> lastSweep = Map.of("status", "PENDING");
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(mediaDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweepOrphans();
+            } catch (RuntimeException | IOException e) {
+                lastSweep = Map.of("status", "ERROR", "error", String.valueOf(e.getMessage()));
+                System.out.println("[Media] [" + Thread.currentThread().getName() + "] ERROR: " + e);
+            }
+        }, sweepIntervalMinutes, sweepIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Guarda una imagen subida y devuelve su nombre. El formato se comprueba por el contenido
+     * (no por la extensión ni el Content-Type del navegador).
+     */
+    public String store(MultipartFile upload) throws IOException {
+        long maxBytes = maxUploadKb * 1024;
+        if (upload.getSize() > maxBytes) {
+            throw new IllegalArgumentException("la imagen ocupa más de " + maxUploadKb + " KB");
+        }
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            byte[] head = new byte[12];
+            int headLength = 0;
+            long total = 0;
+            try (InputStream in = upload.getInputStream();
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    total += n;
+                    if (total > maxBytes) throw new IllegalArgumentException("la imagen ocupa más de " + maxUploadKb + " KB");
+                    if (headLength < head.length) {
+                        int copy = Math.min(n, head.length - headLength);
+                        System.arraycopy(buffer, 0, head, headLength, copy);
+                        headLength += copy;
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            String extension = detectExtension(head, headLength);
+            if (extension == null) throw new IllegalArgumentException("formato no admitido (PNG, JPEG, GIF o WebP)");
+
+            String name = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+            Path target = root.resolve(name);
+            if (Files.exists(target)) {
+                // Ya estaba (misma imagen): se renueva la fecha para que la limpieza no se la lleve ahora
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // ¿Es un nombre válido con su fichero en disco? (el formulario lo devuelve en un campo oculto)
+    public boolean exists(String name) {
+        return name != null && NAME.matcher(name).matches() && Files.isRegularFile(root.resolve(name));
+    }
+
+    /**
+     * Fichero para servir, con su contenido si está en memoria. null si el nombre no es válido o no existe.
+     * Si no está en memoria se encola su lectura: las siguientes peticiones ya no irán al disco.
+     */
+    public MediaFile find(String name) {
+        if (name == null || !NAME.matcher(name).matches()) return null;
+        byte[] bytes;
+        synchronized (cache) {
+            bytes = cache.get(name);
+        }
+        Path path = root.resolve(name);
+        if (bytes != null) {
+            hits.increment();
+            return new MediaFile(name, path, bytes.length, bytes);
+        }
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        misses.increment();
+        loadAsync(name);
+        return new MediaFile(name, path, size, null);
+    }
+
+    // Bytes enviados por cada vía (memory, sendfile, stream), para /ops/media
+    public void countServed(String via, long bytes) {
+        servedBytes.computeIfAbsent(via, k -> new LongAdder()).add(bytes);
+    }
+
+    @Override
+    public void preload(long... roomQuestionIds) {
+        long[] ids = Arrays.stream(roomQuestionIds).filter(id -> id > 0).toArray();
+        if (ids.length == 0) return;
+        try {
+            loader.execute(() -> {
+                try {
+                    String in = String.join(",", Collections.nCopies(ids.length, "?"));
+                    List<String> names = jdbcTemplate.queryForList(String.format(MEDIA_OF_ROOM_QUESTIONS, in), String.class,
+                            Arrays.stream(ids).boxed().toArray());
+                    for (String name : names) {
+                        preloads.increment();
+                        load(name);
+                    }
+                } catch (RuntimeException e) {
+                    // Sin precarga la imagen se sirve igual, desde el disco
+                    System.out.println("[Media] [" + Thread.currentThread().getName() + "] ERROR en la precarga: " + e);
+                }
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            // Apagando
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("cachedFiles", cache.size());
+            stats.put("cachedBytes", cachedBytes);
+        }
+        stats.put("cacheLimitBytes", cacheMb * 1024 * 1024);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("preloads", preloads.sum());
+        stats.put("evictions", evictions.sum());
+        Map<String, Long> served = new LinkedHashMap<>();
+        servedBytes.forEach((via, bytes) -> served.put(via, bytes.sum()));
+        stats.put("servedBytes", served);
+        stats.put("lastSweep", lastSweep);
+        return stats;
+    }
+
+    private void loadAsync(String name) {
+        if (!loading.add(name)) return;
+        try {
+            loader.execute(() -> {
+                try {
+                    load(name);
+                } finally {
+                    loading.remove(name);
+                }
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            loading.remove(name);
+        }
+    }
+
+    // Lee el fichero a la caché. Los que no caben se leen igualmente una vez para que queden
+    // en la caché de páginas del sistema y sendfile no espere al disco
+    private void load(String name) {
+        synchronized (cache) {
+            if (cache.containsKey(name)) return;
+        }
+        Path path = root.resolve(name);
+        try {
+            long size = Files.size(path);
+            if (size > maxCachedFileKb * 1024) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+                    while (channel.read(buffer) > 0) buffer.clear();
+                }
+                return;
+            }
+            byte[] bytes = Files.readAllBytes(path);
+            long limit = cacheMb * 1024 * 1024;
+            synchronized (cache) {
+                if (cache.containsKey(name)) return;
+                var it = cache.entrySet().iterator();
+                while (cachedBytes + bytes.length > limit && it.hasNext()) {
+                    cachedBytes -= it.next().getValue().length;
+                    it.remove();
+                    evictions.increment();
+                }
+                if (cachedBytes + bytes.length > limit) return;
+                cache.put(name, bytes);
+                cachedBytes += bytes.length;
+            }
+        } catch (NoSuchFileException e) {
+            // Borrada entre tanto
+        } catch (IOException e) {
+            System.out.println("[Media] [" + Thread.currentThread().getName() + "] ERROR leyendo " + name + ": " + e);
+        }
+    }
+
+    // Borra los ficheros que no usa ninguna pregunta (y subidas a medias) con más de una hora
+    private void sweepOrphans() throws IOException {
+        long start = System.currentTimeMillis();
+        Set<String> referenced = new HashSet<>(jdbcTemplate.queryForList(
+                "select distinct media from question where media is not null", String.class));
+        long cutoff = start - ORPHAN_GRACE_MILLIS;
+        List<String> deleted = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean orphan = NAME.matcher(name).matches() ? !referenced.contains(name) : name.endsWith(".tmp");
+                if (!orphan || Files.getLastModifiedTime(file).toMillis() > cutoff) continue;
+                if (Files.deleteIfExists(file)) deleted.add(name);
+            }
+        }
+        synchronized (cache) {
+            for (String name : deleted) {
+                byte[] bytes = cache.remove(name);
+                if (bytes != null) cachedBytes -= bytes.length;
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "DONE");
+        result.put("finishedAtMillis", System.currentTimeMillis());
+        result.put("durationMs", System.currentTimeMillis() - start);
+        result.put("referenced", referenced.size());
+        result.put("deleted", deleted.size());
+        lastSweep = result;
+        if (!deleted.isEmpty()) {
+            System.out.println("[Media] [" + Thread.currentThread().getName() + "] " + deleted.size() + " imágenes sin pregunta borradas");
+        }
+    }
+
+    // Formato por los primeros bytes del fichero
+    private static String detectExtension(byte[] head, int length) {
+        if (length >= 8 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') return "png";
+        if (length >= 3 && (head[0] & 0xff) == 0xFF && (head[1] & 0xff) == 0xD8 && (head[2] & 0xff) == 0xFF) return "jpg";
+        if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') return "gif";
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') return "webp";
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Imagen lista para servir: ruta, tamaño, ETag (el hash) y el contenido si estaba en memoria.
+     */
+    public static class MediaFile {
+        private final String name;
+        private final Path path;
+        private final long size;
+        private final byte[] bytes;
+
+        MediaFile(String name, Path path, long size, byte[] bytes) {
+            this.name = name;
+            this.path = path;
+            this.size = size;
+            this.bytes = bytes;
+        }
+
+        public Path getPath() { return path; }
+        public long getSize() { return size; }
+        public byte[] getBytes() { return bytes; }
+
+        // ETag fuerte: el hash del contenido, que es el propio nombre
+        public String getEtag() {
+            return "\"" + name.substring(0, name.indexOf('.')) + "\"";
+        }
+
+        public String getContentType() {
+            return CONTENT_TYPES.get(name.substring(name.indexOf('.') + 1));
+        }
+    }
+}
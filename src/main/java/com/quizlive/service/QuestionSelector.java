@@ -0,0 +1,159 @@
+package com.quizlive.service;
+
+import com.quizlive.repository.QuestionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Selección de preguntas para una partida sin cargar el banco entero.
+ * Solo se leen (id, tema, opción correcta): nunca entidades Question ni sus opciones.
+ *  - Aleatorio: muestreo de reservorio sobre un cursor (memoria O(N elegidas), no O(banco)).
+ *  - Aleatorio por tema: un reservorio por tema con reparto proporcional.
+ *  - Manual: una consulta IN por lotes que además valida que las preguntas son del bloque.
+ */
+@Service
+public class QuestionSelector {
+
+    // Tamaño de lote para las consultas IN
+    private static final int IN_BATCH = 1000;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    /**
+     * Pregunta elegida: lo justo para crear la RoomQuestion y la clave de respuestas del motor.
+     */
+    public static class SelectedQuestion {
+        private final long id;
+        private final int correctOptionIndex;
+
+        public SelectedQuestion(long id, int correctOptionIndex) {
+            this.id = id;
+            this.correctOptionIndex = correctOptionIndex;
+        }
+
+        public long getId() { return id; }
+        public int getCorrectOptionIndex() { return correctOptionIndex; }
+    }
+
+    // Modo Aleatorio: N preguntas al azar (opcionalmente estratificadas por tema)
+    @Transactional(readOnly = true)
+    public List<SelectedQuestion> selectRandom(Long blockId, int n, boolean stratifiedByTopic) {
+        if (n <= 0) return new ArrayList<>();
+        List<SelectedQuestion> selected = stratifiedByTopic
+                ? reservoirByTopic(blockId, n)
+                : reservoir(blockId, n);
+        // El reservorio conserva cierto orden del cursor: barajamos solo las N elegidas
+        Collections.shuffle(selected);
+        return selected;
+    }
+
+    // Algoritmo R: cada pregunta del cursor sustituye a una elegida con probabilidad n/visto
+    private List<SelectedQuestion> reservoir(Long blockId, int n) {
+        List<SelectedQuestion> sample = new ArrayList<>(n);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long seen = 0;
+        try (Stream<Object[]> rows = questionRepository.streamKeysByBlockId(blockId)) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                seen++;
+                if (sample.size() < n) {
+                    sample.add(toSelected(row));
+                } else {
+                    long j = random.nextLong(seen);
+                    if (j < n) sample.set((int) j, toSelected(row));
+                }
+            }
+        }
+        return sample;
+    }
+
+    // Un reservorio por tema; el cupo de cada tema es proporcional a su tamaño (resto mayor)
+    private List<SelectedQuestion> reservoirByTopic(Long blockId, int n) {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        for (Object[] row : questionRepository.countByTopic(blockId)) {
+            long count = ((Number) row[1]).longValue();
+            sizes.merge(topicKey(row[0]), count, Long::sum);
+            total += count;
+        }
+        if (total == 0) return new ArrayList<>();
+        int target = (int) Math.min(n, total);
+
+        Map<String, Integer> quotas = new HashMap<>();
+        List<Map.Entry<String, Double>> remainders = new ArrayList<>();
+        int assigned = 0;
+        for (Map.Entry<String, Long> e : sizes.entrySet()) {
+            double exact = (double) target * e.getValue() / total;
+            int quota = (int) Math.floor(exact);
+            quotas.put(e.getKey(), quota);
+            assigned += quota;
+            remainders.add(Map.entry(e.getKey(), exact - quota));
+        }
+        remainders.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        for (int i = 0; assigned < target && i < remainders.size(); i++, assigned++) {
+            quotas.merge(remainders.get(i).getKey(), 1, Integer::sum);
+        }
+
+        Map<String, List<SelectedQuestion>> samples = new HashMap<>();
+        Map<String, Long> seen = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (Stream<Object[]> rows = questionRepository.streamKeysByBlockId(blockId)) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                String topic = topicKey(row[1]);
+                int quota = quotas.getOrDefault(topic, 0);
+                if (quota == 0) continue;
+                long count = seen.merge(topic, 1L, Long::sum);
+                List<SelectedQuestion> sample = samples.computeIfAbsent(topic, k -> new ArrayList<>(quota));
+                if (sample.size() < quota) {
+                    sample.add(toSelected(row));
+                } else {
+                    long j = random.nextLong(count);
+                    if (j < quota) sample.set((int) j, toSelected(row));
+                }
+            }
+        }
+        List<SelectedQuestion> selected = new ArrayList<>(target);
+        samples.values().forEach(selected::addAll);
+        return selected;
+    }
+
+    // Modo Manual: respeta el orden elegido, quita duplicados e ignora IDs de otros bloques
+    @Transactional(readOnly = true)
+    public List<SelectedQuestion> selectManual(Long blockId, List<Long> questionIds) {
+        if (questionIds == null || questionIds.isEmpty()) return new ArrayList<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(questionIds));
+
+        Map<Long, Integer> correctById = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += IN_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + IN_BATCH, ids.size()));
+            for (Object[] row : questionRepository.findKeysByBlockIdAndIdIn(blockId, batch)) {
+                correctById.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+            }
+        }
+
+        List<SelectedQuestion> selected = new ArrayList<>(correctById.size());
+        for (Long id : ids) {
+            Integer correct = correctById.get(id);
+            if (correct != null) selected.add(new SelectedQuestion(id, correct));
+        }
+        return selected;
+    }
+
+    // Fila (id, tema, correcta) del cursor
+    private SelectedQuestion toSelected(Object[] row) {
+        return new SelectedQuestion(((Number) row[0]).longValue(), ((Number) row[2]).intValue());
+    }
+
+    private String topicKey(Object topic) {
+        return topic != null ? topic.toString().trim().toLowerCase() : "";
+    }
+}
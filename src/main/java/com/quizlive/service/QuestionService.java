@@ -2,9 +2,14 @@ package com.quizlive.service;
 
 import com.quizlive.model.Block;
 import com.quizlive.model.Question;
+import com.quizlive.dto.QuestionHit;
+import com.quizlive.model.User;
 import com.quizlive.repository.QuestionRepository;
+import com.quizlive.search.QuestionSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.util.List;
 
 @Service
 public class QuestionService {
@@ -15,6 +20,16 @@ public class QuestionService {
     @Autowired
     private BlockService blockService;
 
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionMediaService questionMediaService;
+
+    // Resultados como mucho por búsqueda
+    @Value("${quizlive.search.max-results:50}")
+    private int maxResults;
+
     public void saveQuestion(Question question, Long blockId) {
         Block block = blockService.getBlockById(blockId);
         if (block != null) {
@@ -25,12 +40,25 @@ public class QuestionService {
                  // Aquí podríamos lanzar excepción, pero por simplicidad dejaremos que falle o lo manejaremos en el controlador
                  // Para el ejemplo, asumiremos que el formulario obliga a llenar 4
             }
+            // La imagen llega del formulario en un campo oculto: solo se acepta si es un fichero nuestro
+            if (!questionMediaService.exists(question.getMedia())) question.setMedia(null);
             questionRepository.save(question);
+            blockService.evictCatalog(block.getOwner().getId()); // Cambia el nº de preguntas del listado
+            questionSearchIndex.index(block.getId(), question.getId(), question.getStatement(), question.getOptions());
         }
     }
     
     public void deleteQuestion(Long questionId) {
-        questionRepository.deleteById(questionId);
+        questionRepository.findById(questionId).ifPresent(question -> {
+            questionRepository.delete(question);
+            blockService.evictCatalogForBlock(question.getBlock().getId());
+            questionSearchIndex.remove(questionId);
+        });
+    }
+
+    // Búsqueda en todas las preguntas del profesor (índice en memoria, sin consultas a la BD)
+    public List<QuestionHit> searchQuestions(User owner, String query) {
+        return questionSearchIndex.search(owner.getId(), query, maxResults);
     }
     
     public Question getQuestionById(Long id) {
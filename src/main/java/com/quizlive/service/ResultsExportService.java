@@ -0,0 +1,164 @@
+package com.quizlive.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportación de resultados de una partida (una fila por respuesta) en CSV o JSONL.
+ *
+ * Se lee con un cursor de solo avance (fetchSize = Integer.MIN_VALUE: el driver MySQL
+ * entrega las filas de una en una) y cada fila se escribe directamente a la respuesta,
+ * sin entidades ni listas intermedias. La memoria no depende del número de respuestas.
+ * Va en una transacción de solo lectura: con réplica configurada la consulta larga se hace allí.
+ */
+@Service
+public class ResultsExportService {
+
+    public enum Format { CSV, JSONL }
+
+    // Cada cuántas filas se vacía el buffer hacia el cliente
+    private static final int FLUSH_EVERY = 5000;
+
+    // Orden: pregunta a pregunta y, dentro de cada una, por orden de llegada.
+    // Sigue el índice (game_room_id, order_index) de room_question y el de answer(room_question_id), sin ordenar en memoria.
+    // %s: sufijo de las tablas ("" o "_archive" si la partida ya se archivó, ver ArchiveService)
+    private static final String EXPORT_SQL =
+            "select p.id, p.nickname, rq.order_index, q.id, q.statement, a.selected_option, a.correct, a.points, a.response_time_ms " +
+            "from room_question%1$s rq " +
+            "join answer%1$s a on a.room_question_id = rq.id " +
+            "join player%1$s p on p.id = a.player_id " +
+            "join question q on q.id = rq.question_id " +
+            "where rq.game_room_id = ? " +
+            "order by rq.order_index, a.id";
+
+    private static final String EXPORT_LIVE_SQL = String.format(EXPORT_SQL, "");
+    private static final String EXPORT_ARCHIVE_SQL = String.format(EXPORT_SQL, "_archive");
+
+    private static final String CSV_HEADER =
+            "player_id,nickname,question_number,question_id,statement,selected_option,correct,points,response_time_ms\n";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // JdbcTemplate propio en modo streaming (no se toca el compartido)
+    private JdbcTemplate streamingJdbcTemplate;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Escribe todas las respuestas de la sala en el stream. Devuelve el número de filas.
+    public long writeAnswers(Long gameRoomId, boolean archived, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long[] rows = {0};
+        long start = System.currentTimeMillis();
+
+        if (format == Format.CSV) writer.write(CSV_HEADER);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(archived ? EXPORT_ARCHIVE_SQL : EXPORT_LIVE_SQL, rs -> {
+                try {
+                    if (format == Format.CSV) {
+                        writer.write(Long.toString(rs.getLong(1)));
+                        writer.write(',');
+                        writer.write(csv(rs.getString(2)));
+                        writer.write(',');
+                        writer.write(Integer.toString(rs.getInt(3) + 1));
+                        writer.write(',');
+                        writer.write(Long.toString(rs.getLong(4)));
+                        writer.write(',');
+                        writer.write(csv(rs.getString(5)));
+                        writer.write(',');
+                        writer.write(Integer.toString(rs.getInt(6)));
+                        writer.write(',');
+                        writer.write(rs.getBoolean(7) ? "true" : "false");
+                        writer.write(',');
+                        writer.write(Integer.toString(rs.getInt(8)));
+                        writer.write(',');
+                        writer.write(Long.toString(rs.getLong(9)));
+                        writer.write('\n');
+                    } else {
+                        writer.write("{\"playerId\":");
+                        writer.write(Long.toString(rs.getLong(1)));
+                        writer.write(",\"nickname\":");
+                        writer.write(json(rs.getString(2)));
+                        writer.write(",\"questionNumber\":");
+                        writer.write(Integer.toString(rs.getInt(3) + 1));
+                        writer.write(",\"questionId\":");
+                        writer.write(Long.toString(rs.getLong(4)));
+                        writer.write(",\"statement\":");
+                        writer.write(json(rs.getString(5)));
+                        writer.write(",\"selectedOption\":");
+                        writer.write(Integer.toString(rs.getInt(6)));
+                        writer.write(",\"correct\":");
+                        writer.write(rs.getBoolean(7) ? "true" : "false");
+                        writer.write(",\"points\":");
+                        writer.write(Integer.toString(rs.getInt(8)));
+                        writer.write(",\"responseTimeMs\":");
+                        writer.write(Long.toString(rs.getLong(9)));
+                        writer.write("}\n");
+                    }
+                    if (++rows[0] % FLUSH_EVERY == 0) writer.flush();
+                } catch (IOException e) {
+                    // El cliente ha cortado la descarga: se aborta la consulta
+                    throw new UncheckedIOException(e);
+                }
+            }, gameRoomId));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+
+        System.out.println("Exportación de la sala " + gameRoomId + ": " + rows[0] + " respuestas en "
+                + (System.currentTimeMillis() - start) + " ms (" + format + ")");
+        return rows[0];
+    }
+
+    // Campo CSV: comillas si hace falta y protección contra fórmulas (=, +, -, @) al abrirlo en una hoja de cálculo
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) value = "'" + value;
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private static String json(String value) {
+        if (value == null) return "null";
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
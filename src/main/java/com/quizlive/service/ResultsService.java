@@ -0,0 +1,264 @@
+package com.quizlive.service;
+
+import com.quizlive.dto.GameResults;
+import com.quizlive.engine.QuizEngine;
+import com.quizlive.engine.RoomResults;
+import com.quizlive.model.GameRoom;
+import com.quizlive.model.PlayerResult;
+import com.quizlive.model.QuestionResult;
+import com.quizlive.model.RoomStatus;
+import com.quizlive.repository.AnswerRepository;
+import com.quizlive.repository.GameRoomRepository;
+import com.quizlive.repository.PlayerResultRepository;
+import com.quizlive.repository.QuestionResultRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultados finales materializados.
+ *
+ * Al terminar una partida se calculan una sola vez desde la memoria del motor (puntos, puestos,
+ * aciertos por pregunta y por jugador), se escriben de golpe en player_result / question_result
+ * y la sala sale del motor. Después, el ranking del host y la pantalla final del jugador leen
+ * esas filas (o la copia en caché) en vez de cargar todos los jugadores y ordenar en cada vista.
+ * Esas lecturas van en solo lectura (a la réplica si la hay); lo recién escrito se relee en la principal.
+ */
+@Service
+public class ResultsService {
+
+    private static final String INSERT_PLAYER_RESULT =
+            "insert into player_result (game_room_id, player_id, nickname, position, score, correct_answers, answered_questions) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_QUESTION_RESULT =
+            "insert into question_result (game_room_id, question_number, room_question_id, answers, correct_answers) values (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Autowired
+    private GameRoomRepository gameRoomRepository;
+
+    @Autowired
+    private PlayerResultRepository playerResultRepository;
+
+    @Autowired
+    private QuestionResultRepository questionResultRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    // Cuántas partidas terminadas se guardan ya montadas en memoria (LRU)
+    @Value("${quizlive.results.cache-size:256}")
+    private int cacheSize;
+
+    // PIN -> resultados. Un PIN solo se reutiliza si se borra su sala (y entonces se quita de aquí)
+    private final LinkedHashMap<String, GameResults> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GameResults> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Resultados de la partida: caché, si no el motor (la materializa ahora), si no la BD
+    public GameResults getResults(String pin) {
+        GameResults cached = cached(pin);
+        if (cached != null) return cached;
+        if (quizEngine.isActive(pin)) return finalizeRoom(pin);
+
+        GameRoom room = gameRoomRepository.findByPin(pin).orElse(null);
+        if (room == null) return null;
+        GameResults results = readOnlyTransaction.execute(status -> load(room.getId()));
+        if (results == null) {
+            // La réplica puede ir por detrás de una partida recién materializada en otro nodo
+            results = load(room.getId());
+        }
+        if (results == null && room.getStatus() == RoomStatus.FINISHED && !room.isArchived()) {
+            // Partida terminada antes de que existieran estas tablas: se materializa una vez desde answer
+            results = materialize(pin, rebuildFromDb(room));
+        }
+        if (results != null) remember(pin, results);
+        return results;
+    }
+
+    // Materializa los resultados de una sala FINISHED del motor y la saca de memoria.
+    // Idempotente: la llaman el fin de partida (hilo de persistencia) y, si llega antes, la vista del ranking.
+    // null si la sala aún no ha terminado.
+    public synchronized GameResults finalizeRoom(String pin) {
+        GameResults cached = cached(pin);
+        if (cached != null) return cached;
+
+        // Lo que quede del modo a su ritmo va antes: la sala deja de estar en memoria
+        quizEngine.flushPendingProgress();
+        RoomResults raw = quizEngine.getFinalResults(pin);
+        if (raw == null) {
+            if (quizEngine.isActive(pin)) return null; // Sigue en juego
+            // Otro camino ya la materializó y la sacó del motor
+            GameRoom room = gameRoomRepository.findByPin(pin).orElse(null);
+            return room != null ? load(room.getId()) : null;
+        }
+
+        GameResults results = materialize(pin, raw);
+        remember(pin, results);
+        quizEngine.evictRoom(pin);
+        return results;
+    }
+
+    // Ordena, asigna puestos y escribe las dos tablas en una transacción (con el estado final de la sala)
+    private GameResults materialize(String pin, RoomResults raw) {
+        GameResults results = rank(raw);
+        List<Object[]> playerRows = new ArrayList<>(results.getRanking().size());
+        for (GameResults.Entry e : results.getRanking()) {
+            playerRows.add(new Object[] { raw.getGameRoomId(), e.getPlayerId(), e.getNickname(), e.getPosition(),
+                    e.getScore(), e.getCorrectAnswers(), e.getAnsweredQuestions() });
+        }
+        List<Object[]> questionRows = new ArrayList<>(raw.getTotalQuestions());
+        for (int i = 0; i < raw.getTotalQuestions(); i++) {
+            questionRows.add(new Object[] { raw.getGameRoomId(), i + 1, raw.getRoomQuestionId(i),
+                    raw.getQuestionAnswers(i), raw.getQuestionCorrect(i) });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Por si un intento anterior llegó a escribir (reintento tras un fallo o tras un handoff)
+            jdbcTemplate.update("delete from player_result where game_room_id = ?", raw.getGameRoomId());
+            jdbcTemplate.update("delete from question_result where game_room_id = ?", raw.getGameRoomId());
+            jdbcTemplate.batchUpdate(INSERT_PLAYER_RESULT, playerRows);
+            jdbcTemplate.batchUpdate(INSERT_QUESTION_RESULT, questionRows);
+            // finished_at solo la primera vez: de ella cuenta el plazo para archivar la partida
+            jdbcTemplate.update("update game_room set status = ?, finished_at = coalesce(finished_at, now()) where id = ?",
+                    RoomStatus.FINISHED.name(), raw.getGameRoomId());
+        });
+        System.out.println("[Room " + pin + "] [" + Thread.currentThread().getName() + "] Resultados materializados: "
+                + playerRows.size() + " jugadores, " + questionRows.size() + " preguntas");
+        return results;
+    }
+
+    /**
+     * Ranking provisional de una partida que aún no ha terminado (no se guarda ni se cachea).
+     * Desde la memoria del motor; si la sala no está en este nodo, con los puntos de la tabla player.
+     */
+    public GameResults getLiveResults(String pin) {
+        RoomResults raw = quizEngine.getLiveResults(pin);
+        if (raw != null) return rank(raw);
+        GameRoom room = gameRoomRepository.findByPin(pin).orElse(null);
+        if (room == null) return null;
+        List<RoomResults.PlayerLine> players = jdbcTemplate.query(
+                "select id, nickname, score from player where game_room_id = ?",
+                (rs, n) -> new RoomResults.PlayerLine(rs.getLong(1), rs.getString(2), rs.getInt(3), 0, 0), room.getId());
+        return rank(new RoomResults(room.getId(), new long[0], new int[0], new int[0], players));
+    }
+
+    // Ordena por puntos y asigna puestos de competición: los empatados comparten puesto y el siguiente salta (1, 1, 3...)
+    private static GameResults rank(RoomResults raw) {
+        List<RoomResults.PlayerLine> lines = new ArrayList<>(raw.getPlayers());
+        lines.sort(Comparator.comparingInt(RoomResults.PlayerLine::getScore).reversed()
+                .thenComparing(RoomResults.PlayerLine::getPlayerId));
+        List<GameResults.Entry> ranking = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            RoomResults.PlayerLine line = lines.get(i);
+            int position = (i > 0 && line.getScore() == lines.get(i - 1).getScore()) ? ranking.get(i - 1).getPosition() : i + 1;
+            ranking.add(new GameResults.Entry(line.getPlayerId(), line.getNickname(), position, line.getScore(),
+                    line.getCorrect(), line.getAnswered()));
+        }
+        List<GameResults.QuestionStat> questions = new ArrayList<>(raw.getTotalQuestions());
+        for (int i = 0; i < raw.getTotalQuestions(); i++) {
+            questions.add(new GameResults.QuestionStat(i + 1, raw.getQuestionAnswers(i), raw.getQuestionCorrect(i)));
+        }
+        return new GameResults(raw.getGameRoomId(), ranking, questions);
+    }
+
+    // Dos lecturas por índice (game_room_id); null si la partida no tiene resultados guardados
+    private GameResults load(Long gameRoomId) {
+        List<PlayerResult> players = playerResultRepository.findByGameRoomIdOrderByPositionAscIdAsc(gameRoomId);
+        List<QuestionResult> questions = questionResultRepository.findByGameRoomIdOrderByQuestionNumberAsc(gameRoomId);
+        if (players.isEmpty() && questions.isEmpty()) return null;
+        List<GameResults.Entry> ranking = new ArrayList<>(players.size());
+        for (PlayerResult p : players) {
+            ranking.add(new GameResults.Entry(p.getPlayerId(), p.getNickname(), p.getPosition(), p.getScore(),
+                    p.getCorrectAnswers(), p.getAnsweredQuestions()));
+        }
+        List<GameResults.QuestionStat> stats = new ArrayList<>(questions.size());
+        for (QuestionResult q : questions) {
+            stats.add(new GameResults.QuestionStat(q.getQuestionNumber(), q.getAnswers(), q.getCorrectAnswers()));
+        }
+        return new GameResults(gameRoomId, ranking, stats);
+    }
+
+    // Mismos datos que tendría el motor, agregados desde player / room_question / answer
+    private RoomResults rebuildFromDb(GameRoom room) {
+        List<Long> roomQuestionIds = jdbcTemplate.queryForList(
+                "select id from room_question where game_room_id = ? order by order_index", Long.class, room.getId());
+        long[] ids = new long[roomQuestionIds.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = roomQuestionIds.get(i);
+
+        int[] answers = new int[ids.length];
+        int[] correct = new int[ids.length];
+        for (Object[] row : answerRepository.countByQuestion(room.getId())) {
+            int index = ((Number) row[0]).intValue();
+            if (index < 0 || index >= ids.length) continue;
+            answers[index] = ((Number) row[1]).intValue();
+            correct[index] = ((Number) row[2]).intValue();
+        }
+        Map<Long, int[]> byPlayer = new HashMap<>();
+        for (Object[] row : answerRepository.countByPlayer(room.getId())) {
+            byPlayer.put(((Number) row[0]).longValue(), new int[] { ((Number) row[1]).intValue(), ((Number) row[2]).intValue() });
+        }
+
+        List<RoomResults.PlayerLine> players = jdbcTemplate.query(
+                "select id, nickname, score from player where game_room_id = ?",
+                (rs, n) -> {
+                    long playerId = rs.getLong(1);
+                    int[] counts = byPlayer.getOrDefault(playerId, new int[2]);
+                    return new RoomResults.PlayerLine(playerId, rs.getString(2), rs.getInt(3), counts[0], counts[1]);
+                }, room.getId());
+        return new RoomResults(room.getId(), ids, answers, correct, players);
+    }
+
+    // Cerrojo propio: leer la caché no espera a que otra sala termine de materializarse
+    private GameResults cached(String pin) {
+        synchronized (cache) {
+            return cache.get(pin);
+        }
+    }
+
+    private void remember(String pin, GameResults results) {
+        synchronized (cache) {
+            cache.put(pin, results);
+        }
+    }
+
+    // La sala se ha borrado (su PIN puede volver a salir en una sala nueva)
+    public void forget(String pin) {
+        synchronized (cache) {
+            cache.remove(pin);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.quizlive.service;
+
+import com.quizlive.cluster.ClusterRouter;
+import com.quizlive.engine.QuizEngine;
+import com.quizlive.engine.RoomStateMachine;
+import com.quizlive.engine.ScoringPolicy;
+import com.quizlive.model.ScoringCurve;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calentamiento al arrancar, antes de declararse listo (readiness).
+ *
+ * Juega partidas sintéticas en salas de usar y tirar del motor (PIN no numérico, sin fila en la BD):
+ * alta de jugadores, tokens, respuestas por el pool real, avance de preguntas, posiciones y resultados
+ * finales. Algunos jugadores además piden sus pantallas por HTTP (espera, pregunta, respondida, final)
+ * para compilar las plantillas Thymeleaf y abrir conexiones del pool (solo lecturas). Nada escribe en la BD:
+ * las respuestas van sin persistidor.
+ *
+ * Se repiten rondas hasta que el JIT deja de compilar (el tiempo total de compilación apenas crece)
+ * o se acaba el tiempo. Spring Boot publica ACCEPTING_TRAFFIC al terminar los ApplicationRunner,
+ * así que /ops/ready no responde 200 hasta que el calentamiento ha terminado.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final int ROUNDS_MIN = 3;
+    // Rondas seguidas con menos compilación que esto para dar el JIT por estable
+    private static final int STABLE_ROUNDS = 2;
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private PlayerTokenService playerTokenService;
+
+    @Autowired
+    private ClusterRouter clusterRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${quizlive.warmup.enabled:true}")
+    private boolean enabled;
+
+    // Tope de duración total del calentamiento
+    @Value("${quizlive.warmup.max-seconds:30}")
+    private int maxSeconds;
+
+    @Value("${quizlive.warmup.players:50}")
+    private int players;
+
+    // Jugadores de cada sala que además piden sus pantallas por HTTP
+    @Value("${quizlive.warmup.view-players:10}")
+    private int viewPlayers;
+
+    // Compilación JIT (ms) por ronda por debajo de la cual se considera estable
+    @Value("${quizlive.warmup.stable-compile-ms:20}")
+    private long stableCompileMillis;
+
+    // Como mucho las fichas del token bucket del jugador: no se rechaza ninguna respuesta
+    private static final int QUESTIONS = 5;
+
+    private volatile Map<String, Object> report = Map.of("status", "PENDING");
+
+    private HttpClient http;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            report = Map.of("status", "DISABLED");
+            return;
+        }
+        report = Map.of("status", "RUNNING");
+        int port = environment.getProperty("local.server.port", Integer.class,
+                environment.getProperty("server.port", Integer.class, 8080));
+        http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2))
+                .followRedirects(HttpClient.Redirect.NEVER).build();
+        String baseUrl = "http://localhost:" + port;
+
+        // Una pregunta real para la pantalla de juego (lectura); sin preguntas en la BD se ve la final
+        List<Long> anyQuestion = jdbcTemplate.queryForList("select id from room_question order by id desc limit 1", Long.class);
+        long roomQuestionId = anyQuestion.isEmpty() ? -1 : anyQuestion.get(0);
+
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean jitTimed = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(maxSeconds);
+        long jitStart = jitTimed ? jit.getTotalCompilationTime() : 0;
+
+        List<RoundStats> rounds = new ArrayList<>();
+        int stable = 0;
+        try {
+            while (System.nanoTime() < deadline) {
+                long jitBefore = jitTimed ? jit.getTotalCompilationTime() : 0;
+                RoundStats round = playRoom(rounds.size(), baseUrl, roomQuestionId);
+                round.compileMillis = jitTimed ? jit.getTotalCompilationTime() - jitBefore : -1;
+                rounds.add(round);
+                stable = jitTimed && round.compileMillis < stableCompileMillis ? stable + 1 : 0;
+                if (rounds.size() >= ROUNDS_MIN && stable >= STABLE_ROUNDS) break;
+            }
+        } catch (RuntimeException e) {
+            // El calentamiento nunca impide arrancar: se sigue en frío
+            System.out.println("[WarmUp] [" + Thread.currentThread().getName() + "] ERROR, se arranca sin terminar: " + e);
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "DONE");
+        result.put("durationMs", durationMillis);
+        result.put("rounds", rounds.size());
+        result.put("jitStable", stable >= STABLE_ROUNDS);
+        result.put("jitCompileMs", jitTimed ? jit.getTotalCompilationTime() - jitStart : -1);
+        if (!rounds.isEmpty()) {
+            result.put("firstRound", rounds.get(0).toMap());
+            result.put("lastRound", rounds.get(rounds.size() - 1).toMap());
+        }
+        report = result;
+        System.out.println("[WarmUp] [" + Thread.currentThread().getName() + "] Terminado en " + durationMillis + "ms ("
+                + rounds.size() + " rondas)" + (rounds.isEmpty() ? "" : ": respuesta "
+                + rounds.get(0).answerMicros() + " -> " + rounds.get(rounds.size() - 1).answerMicros() + " µs, vista "
+                + rounds.get(0).viewMillis() + " -> " + rounds.get(rounds.size() - 1).viewMillis() + " ms"));
+    }
+
+    // Resultado del calentamiento para /ops/warmup
+    public Map<String, Object> getReport() {
+        return report;
+    }
+
+    // Una partida completa en una sala sintética, que se saca del motor al final pase lo que pase
+    private RoundStats playRoom(int round, String baseUrl, long roomQuestionId) {
+        String pin = warmUpPin(round);
+        long[] roomQuestionIds = new long[QUESTIONS];
+        int[] correctOptions = new int[QUESTIONS];
+        for (int i = 0; i < QUESTIONS; i++) {
+            roomQuestionIds[i] = roomQuestionId;
+            correctOptions[i] = i % 4;
+        }
+        RoundStats stats = new RoundStats();
+        if (!quizEngine.initRoom(pin, -1L, 60, new ScoringPolicy(ScoringCurve.CLASSIC, 1000, 100),
+                roomQuestionIds, correctOptions, false)) {
+            throw new IllegalStateException("el motor no admite salas");
+        }
+        try {
+            String[] tokens = new String[players];
+            for (int p = 0; p < players; p++) {
+                long playerId = -(p + 1L); // IDs negativos: nunca chocan con un jugador real
+                quizEngine.reserveNickname(pin, "warmup" + p);
+                int slot = quizEngine.registerPlayer(pin, playerId, "warmup" + p);
+                tokens[p] = playerTokenService.issue(pin, slot, playerId);
+            }
+            views(stats, baseUrl, tokens, "/play/wait/");
+            quizEngine.startGame(pin);
+
+            for (int q = 0; q < QUESTIONS; q++) {
+                views(stats, baseUrl, tokens, "/play/game/");
+                long answerStart = System.nanoTime();
+                for (int p = 0; p < players; p++) {
+                    long playerId = -(p + 1L);
+                    quizEngine.processAnswerAsync(pin, playerId, (p + q) % 4, null, null);
+                }
+                // Esperar a que el pool las haya puntuado todas (el motor las marca al procesarlas)
+                for (int p = 0; p < players; p++) {
+                    while (!quizEngine.hasAnswered(pin, -(p + 1L))) {
+                        if (System.nanoTime() - answerStart > TimeUnit.SECONDS.toNanos(5)) {
+                            throw new IllegalStateException("respuestas sin procesar en 5s");
+                        }
+                        Thread.onSpinWait();
+                    }
+                }
+                stats.answerNanos += System.nanoTime() - answerStart;
+                stats.answers += players;
+
+                for (int p = 0; p < viewPlayers && p < players; p++) {
+                    PlayerTokenService.PlayerToken token = gameService.verifyPlayerToken(tokens[p]);
+                    gameService.getPlayerView(token);
+                    gameService.wasAnswerCorrect(pin, token.getPlayerId());
+                }
+                views(stats, baseUrl, tokens, "/play/game/"); // Ya respondida: pantalla de espera
+                quizEngine.nextQuestion(pin, q);
+            }
+            long state = quizEngine.getState(pin);
+            if (state == RoomStateMachine.REJECTED || RoomStateMachine.statusOf(state) != com.quizlive.model.RoomStatus.FINISHED) {
+                throw new IllegalStateException("la sala no ha terminado");
+            }
+            views(stats, baseUrl, tokens, "/play/game/"); // Pantalla final
+            quizEngine.getFinalResults(pin);
+        } finally {
+            quizEngine.evictRoom(pin);
+        }
+        return stats;
+    }
+
+    // GET de la pantalla de los primeros jugadores (solo cuenta el tiempo de las que responden 200)
+    private void views(RoundStats stats, String baseUrl, String[] tokens, String path) {
+        for (int p = 0; p < viewPlayers && p < tokens.length; p++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path + tokens[p]))
+                    .timeout(Duration.ofSeconds(10)).GET().build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    stats.viewNanos += System.nanoTime() - start;
+                    stats.views++;
+                }
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("calentamiento interrumpido", e);
+            }
+        }
+    }
+
+    // PIN no numérico (nunca coincide con una sala real) y de este nodo (el enrutado no lo redirige)
+    private String warmUpPin(int round) {
+        for (int i = 0; ; i++) {
+            String pin = "warmup" + round + "x" + i;
+            if (clusterRouter.isLocal(pin) && !quizEngine.isActive(pin)) return pin;
+        }
+    }
+
+    /**
+     * Tiempos de una ronda: respuestas (del envío a puntuadas, por respuesta) y pantallas HTTP.
+     */
+    private static class RoundStats {
+        long answerNanos;
+        int answers;
+        long viewNanos;
+        int views;
+        long compileMillis;
+
+        long answerMicros() {
+            return answers == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(answerNanos / answers);
+        }
+
+        double viewMillis() {
+            return views == 0 ? 0 : Math.round(viewNanos / (double) views / 10_000) / 100.0;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("answers", answers);
+            map.put("answerMicros", answerMicros());
+            map.put("views", views);
+            map.put("viewMs", viewMillis());
+            map.put("compileMs", compileMillis);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+-- Tablas *_archive (ArchiveService): mismas columnas que answer, player y room_question, sin FK
+-- (el jugador o la pregunta ya no estarán en la tabla viva) y con los índices de las consultas que
+-- las leen: exportación de una sala archivada y borrado de bloques.
+-- Si una de esas entidades cambia de columnas, hay que cambiar aquí su *_archive y la lista de
+-- columnas de ArchiveService.TABLES.
+-- Lo ejecuta Spring al arrancar (spring.sql.init, después de que Hibernate cree las tablas vivas).
+-- Con el perfil prod no: se aplica a mano después de quizlive.sql o upgrade.sql.
+
+create table if not exists answer_archive (
+    id bigint not null,
+    player_id bigint,
+    room_question_id bigint,
+    selected_option integer not null,
+    correct bit not null,
+    points integer not null,
+    response_time_ms bigint not null,
+    primary key (id),
+    key idx_answer_archive_room_question (room_question_id),
+    key idx_answer_archive_player (player_id)
+);
+
+create table if not exists player_archive (
+    id bigint not null,
+    game_room_id bigint,
+    nickname varchar(255),
+    score integer not null,
+    current_question_index integer not null,
+    primary key (id),
+    key idx_player_archive_room (game_room_id)
+);
+
+create table if not exists room_question_archive (
+    id bigint not null,
+    game_room_id bigint,
+    question_id bigint,
+    order_index integer not null,
+    primary key (id),
+    key idx_room_question_archive_room_order (game_room_id, order_index)
+);
@@ -0,0 +1,130 @@
+-- Esquema de Quiz Live para MySQL 8 (instalación nueva).
+--
+-- Es el que genera Hibernate con ddl-auto=update a partir de las entidades, escrito a mano para poder
+-- arrancar en producción con ddl-auto=validate (application-prod.properties), que no crea ni altera nada.
+-- Las tablas *_archive, que no son entidades, están en archive.sql. Orden de aplicación:
+--
+--   mysql quiz_live_db < quizlive.sql
+--   mysql quiz_live_db < archive.sql
+--
+-- Para una base creada antes con el esquema antiguo: upgrade.sql (y después archive.sql).
+-- Si cambian las entidades, hay que cambiar también este fichero y upgrade.sql.
+
+create table users (
+    id bigint not null auto_increment,
+    username varchar(255),
+    password varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table block (
+    id bigint not null auto_increment,
+    name varchar(255),
+    description varchar(500),
+    user_id bigint,
+    -- Borrado pedido: BlockDeletionService lo borra en segundo plano
+    deleted_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+create table question (
+    id bigint not null auto_increment,
+    statement varchar(255) not null,
+    correct_option_index integer not null,
+    topic varchar(100),
+    media varchar(80),
+    block_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+-- option_index: posición de la opción (la que señala question.correct_option_index)
+create table question_options (
+    question_id bigint not null,
+    option_index integer not null,
+    option_text varchar(255),
+    primary key (question_id, option_index)
+) engine=InnoDB;
+
+create table game_room (
+    id bigint not null auto_increment,
+    pin varchar(255),
+    status enum ('LOBBY','PLAYING','FINISHED'),
+    current_question_index integer not null,
+    block_id bigint,
+    host_id bigint,
+    time_limit integer not null,
+    scoring_curve enum ('FLAT','CLASSIC','LINEAR','QUADRATIC'),
+    max_points integer not null,
+    streak_bonus integer not null,
+    self_paced bit not null,
+    created_at datetime(6),
+    finished_at datetime(6),
+    archived bit not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table room_question (
+    id bigint not null auto_increment,
+    game_room_id bigint,
+    question_id bigint,
+    order_index integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table player (
+    id bigint not null auto_increment,
+    nickname varchar(255),
+    score integer not null,
+    current_question_index integer not null,
+    game_room_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table answer (
+    id bigint not null auto_increment,
+    player_id bigint,
+    room_question_id bigint,
+    selected_option integer not null,
+    correct bit not null,
+    points integer not null,
+    response_time_ms bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+-- Resultados finales (ResultsService): se escriben una vez al terminar la partida
+create table player_result (
+    id bigint not null auto_increment,
+    game_room_id bigint,
+    player_id bigint,
+    nickname varchar(255),
+    position integer not null,
+    score integer not null,
+    correct_answers integer not null,
+    answered_questions integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table question_result (
+    id bigint not null auto_increment,
+    game_room_id bigint,
+    question_number integer not null,
+    room_question_id bigint,
+    answers integer not null,
+    correct_answers integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_room_question_room_order on room_question (game_room_id, order_index);
+create index idx_player_result_room_position on player_result (game_room_id, position);
+create index idx_question_result_room on question_result (game_room_id, question_number);
+
+alter table block add constraint fk_block_user foreign key (user_id) references users (id);
+alter table question add constraint fk_question_block foreign key (block_id) references block (id);
+alter table question_options add constraint fk_question_options_question foreign key (question_id) references question (id);
+alter table game_room add constraint fk_game_room_block foreign key (block_id) references block (id);
+alter table game_room add constraint fk_game_room_host foreign key (host_id) references users (id);
+alter table room_question add constraint fk_room_question_room foreign key (game_room_id) references game_room (id);
+alter table room_question add constraint fk_room_question_question foreign key (question_id) references question (id);
+alter table player add constraint fk_player_room foreign key (game_room_id) references game_room (id);
+alter table answer add constraint fk_answer_player foreign key (player_id) references player (id);
+alter table answer add constraint fk_answer_room_question foreign key (room_question_id) references room_question (id);
@@ -0,0 +1,77 @@
+-- Paso del esquema antiguo (el que creaba ddl-auto=update con las primeras entidades) al actual, en MySQL 8.
+-- Se aplica una vez, con la aplicación parada, antes de arrancar con el perfil prod (ddl-auto=validate):
+--
+--   mysql quiz_live_db < upgrade.sql
+--   mysql quiz_live_db < archive.sql
+--
+-- Si la base ya ha arrancado alguna vez con ddl-auto=update y el código nuevo, parte de esto ya existirá:
+-- en ese caso se aplican solo las sentencias que falten.
+
+-- Salas: estado como enum, puntuación por rapidez, modo a su ritmo, fechas y archivado
+alter table game_room
+    modify status enum ('LOBBY','PLAYING','FINISHED'),
+    drop column current_question_start_time,
+    add column scoring_curve enum ('FLAT','CLASSIC','LINEAR','QUADRATIC') default 'CLASSIC',
+    add column max_points integer not null default 1000,
+    add column streak_bonus integer not null default 100,
+    add column self_paced bit not null default 0,
+    add column created_at datetime(6),
+    add column finished_at datetime(6),
+    add column archived bit not null default 0;
+
+-- Bloques: borrado en segundo plano
+alter table block add column deleted_at datetime(6);
+
+-- Preguntas: tema e imagen
+alter table question
+    add column topic varchar(100),
+    add column media varchar(80);
+
+-- Respuestas: puntos y tiempo de respuesta
+alter table answer
+    add column points integer not null default 0,
+    add column response_time_ms bigint not null default 0;
+
+-- Opciones con su posición. Se rehace la tabla: sin columna de orden no tenía clave, y las opciones
+-- repetidas dentro de una pregunta no se podrían distinguir con un UPDATE. La posición es el orden en
+-- que se leían hasta ahora: el de inserción (la clave interna de InnoDB en una tabla sin PK).
+create table question_options_new (
+    question_id bigint not null,
+    option_index integer not null,
+    option_text varchar(255),
+    primary key (question_id, option_index)
+) engine=InnoDB;
+insert into question_options_new (question_id, option_index, option_text)
+    select question_id, row_number() over (partition by question_id) - 1, option_text from question_options;
+rename table question_options to question_options_old, question_options_new to question_options;
+drop table question_options_old;
+alter table question_options add constraint fk_question_options_question foreign key (question_id) references question (id);
+
+-- Índice de las preguntas de una sala en orden
+create index idx_room_question_room_order on room_question (game_room_id, order_index);
+
+-- Resultados finales
+create table player_result (
+    id bigint not null auto_increment,
+    game_room_id bigint,
+    player_id bigint,
+    nickname varchar(255),
+    position integer not null,
+    score integer not null,
+    correct_answers integer not null,
+    answered_questions integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table question_result (
+    id bigint not null auto_increment,
+    game_room_id bigint,
+    question_number integer not null,
+    room_question_id bigint,
+    answers integer not null,
+    correct_answers integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_player_result_room_position on player_result (game_room_id, position);
+create index idx_question_result_room on question_result (game_room_id, question_number);
@@ -0,0 +1,172 @@
+package com.quizlive.cluster;
+
+import com.quizlive.QuizLiveApplication;
+import com.quizlive.dto.GameConfigForm;
+import com.quizlive.engine.QuizEngine;
+import com.quizlive.model.Block;
+import com.quizlive.model.GameRoom;
+import com.quizlive.model.Question;
+import com.quizlive.model.User;
+import com.quizlive.repository.BlockRepository;
+import com.quizlive.repository.QuestionRepository;
+import com.quizlive.repository.UserRepository;
+import com.quizlive.service.GameService;
+import com.quizlive.service.PlayerTokenService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cluster de dos nodos en la misma JVM: dos contextos Spring con el transporte in-process
+ * (buzones estáticos) y la misma H2, como dos instancias detrás del balanceador con la BD compartida.
+ *
+ * - Cada nodo solo crea salas con PINs suyos, y el otro redirige (307) al dueño las peticiones con ese PIN.
+ * - Al apagar un nodo sus salas viajan por el transporte a la siguiente encarnación del mismo nodo,
+ *   que sigue la partida donde estaba (estado, puntos, quién ha respondido) y acepta los mismos tokens.
+ *
+ * mvn -Dskip.npm -Dskip.installnodenpm test
+ */
+class ClusterHandoffTest {
+
+    private static final String NODE_A = "http://node-a";
+    private static final String NODE_B = "http://node-b";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startCluster() {
+        nodeA = startNode(NODE_A);
+        nodeB = startNode(NODE_B);
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        if (nodeA != null) nodeA.close();
+        if (nodeB != null) nodeB.close();
+    }
+
+    @Test
+    void foreignPinsAreRedirectedToTheirOwner() throws Exception {
+        GameRoom room = createGame(nodeA, "profe-cluster");
+        String pin = room.getPin();
+        assertTrue(nodeA.getBean(ClusterRouter.class).isLocal(pin), "PIN creado en A que no es de A: " + pin);
+        assertEquals(NODE_A, nodeB.getBean(ClusterRouter.class).ownerOf(pin), "los nodos no coinciden en el dueño");
+
+        // En B: 307 al dueño, con la misma ruta (el POST llega intacto)
+        MvcResult foreign = mockMvc(nodeB).perform(post("/play/join").param("pin", pin).param("nickname", "ana"))
+                .andExpect(status().isTemporaryRedirect())
+                .andReturn();
+        assertEquals(NODE_A + "/play/join", foreign.getResponse().getHeader("Location"));
+        assertFalse(nodeB.getBean(QuizEngine.class).isActive(pin), "B ha abierto una sala de A");
+
+        // En A se atiende: entra y sale con su token, que B también redirige a A
+        String token = join(nodeA, pin, "ana");
+        MvcResult byToken = mockMvc(nodeB).perform(get("/play/game/{token}", token))
+                .andExpect(status().isTemporaryRedirect())
+                .andReturn();
+        assertEquals(NODE_A + "/play/game/" + token, byToken.getResponse().getHeader("Location"));
+    }
+
+    @Test
+    void roomsSurviveARestartThroughTheHandoff() throws Exception {
+        GameRoom room = createGame(nodeA, "profe-handoff");
+        String pin = room.getPin();
+        String token = join(nodeA, pin, "luis");
+        long playerId = nodeA.getBean(PlayerTokenService.class).verify(token).getPlayerId();
+
+        QuizEngine engine = nodeA.getBean(QuizEngine.class);
+        nodeA.getBean(GameService.class).startGame(pin);
+        mockMvc(nodeA).perform(post("/play/answer").param("token", token).param("optionIndex", "0"))
+                .andExpect(status().isOk());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!engine.hasAnswered(pin, playerId)) {
+            assertTrue(System.currentTimeMillis() < deadline, "respuesta sin procesar en 10s");
+            Thread.sleep(10);
+        }
+        long state = engine.getState(pin);
+        int score = engine.getScore(pin, playerId);
+        assertTrue(score > 0, "acierto sin puntos");
+
+        // Apagado ordenado de A (drain & handoff) y arranque de su siguiente encarnación
+        nodeA.close();
+        nodeA = startNode(NODE_A);
+        QuizEngine successor = nodeA.getBean(QuizEngine.class);
+        deadline = System.currentTimeMillis() + 10_000;
+        while (!successor.isActive(pin)) {
+            assertTrue(System.currentTimeMillis() < deadline, "la sala no ha llegado por el handoff en 10s");
+            Thread.sleep(10);
+        }
+
+        assertEquals(state, successor.getState(pin), "la sala no sigue en la misma pregunta");
+        assertEquals(score, successor.getScore(pin, playerId));
+        assertTrue(successor.hasAnswered(pin, playerId), "se ha perdido la respuesta ya dada");
+        // Misma clave en todas las encarnaciones: el jugador sigue dentro con su token
+        mockMvc(nodeA).perform(get("/play/game/{token}", token))
+                .andExpect(status().isOk());
+    }
+
+    private static ConfigurableApplicationContext startNode(String self) {
+        return new SpringApplicationBuilder(QuizLiveApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        // BD propia de esta prueba, compartida por los nodos y por las encarnaciones de A
+                        "spring.datasource.url=jdbc:h2:mem:quiz_live_cluster;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "quizlive.cluster.nodes=" + NODE_A + "," + NODE_B,
+                        "quizlive.cluster.self=" + self,
+                        "quizlive.cluster.transport=in-process",
+                        "quizlive.player-token.secret=clave-de-la-prueba-de-cluster")
+                .run();
+    }
+
+    private static MockMvc mockMvc(ConfigurableApplicationContext node) {
+        return MockMvcBuilders.webAppContextSetup((WebApplicationContext) node).apply(springSecurity()).build();
+    }
+
+    private static String join(ConfigurableApplicationContext node, String pin, String nickname) throws Exception {
+        MvcResult join = mockMvc(node).perform(post("/play/join").param("pin", pin).param("nickname", nickname))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        String redirect = join.getResponse().getRedirectedUrl();
+        assertTrue(redirect != null && redirect.startsWith("/play/wait/"), "entrada rechazada: " + redirect);
+        return redirect.substring("/play/wait/".length());
+    }
+
+    // Bloque de 2 preguntas (la correcta de la primera es la 0) y su partida, creada en el nodo indicado
+    private static GameRoom createGame(ConfigurableApplicationContext node, String username) {
+        User host = node.getBean(UserRepository.class).save(new User(null, username, "x"));
+        Block block = node.getBean(BlockRepository.class).save(new Block(null, "Cluster", "Prueba de handoff", host, new ArrayList<>()));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Question question = new Question(null, "Pregunta " + i, new ArrayList<>(List.of("A", "B", "C", "D")), i % 4, block);
+            ids.add(node.getBean(QuestionRepository.class).save(question).getId());
+        }
+        GameConfigForm form = new GameConfigForm();
+        form.setBlockId(block.getId());
+        form.setTimeLimit(30);
+        form.setSelectedQuestionIds(ids);
+        GameRoom room = node.getBean(GameService.class).createGameWithConfig(form, host);
+        assertNotNull(room, "no se ha creado la partida");
+        return room;
+    }
+}
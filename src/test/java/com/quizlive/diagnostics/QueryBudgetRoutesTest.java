@@ -0,0 +1,318 @@
+package com.quizlive.diagnostics;
+
+import com.quizlive.controller.BlockController;
+import com.quizlive.controller.GameController;
+import com.quizlive.controller.QuestionController;
+import com.quizlive.dto.GameConfigForm;
+import com.quizlive.model.Block;
+import com.quizlive.model.GameRoom;
+import com.quizlive.model.Question;
+import com.quizlive.model.User;
+import com.quizlive.repository.BlockRepository;
+import com.quizlive.repository.QuestionRepository;
+import com.quizlive.repository.UserRepository;
+import com.quizlive.search.QuestionSearchIndex;
+import com.quizlive.service.GameService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Prueba de humo del presupuesto de consultas: una partida entera (lobby, entrada, espera,
+ * long-poll, pregunta y respuesta) contra H2 con quizlive.query-budget.fail-fast=true.
+ * Una ruta caliente que se pase de su presupuesto hace fallar su petición (500) y la prueba.
+ * Las pantallas del profesor que cargan entidades tienen su número exacto de consultas (un N+1
+ * nuevo lo cambia aunque quepa en el presupuesto por defecto), y el resto de rutas de
+ * GameController, BlockController y QuestionController pasan al menos una vez por el contador.
+ *
+ * mvn -Dskip.npm -Dskip.installnodenpm test
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetRoutesTest {
+
+    // Las rutas presupuestadas en application.properties (quizlive.query-budget.routes)
+    private static final List<String> HOT_ROUTES = List.of(
+            "GET /game/lobby/{pin}",
+            "GET /play/wait/{token}",
+            "GET /game/api/lobby/{pin}/players",
+            "GET /play/api/wait/{token}",
+            "GET /play/game/{token}",
+            "POST /play/answer");
+
+    // Consultas exactas con un bloque de 3 preguntas (lecturas por clave, colecciones lazy de la vista)
+    private static final Map<String, Integer> EXACT_QUERIES = exactQueries();
+
+    // Las demás rutas de los tres controladores: solo se comprueba que caben en su presupuesto
+    private static final List<String> OTHER_ROUTES = List.of(
+            "GET /blocks/new",
+            "POST /blocks/save",
+            "GET /blocks/clone/{id}",
+            "GET /blocks/delete/{id}",
+            "GET /questions/new/{blockId}",
+            "POST /questions/save",
+            "POST /questions/import/{blockId}",
+            "GET /questions/import/status/{importId}",
+            "GET /questions/delete/{id}",
+            "GET /game/config/{blockId}",
+            "POST /game/create",
+            "POST /game/start",
+            "GET /game/api/progress/{pin}",
+            "POST /game/finish",
+            "POST /game/next",
+            "GET /game/export/{pin}",
+            "GET /play",
+            "POST /play/join");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryBudgetInterceptor queryBudgetInterceptor;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    private static Map<String, Integer> exactQueries() {
+        Map<String, Integer> queries = new LinkedHashMap<>();
+        queries.put("GET /blocks", 3);                    // usuario, página del catálogo, bloques en borrado
+        queries.put("GET /blocks/edit/{id}", 3);          // usuario, bloque, sus preguntas
+        queries.put("GET /blocks/search", 2);             // usuario, nombres de los bloques de los resultados
+        queries.put("GET /questions/edit/{id}", 2);       // pregunta, sus opciones
+        queries.put("GET /game/ranking/{pin}", 1);        // sala (el ranking provisional sale del motor)
+        queries.put("GET /game/play/host/{pin}", 5);      // sala, preguntas de la sala, pregunta, opciones, total
+        return queries;
+    }
+
+    @Test
+    void hotRoutesStayWithinTheirBudget() throws Exception {
+        User host = userRepository.save(new User(null, "profe", "x"));
+        GameRoom room = gameService.createGameWithConfig(gameConfig(host, 3), host);
+        assertNotNull(room, "no se ha creado la partida");
+        String pin = room.getPin();
+
+        mockMvc.perform(get("/game/lobby/{pin}", pin).with(user("profe")))
+                .andExpect(status().isOk());
+
+        MvcResult join = mockMvc.perform(post("/play/join").param("pin", pin).param("nickname", "ana"))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        String redirect = join.getResponse().getRedirectedUrl();
+        assertTrue(redirect != null && redirect.startsWith("/play/wait/"), "entrada rechazada: " + redirect);
+        String token = redirect.substring("/play/wait/".length());
+
+        mockMvc.perform(get("/play/wait/{token}", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/game/api/lobby/{pin}/players", pin).with(user("profe")))
+                .andExpect(status().isOk());
+
+        // El long-poll con el epoch del lobby responde en cuanto empieza la partida
+        long epoch = gameService.getEngineEpoch(pin);
+        gameService.startGame(pin);
+        MvcResult poll = mockMvc.perform(get("/play/api/wait/{token}", token).param("epoch", String.valueOf(epoch)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(poll))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/play/game/{token}", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/play/answer").param("token", token).param("optionIndex", "0"))
+                .andExpect(status().isOk());
+
+        // Además de no fallar: todas se han medido y el máximo de cada una cabe en su presupuesto
+        for (String route : HOT_ROUTES) assertWithinBudget(route);
+    }
+
+    @Test
+    void hostScreensMakeExactlyTheirQueries() throws Exception {
+        User host = userRepository.save(new User(null, "profe-exacto", "x"));
+        GameConfigForm config = gameConfig(host, 3);
+        questionSearchIndex.reindexBlock(config.getBlockId()); // Las preguntas no han pasado por QuestionService
+
+        mockMvc.perform(get("/blocks").with(user("profe-exacto")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/blocks/edit/{id}", config.getBlockId()).with(user("profe-exacto")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/blocks/search").param("q", "pregunta").with(user("profe-exacto")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/questions/edit/{id}", config.getSelectedQuestionIds().get(0)).with(user("profe-exacto")))
+                .andExpect(status().isOk());
+
+        GameRoom room = gameService.createGameWithConfig(config, host);
+        assertNotNull(room, "no se ha creado la partida");
+        gameService.startGame(room.getPin());
+        mockMvc.perform(get("/game/play/host/{pin}", room.getPin()).with(user("profe-exacto")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/game/ranking/{pin}", room.getPin()).with(user("profe-exacto")))
+                .andExpect(status().isOk());
+
+        // Cada una se ha pedido una sola vez en toda la clase: el máximo es la cuenta de esa petición
+        for (Map.Entry<String, Integer> expected : EXACT_QUERIES.entrySet()) {
+            Map<String, Object> summary = summaryOf(expected.getKey());
+            assertEquals(1L, ((Number) summary.get("requests")).longValue(), expected.getKey() + ": " + summary);
+            assertEquals(expected.getValue().longValue(), ((Number) summary.get("maxQueries")).longValue(),
+                    expected.getKey() + ": " + summary);
+        }
+    }
+
+    @Test
+    void everyOtherRouteStaysWithinItsBudget() throws Exception {
+        User host = userRepository.save(new User(null, "profe-rutas", "x"));
+        GameConfigForm config = gameConfig(host, 3);
+        Long blockId = config.getBlockId();
+        List<Long> questionIds = config.getSelectedQuestionIds();
+
+        // Editor de bloques y preguntas
+        mockMvc.perform(get("/blocks/new").with(user("profe-rutas")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/blocks/save").param("name", "Otro").param("description", "Nuevo").with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/questions/new/{blockId}", blockId).with(user("profe-rutas")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/questions/save").param("blockId", blockId.toString()).param("statement", "Nueva")
+                        .param("options[0]", "A").param("options[1]", "B").param("options[2]", "C").param("options[3]", "D")
+                        .param("correctOptionIndex", "2").with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+        MockMultipartFile csv = new MockMultipartFile("file", "preguntas.csv", "text/csv",
+                "Importada,A,B,C,D,1\n".getBytes(StandardCharsets.UTF_8));
+        MvcResult imported = mockMvc.perform(multipart("/questions/import/{blockId}", blockId).file(csv).with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        String importRedirect = imported.getResponse().getRedirectedUrl();
+        assertTrue(importRedirect != null && importRedirect.contains("importId="), "importación rechazada: " + importRedirect);
+        mockMvc.perform(get("/questions/import/status/{importId}", importRedirect.substring(importRedirect.indexOf("importId=") + 9)))
+                .andExpect(status().isOk());
+
+        MvcResult cloned = mockMvc.perform(get("/blocks/clone/{id}", blockId).with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        String cloneRedirect = cloned.getResponse().getRedirectedUrl();
+        assertTrue(cloneRedirect != null && cloneRedirect.startsWith("/blocks/edit/"), "copia rechazada: " + cloneRedirect);
+        mockMvc.perform(get("/blocks/delete/{id}", cloneRedirect.substring("/blocks/edit/".length())).with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/questions/delete/{id}", questionIds.get(2)).param("blockId", blockId.toString())
+                        .with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+
+        // Partida a su ritmo creada desde el formulario: entrada, progreso, fin y exportación
+        mockMvc.perform(get("/game/config/{blockId}", blockId).with(user("profe-rutas")))
+                .andExpect(status().isOk());
+        MvcResult created = mockMvc.perform(post("/game/create").param("blockId", blockId.toString()).param("timeLimit", "30")
+                        .param("selectedQuestionIds", questionIds.get(0).toString(), questionIds.get(1).toString()).param("selfPaced", "true").with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        String lobby = created.getResponse().getRedirectedUrl();
+        assertTrue(lobby != null && lobby.startsWith("/game/lobby/"), "partida no creada: " + lobby);
+        String pin = lobby.substring("/game/lobby/".length());
+
+        mockMvc.perform(get("/play"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/play/join").param("pin", pin).param("nickname", "eva"))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(post("/game/start").param("pin", pin).with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/game/api/progress/{pin}", pin).with(user("profe-rutas")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/game/finish").param("pin", pin).with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/game/export/{pin}", pin).with(user("profe-rutas")))
+                .andExpect(request().asyncStarted());
+
+        // Partida normal: el host pasa de pregunta
+        GameRoom room = gameService.createGameWithConfig(gameConfig(host, 2), host);
+        assertNotNull(room, "no se ha creado la partida");
+        gameService.startGame(room.getPin());
+        mockMvc.perform(post("/game/next").param("pin", room.getPin()).param("questionIndex", "0").with(user("profe-rutas")))
+                .andExpect(status().is3xxRedirection());
+
+        for (String route : OTHER_ROUTES) assertWithinBudget(route);
+    }
+
+    // Ninguna ruta de los tres controladores se queda sin caso en esta clase
+    @Test
+    void everyControllerRouteHasACase() {
+        Set<String> covered = new HashSet<>(HOT_ROUTES);
+        covered.addAll(EXACT_QUERIES.keySet());
+        covered.addAll(OTHER_ROUTES);
+        Set<Class<?>> controllers = Set.of(GameController.class, BlockController.class, QuestionController.class);
+        requestMappingHandlerMapping.getHandlerMethods().forEach((RequestMappingInfo info, HandlerMethod method) -> {
+            if (!controllers.contains(method.getBeanType())) return;
+            info.getMethodsCondition().getMethods().forEach(httpMethod -> info.getPatternValues().forEach(pattern ->
+                    assertTrue(covered.contains(httpMethod + " " + pattern), httpMethod + " " + pattern + " no tiene caso")));
+        });
+    }
+
+    private Map<String, Object> summaryOf(String route) {
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> routes = (Map<String, Map<String, Object>>) queryBudgetInterceptor.stats().get("routes");
+        Map<String, Object> summary = routes.get(route);
+        assertNotNull(summary, route + " no se ha medido");
+        return summary;
+    }
+
+    private void assertWithinBudget(String route) {
+        Map<String, Object> summary = summaryOf(route);
+        long maxQueries = ((Number) summary.get("maxQueries")).longValue();
+        long budget = ((Number) summary.get("budget")).longValue();
+        assertTrue(maxQueries <= budget, route + ": " + summary);
+    }
+
+    // Bloque del profesor con preguntas de 4 opciones, todas seleccionadas a mano
+    private GameConfigForm gameConfig(User owner, int questions) {
+        Block block = blockRepository.save(new Block(null, "Presupuesto", "Prueba de consultas", owner, new ArrayList<>()));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            Question question = new Question(null, "Pregunta " + i, new ArrayList<>(List.of("A", "B", "C", "D")), i % 4, block);
+            ids.add(questionRepository.save(question).getId());
+        }
+        GameConfigForm form = new GameConfigForm();
+        form.setBlockId(block.getId());
+        form.setTimeLimit(30);
+        form.setSelectedQuestionIds(ids);
+        return form;
+    }
+}
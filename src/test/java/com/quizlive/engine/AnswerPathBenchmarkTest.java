@@ -0,0 +1,110 @@
+package com.quizlive.engine;
+
+import com.quizlive.model.ScoringCurve;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Camino de una respuesta en el motor: processAnswerAsync (admisión, lectura del estado, encolado)
+ * y su proceso en el pool (duplicados, racha, puntos, marcador).
+ *
+ * Igual que WarmUpRunner: salas sintéticas sin fila en la BD y sin persistidor, así que se mide solo
+ * el motor. Las primeras salas calientan el JIT; de las demás se toma la mejor pregunta. Los topes son
+ * holgados (solo detectan regresiones groseras, p.ej. un lock por sala en el pool); las cifras salen
+ * en la salida de la prueba.
+ *
+ * mvn -Dskip.npm -Dskip.installnodenpm test -Dgroups=benchmark -DexcludedGroups=
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        // Todas las respuestas de la prueba entran: se mide el camino, no el límite de ritmo
+        "quizlive.admission.answer.player-burst=1000",
+        "quizlive.admission.answer.player-per-second=1000",
+        "quizlive.admission.answer.room-burst=1000000",
+        "quizlive.admission.answer.room-per-second=1000000"
+})
+@ActiveProfiles("test")
+class AnswerPathBenchmarkTest {
+
+    private static final int PLAYERS = 200;
+    private static final int QUESTIONS = 5;
+    private static final int WARMUP_ROOMS = 3;
+    private static final int ROOMS = 5;
+
+    // Por respuesta, con margen de sobra
+    private static final long MAX_SUBMIT_MICROS = 200;
+    private static final long MAX_SCORED_MICROS = 1000;
+
+    @Autowired
+    private QuizEngine quizEngine;
+
+    @Test
+    void processAnswerAsync() {
+        for (int r = 0; r < WARMUP_ROOMS; r++) playRoom("bench-warmup" + r);
+
+        long bestSubmit = Long.MAX_VALUE;
+        long bestScored = Long.MAX_VALUE;
+        for (int r = 0; r < ROOMS; r++) {
+            long[] nanos = playRoom("bench" + r);
+            bestSubmit = Math.min(bestSubmit, nanos[0]);
+            bestScored = Math.min(bestScored, nanos[1]);
+        }
+        long submitMicros = TimeUnit.NANOSECONDS.toMicros(bestSubmit / PLAYERS);
+        long scoredMicros = TimeUnit.NANOSECONDS.toMicros(bestScored / PLAYERS);
+        System.out.println("[Benchmark] [" + Thread.currentThread().getName() + "] processAnswerAsync: "
+                + submitMicros + " µs/respuesta en el hilo de la petición, " + scoredMicros
+                + " µs/respuesta hasta puntuada (" + PLAYERS + " jugadores)");
+        assertTrue(submitMicros < MAX_SUBMIT_MICROS, "envío: " + submitMicros + " µs/respuesta");
+        assertTrue(scoredMicros < MAX_SCORED_MICROS, "puntuada: " + scoredMicros + " µs/respuesta");
+    }
+
+    // Una partida entera; devuelve la mejor pregunta {envío de todas, hasta la última puntuada} en ns
+    private long[] playRoom(String pin) {
+        long[] roomQuestionIds = new long[QUESTIONS];
+        int[] correctOptions = new int[QUESTIONS];
+        for (int i = 0; i < QUESTIONS; i++) {
+            roomQuestionIds[i] = -1;
+            correctOptions[i] = i % 4;
+        }
+        assertTrue(quizEngine.initRoom(pin, -1L, 60, new ScoringPolicy(ScoringCurve.CLASSIC, 1000, 100),
+                roomQuestionIds, correctOptions, false), "el motor no admite salas");
+        long[] best = { Long.MAX_VALUE, Long.MAX_VALUE };
+        try {
+            for (int p = 0; p < PLAYERS; p++) {
+                quizEngine.reserveNickname(pin, "bench" + p);
+                quizEngine.registerPlayer(pin, -(p + 1L), "bench" + p);
+            }
+            quizEngine.startGame(pin);
+
+            for (int q = 0; q < QUESTIONS; q++) {
+                long start = System.nanoTime();
+                for (int p = 0; p < PLAYERS; p++) {
+                    // Aciertos y fallos mezclados: lo que se comprueba es que ninguna se rechace
+                    AnswerOutcome outcome = quizEngine.processAnswerAsync(pin, -(p + 1L), (p + q) % 4, null, null);
+                    assertTrue(outcome.isAccepted(), "respuesta rechazada: jugador " + p + ", pregunta " + q);
+                }
+                long submitted = System.nanoTime() - start;
+                for (int p = 0; p < PLAYERS; p++) {
+                    while (!quizEngine.hasAnswered(pin, -(p + 1L))) {
+                        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10), "respuestas sin procesar en 10s");
+                        Thread.onSpinWait();
+                    }
+                }
+                long scored = System.nanoTime() - start;
+                best[0] = Math.min(best[0], submitted);
+                best[1] = Math.min(best[1], scored);
+                quizEngine.nextQuestion(pin, q);
+            }
+        } finally {
+            quizEngine.evictRoom(pin);
+        }
+        return best;
+    }
+}
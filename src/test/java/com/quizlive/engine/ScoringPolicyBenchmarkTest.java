@@ -0,0 +1,60 @@
+package com.quizlive.engine;
+
+import com.quizlive.model.ScoringCurve;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Coste de puntuar una respuesta (ScoringPolicy.points) con cada curva.
+ *
+ * Se calienta el JIT y se mide en varias tandas; cuenta la mejor (la menos afectada por GC y
+ * por otros procesos). El tope es muy holgado: solo salta con una regresión grosera, como
+ * meter una asignación o un lock en el cálculo. Las cifras salen en la salida de la prueba.
+ *
+ * mvn -Dskip.npm -Dskip.installnodenpm test -Dgroups=benchmark -DexcludedGroups=
+ */
+@Tag("benchmark")
+class ScoringPolicyBenchmarkTest {
+
+    private static final int CALLS = 2_000_000;
+    private static final int WARMUP_BATCHES = 5;
+    private static final int BATCHES = 10;
+    private static final long LIMIT_NANOS = TimeUnit.SECONDS.toNanos(20);
+
+    // Por llamada, con margen de sobra (lo normal son unos pocos ns)
+    private static final double MAX_NANOS_PER_CALL = 200;
+
+    @Test
+    void pointsPerCurve() {
+        for (ScoringCurve curve : ScoringCurve.values()) {
+            ScoringPolicy policy = new ScoringPolicy(curve, 1000, 100);
+            long sink = 0;
+            for (int i = 0; i < WARMUP_BATCHES; i++) sink += batch(policy);
+
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < BATCHES; i++) {
+                long start = System.nanoTime();
+                sink += batch(policy);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            double nanosPerCall = (double) best / CALLS;
+            System.out.println("[Benchmark] [" + Thread.currentThread().getName() + "] ScoringPolicy " + curve + ": "
+                    + Math.round(nanosPerCall * 100) / 100.0 + " ns/respuesta (suma " + sink + ")");
+            assertTrue(nanosPerCall < MAX_NANOS_PER_CALL, curve + ": " + nanosPerCall + " ns/respuesta");
+        }
+    }
+
+    // Respuestas repartidas por todo el plazo, aciertos y fallos, rachas de 1 a 8
+    private static long batch(ScoringPolicy policy) {
+        long sum = 0;
+        for (int i = 0; i < CALLS; i++) {
+            long elapsed = (LIMIT_NANOS / CALLS) * i;
+            sum += policy.points((i & 3) != 0, elapsed, LIMIT_NANOS, (i & 7) + 1);
+        }
+        return sum;
+    }
+}
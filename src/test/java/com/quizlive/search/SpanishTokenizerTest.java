@@ -0,0 +1,39 @@
+package com.quizlive.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los ejemplos del stemming: singular y plural tienen que dar el mismo término, que es lo que
+ * permite que el buscador encuentre "gato" al escribir "gatos".
+ */
+class SpanishTokenizerTest {
+
+    @Test
+    void singularAndPluralShareTheStem() {
+        assertEquals("gat", SpanishTokenizer.stem("gato"));
+        assertEquals("gat", SpanishTokenizer.stem("gatos"));
+        assertEquals("mes", SpanishTokenizer.stem("mesa"));
+        assertEquals("mes", SpanishTokenizer.stem("mesas"));
+        assertEquals("clas", SpanishTokenizer.stem("clase"));
+        assertEquals("clas", SpanishTokenizer.stem("clases"));
+        assertEquals("capital", SpanishTokenizer.stem("capital"));
+        assertEquals("capital", SpanishTokenizer.stem("capitales"));
+    }
+
+    @Test
+    void shortWordsKeepTheMinimumStem() {
+        assertEquals("tres", SpanishTokenizer.stem("tres"));
+        assertEquals("gas", SpanishTokenizer.stem("gas"));
+        assertEquals("sol", SpanishTokenizer.stem("sol"));
+        assertEquals("sol", SpanishTokenizer.stem("soles"));
+    }
+
+    @Test
+    void tokenizeFoldsAccentsAndDropsStopwords() {
+        assertEquals(List.of("capital", "geografi"), SpanishTokenizer.tokenize("Las capitales de la Geografía"));
+    }
+}
@@ -1,4 +1,8 @@
-window.tailwind.config = {
+// Configuración de Tailwind para la hoja precompilada (antes iba en static/js/tailwind-config.js
+// y la aplicaba el compilador del CDN en el navegador en cada carga de página).
+// Solo se generan las clases que aparecen en las plantillas (incluidas las de sus <script>).
+module.exports = {
+    content: ["./src/main/resources/templates/**/*.html"],
     darkMode: "class",
     theme: {
         extend: {
@@ -23,4 +27,8 @@ window.tailwind.config = {
             },
         },
     },
+    plugins: [
+        require("@tailwindcss/forms"),
+        require("@tailwindcss/container-queries"),
+    ],
 };